@@ -35,9 +35,11 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.avro.util.internal.Accessor;
 import org.apache.avro.util.internal.Accessor.FieldAccessor;
+import org.apache.avro.util.internal.Accessor.SchemaAccessor;
 import org.apache.avro.util.internal.JacksonUtils;
 
 import com.fasterxml.jackson.core.JsonFactory;
@@ -101,9 +103,41 @@ public abstract class Schema extends JsonProperties {
     public String getName() { return name; }
   };
 
+  static {
+    Accessor.setAccessor(new SchemaAccessor() {
+      @Override
+      protected Object getDerived(Schema schema, Object key) {
+        Map<Object,Object> derived = schema.derived;
+        return derived == null ? null : derived.get(key);
+      }
+
+      @Override
+      protected void putDerived(Schema schema, Object key, Object value) {
+        schema.derived().put(key, value);
+      }
+    });
+  }
+
   private final Type type;
   private LogicalType logicalType = null;
 
+  /* Values other components compile from this schema, such as deep copiers.
+   * They are held here so that they live exactly as long as the schema:
+   * held elsewhere, a value referencing its schema would pin it. */
+  private volatile Map<Object,Object> derived;
+
+  private Map<Object,Object> derived() {
+    Map<Object,Object> result = derived;
+    if (result == null) {
+      synchronized (this) {
+        result = derived;
+        if (result == null)
+          derived = result = new ConcurrentHashMap<>(4);
+      }
+    }
+    return result;
+  }
+
   Schema(Type type) {
     super(type == Type.ENUM ? ENUM_RESERVED : SCHEMA_RESERVED);
     this.type = type;
@@ -337,11 +371,26 @@ public abstract class Schema extends JsonProperties {
    * @param pretty if true, pretty-print JSON.
    */
   public String toString(boolean pretty) {
+    return toString(Collections.<Schema>emptyList(), pretty);
+  }
+
+  /** Render this as <a href="http://json.org/">JSON</a>, writing the named
+   * types in <tt>referencedSchemas</tt> by name only rather than inline.  The
+   * result can be parsed by a {@link Parser} to which the referenced types
+   * have been added with {@link Parser#addTypes(Schema...)}.
+   * @param referencedSchemas named types to refer to by name.
+   * @param pretty if true, pretty-print JSON.
+   */
+  public String toString(Collection<Schema> referencedSchemas, boolean pretty) {
     try {
       StringWriter writer = new StringWriter();
       JsonGenerator gen = FACTORY.createJsonGenerator(writer);
       if (pretty) gen.useDefaultPrettyPrinter();
-      toJson(new Names(), gen);
+      Names names = new Names();
+      for (Schema s : referencedSchemas)
+        if (s != this)
+          names.add(s);
+      toJson(names, gen);
       gen.flush();
       return writer.toString();
     } catch (IOException e) {
@@ -1048,6 +1097,15 @@ public abstract class Schema extends JsonProperties {
       return this;
     }
 
+    /** Adds the provided named types to the set of defined, named types
+     * known to this parser.  Schemas parsed afterwards refer to these
+     * instances rather than defining new ones. */
+    public Parser addTypes(Schema... types) {
+      for (Schema s : types)
+        names.add(s);
+      return this;
+    }
+
     /** Returns the set of defined, named types known to this parser. */
     public Map<String,Schema> getTypes() {
       Map<String,Schema> result = new LinkedHashMap<>();
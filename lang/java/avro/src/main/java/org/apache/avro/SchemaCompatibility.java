@@ -23,13 +23,17 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.avro.Schema.Field;
 import org.apache.avro.Schema.Type;
+import org.apache.avro.util.WeakIdentityHashMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -63,7 +67,15 @@ public class SchemaCompatibility {
     final SchemaCompatibilityResult compatibility =
         new ReaderWriterCompatibilityChecker()
             .getCompatibility(reader, writer);
+    return toPairCompatibility(compatibility, reader, writer);
+  }
 
+  /** Wraps a compatibility result into a {@link SchemaPairCompatibility}. */
+  private static SchemaPairCompatibility toPairCompatibility(
+      final SchemaCompatibilityResult compatibility,
+      final Schema reader,
+      final Schema writer
+  ) {
     final String message;
     switch (compatibility.getCompatibility()) {
       case INCOMPATIBLE: {
@@ -144,6 +156,107 @@ public class SchemaCompatibility {
     }
   }
 
+  /**
+   * Long-lived, thread-safe compatibility checker that remembers its results.
+   *
+   * <p> Results of reader/writer pairs are cached, so re-validating a schema against a long
+   * history of versions only pays for the pairs that have not been checked before. Compatible
+   * results of named record types are additionally shared between pairs: a record type that did
+   * not change between two versions is only walked once, whichever top-level pair it appears in.
+   * </p>
+   *
+   * <p> Schemas are compared by their full JSON ({@link Schema#toString()}), so independently
+   * parsed copies of the same schema hit the cache. Neither {@link Schema#equals(Object)} nor
+   * parsing fingerprints are used as keys: they ignore aliases or default values, which both
+   * affect compatibility. The JSON of each schema instance is rendered once and remembered
+   * while the schema is reachable, so schemas must not be modified once checked. </p>
+   */
+  public static final class Cache {
+    private final ConcurrentMap<SchemaPair, SchemaPairCompatibility> mResults =
+        new ConcurrentHashMap<>();
+    private final ConcurrentMap<SchemaPair, SchemaCompatibilityResult> mSharedRecords =
+        new ConcurrentHashMap<>();
+    /** Full JSON of the schemas seen, keyed by instance. */
+    private final Map<Schema, String> mJson = new WeakIdentityHashMap<>();
+
+    /**
+     * Validates that the provided reader schema can be used to decode avro data written with the
+     * provided writer schema, reusing any previously computed result.
+     * @param reader schema to check.
+     * @param writer schema to check.
+     * @return a result object identifying any compatibility errors.
+     */
+    public SchemaPairCompatibility checkReaderWriterCompatibility(
+        final Schema reader,
+        final Schema writer
+    ) {
+      final SchemaPair pair = new SchemaPair(json(mJson, reader), json(mJson, writer));
+      SchemaPairCompatibility result = mResults.get(pair);
+      if (result == null) {
+        final SchemaCompatibilityResult compatibility =
+            new ReaderWriterCompatibilityChecker(mSharedRecords, mJson)
+                .getCompatibility(reader, writer);
+        result = toPairCompatibility(compatibility, reader, writer);
+        final SchemaPairCompatibility previous = mResults.putIfAbsent(pair, result);
+        if (previous != null) {
+          result = previous;
+        }
+      }
+      return result;
+    }
+
+    /** Returns the number of reader/writer pairs whose result is cached. */
+    public int size() {
+      return mResults.size();
+    }
+
+    /** Discards all cached results. */
+    public void clear() {
+      mResults.clear();
+      mSharedRecords.clear();
+      mJson.clear();
+    }
+  }
+
+  /** Returns the full JSON of a schema, rendering it only the first time it is seen. */
+  private static String json(final Map<Schema, String> memo, final Schema schema) {
+    String json = memo.get(schema);
+    if (json == null) {
+      json = schema.toString();
+      memo.put(schema, json);
+    }
+    return json;
+  }
+
+  /**
+   * Reader/writer schema pair compared by full JSON, used as a key of the shared {@link Cache}.
+   */
+  private static final class SchemaPair {
+    private final String mReader;
+    private final String mWriter;
+
+    SchemaPair(final String reader, final String writer) {
+      mReader = reader;
+      mWriter = writer;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int hashCode() {
+      return 31 * mReader.hashCode() + mWriter.hashCode();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof SchemaPair)) {
+        return false;
+      }
+      final SchemaPair that = (SchemaPair) obj;
+      return mReader.equals(that.mReader) && mWriter.equals(that.mWriter);
+    }
+  }
+
   /**
    * Reader/writer schema pair that can be used as a key in a hash map.
    *
@@ -198,6 +311,28 @@ public class SchemaCompatibility {
     private static final String ROOT_REFERENCE_TOKEN = "";
     private final Map<ReaderWriter, SchemaCompatibilityResult> mMemoizeMap =
         new HashMap<>();
+    /** Depth at which each pair was entered; only pairs still in progress have an entry. */
+    private final Map<ReaderWriter, Integer> mInProgressDepth = new HashMap<>();
+    /** Memoized pairs whose result relied on a pair that was still in progress. */
+    private final Set<ReaderWriter> mProvisional = new HashSet<>();
+    /** Compatible record results shared between checkers, may be null. */
+    private final ConcurrentMap<SchemaPair, SchemaCompatibilityResult> mShared;
+    /** Full JSON of the schemas looked up in {@link #mShared}. */
+    private final Map<Schema, String> mJson;
+    private int mDepth = 0;
+    /** Shallowest in-progress pair the current pair depends on. */
+    private int mDependsOnDepth = Integer.MAX_VALUE;
+
+    ReaderWriterCompatibilityChecker() {
+      this(null, null);
+    }
+
+    ReaderWriterCompatibilityChecker(
+        final ConcurrentMap<SchemaPair, SchemaCompatibilityResult> shared,
+        final Map<Schema, String> json) {
+      mShared = shared;
+      mJson = json;
+    }
 
     /**
      * Reports the compatibility of a reader/writer schema pair.
@@ -239,17 +374,73 @@ public class SchemaCompatibility {
           // Break the recursion here.
           // schemas are compatible unless proven incompatible:
           result = SchemaCompatibilityResult.compatible();
+          mDependsOnDepth = Math.min(mDependsOnDepth, mInProgressDepth.get(pair));
+        } else if (mProvisional.contains(pair)) {
+          // Never share anything built on top of a provisional result.
+          mDependsOnDepth = 0;
         }
       } else {
-        // Mark this reader/writer pair as "in progress":
-        mMemoizeMap.put(pair, SchemaCompatibilityResult.recursionInProgress());
-        result = calculateCompatibility(reader, writer, location);
-        mMemoizeMap.put(pair, result);
+        result = getSharedCompatibility(reader, writer);
+        if (result == null) {
+          result = calculateMemoizedCompatibility(pair, reader, writer, location);
+        } else {
+          mMemoizeMap.put(pair, result);
+        }
       }
       location.removeFirst();
       return result;
     }
 
+    private SchemaCompatibilityResult calculateMemoizedCompatibility(
+        final ReaderWriter pair,
+        final Schema reader,
+        final Schema writer,
+        final Deque<String> location) {
+      final int depth = ++mDepth;
+      final int outerDependsOnDepth = mDependsOnDepth;
+      mDependsOnDepth = Integer.MAX_VALUE;
+      // Mark this reader/writer pair as "in progress":
+      mMemoizeMap.put(pair, SchemaCompatibilityResult.recursionInProgress());
+      mInProgressDepth.put(pair, depth);
+      final SchemaCompatibilityResult result = calculateCompatibility(reader, writer, location);
+      mInProgressDepth.remove(pair);
+      mMemoizeMap.put(pair, result);
+      // The result is final unless it relied on an enclosing pair that is still in progress.
+      if (mDependsOnDepth < depth) {
+        mProvisional.add(pair);
+      } else {
+        putSharedCompatibility(reader, writer, result);
+      }
+      mDependsOnDepth = Math.min(outerDependsOnDepth, mDependsOnDepth);
+      mDepth--;
+      return result;
+    }
+
+    private SchemaCompatibilityResult getSharedCompatibility(final Schema reader, final Schema writer) {
+      if (mShared == null || !isShareable(reader, writer)) {
+        return null;
+      }
+      return mShared.get(sharedKey(reader, writer));
+    }
+
+    private void putSharedCompatibility(
+        final Schema reader, final Schema writer, final SchemaCompatibilityResult result) {
+      // Incompatibilities carry the location they were found at, so only compatible results
+      // can be reused elsewhere.
+      if (mShared != null && isShareable(reader, writer)
+          && result.getCompatibility() == SchemaCompatibilityType.COMPATIBLE) {
+        mShared.putIfAbsent(sharedKey(reader, writer), result);
+      }
+    }
+
+    private SchemaPair sharedKey(final Schema reader, final Schema writer) {
+      return new SchemaPair(json(mJson, reader), json(mJson, writer));
+    }
+
+    private static boolean isShareable(final Schema reader, final Schema writer) {
+      return reader.getType() == Type.RECORD && writer.getType() == Type.RECORD;
+    }
+
     /**
      * Calculates the compatibility of a reader/writer schema pair.
      *
@@ -125,6 +125,7 @@ public abstract class RecordBuilderBase<T extends IndexedRecord>
 
   /**
    * Gets the default value of the given field, if any.
+   * Immutable defaults are shared, mutable ones are deep copied.
    * @param field the field whose default value should be retrieved.
    * @return the default value associated with the given field,
    * or null if none is specified in the schema.
@@ -132,7 +133,24 @@ public abstract class RecordBuilderBase<T extends IndexedRecord>
    */
   @SuppressWarnings({ "rawtypes", "unchecked" })
   protected Object defaultValue(Field field) throws IOException {
-    return data.deepCopy(field.schema(), data.getDefaultValue(field));
+    Object value = data.getDefaultValue(field);
+    if (isImmutable(value)) {
+      return value;
+    }
+    return data.deepCopy(field.schema(), value);
+  }
+
+  /** Tests whether a default value can be shared between records. */
+  private static boolean isImmutable(Object value) {
+    return value == null
+        || value instanceof String
+        || value instanceof Integer
+        || value instanceof Long
+        || value instanceof Float
+        || value instanceof Double
+        || value instanceof Boolean
+        || value instanceof Enum
+        || value instanceof GenericData.EnumSymbol;
   }
 
   @Override
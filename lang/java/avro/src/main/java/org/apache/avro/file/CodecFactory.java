@@ -77,6 +77,12 @@ public abstract class CodecFactory {
   /** Creates internal Codec. */
   protected abstract Codec createInstance();
 
+  /** Creates a new Codec, for compressing data other than data file blocks.
+   * Codecs are not thread-safe. */
+  public final Codec newCodec() {
+    return createInstance();
+  }
+
   /** Mapping of string names (stored as metas) and codecs.
    * Note that currently options (like compression level)
    * are not recoverable. */
@@ -39,6 +39,8 @@ import org.apache.avro.io.BinaryEncoder;
 import org.apache.avro.io.DecoderFactory;
 import org.apache.avro.io.BinaryDecoder;
 import org.apache.avro.io.DatumReader;
+import org.apache.avro.metrics.AvroMetrics;
+import org.apache.avro.metrics.SchemaMetrics;
 
 /** Streaming access to files written by {@link DataFileWriter}.  Use {@link
  * DataFileReader} for file-based input.
@@ -74,6 +76,7 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
   long blockRemaining;                          // # entries remaining in block
   byte[] syncBuffer = new byte[DataFileConstants.SYNC_SIZE];
   private Codec codec;
+  private SchemaMetrics metrics;
 
   /** Construct a reader for an input stream.  For file-based input, use
    * {@link DataFileReader}.  This will buffer, wrapping with a
@@ -124,6 +127,7 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
     header.metaKeyList = Collections.unmodifiableList(header.metaKeyList);
     header.schema = Schema.parse(getMetaString(DataFileConstants.SCHEMA),false);
     this.codec = resolveCodec();
+    this.metrics = AvroMetrics.forSchema(header.schema);
     reader.setSchema(header.schema);
   }
 
@@ -131,6 +135,7 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
   void initialize(InputStream in, Header header) throws IOException {
     this.header = header;
     this.codec = resolveCodec();
+    this.metrics = AvroMetrics.forSchema(header.schema);
     reader.setSchema(header.schema);
   }
 
@@ -193,7 +198,15 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
         }
         if (hasNextBlock()) {
           block = nextRawBlock(block);
-          block.decompressUsing(codec);
+          if (metrics != null) {
+            long compressed = block.getBlockSize();
+            long start = System.nanoTime();
+            block.decompressUsing(codec);
+            metrics.blockRead(codec.getName(), block.getNumEntries(),
+                compressed, block.getBlockSize(), System.nanoTime() - start);
+          } else {
+            block.decompressUsing(codec);
+          }
           blockBuffer = block.getAsByteBuffer();
           datumIn = DecoderFactory.get().binaryDecoder(
               blockBuffer.array(), blockBuffer.arrayOffset() +
@@ -40,6 +40,8 @@ import org.apache.avro.generic.GenericDatumReader;
 import org.apache.avro.io.BinaryEncoder;
 import org.apache.avro.io.DatumWriter;
 import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.metrics.AvroMetrics;
+import org.apache.avro.metrics.SchemaMetrics;
 import org.apache.commons.compress.utils.IOUtils;
 
 /** Stores in a file a sequence of data conforming to a schema.  The schema is
@@ -71,6 +73,7 @@ public class DataFileWriter<D> implements Closeable, Flushable {
 
   private boolean isOpen;
   private Codec codec;
+  private SchemaMetrics metrics;
 
   private boolean flushOnEveryBlock = true;
 
@@ -241,6 +244,7 @@ public class DataFileWriter<D> implements Closeable, Flushable {
     EncoderFactory efactory = new EncoderFactory();
     this.vout = efactory.binaryEncoder(out, null);
     dout.setSchema(schema);
+    this.metrics = AvroMetrics.forSchema(schema);
     buffer = new NonCopyingByteArrayOutputStream(
         Math.min((int)(syncInterval * 1.25), Integer.MAX_VALUE/2 -1));
     this.bufOut = efactory.binaryEncoder(buffer, null);
@@ -399,7 +403,15 @@ public class DataFileWriter<D> implements Closeable, Flushable {
         ByteBuffer uncompressed = buffer.getByteArrayAsByteBuffer();
         DataBlock block = new DataBlock(uncompressed, blockCount);
         block.setFlushOnWrite(flushOnEveryBlock);
-        block.compressUsing(codec);
+        if (metrics != null) {
+          long uncompressedSize = block.getBlockSize();
+          long start = System.nanoTime();
+          block.compressUsing(codec);
+          metrics.blockWritten(codec.getName(), blockCount, uncompressedSize,
+              block.getBlockSize(), System.nanoTime() - start);
+        } else {
+          block.compressUsing(codec);
+        }
         block.writeBlockTo(vout, sync);
       } finally {
         buffer.reset();
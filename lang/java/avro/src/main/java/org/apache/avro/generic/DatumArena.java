@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.generic;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.avro.io.DatumReader;
+import org.apache.avro.io.Decoder;
+
+/**
+ * Recycles decoded datums across batches.
+ * <p>
+ * Each datum read through an arena is decoded into the datum that occupied
+ * the same position in the previous batch, using the reuse support of
+ * {@link DatumReader#read(Object, Decoder)}. With {@link GenericDatumReader}
+ * and its subclasses this reuses nested records, the backing arrays and
+ * elements of {@link GenericData.Array}, map values with matching keys,
+ * {@link org.apache.avro.util.Utf8} strings and byte buffers, so decoding
+ * batches of similarly shaped datums allocates very little once the arena
+ * has warmed up.
+ * <p>
+ * Datums returned by an arena remain valid until {@link #release()} is
+ * called, after which they are overwritten by the next batch. Callers must
+ * not keep references to them past that point.
+ * <p>
+ * This class is not thread-safe.
+ *
+ * @param <D> a datum class
+ */
+public class DatumArena<D> {
+
+  private final List<D> datums = new ArrayList<>();
+  private int size = 0;
+
+  /**
+   * Reads the next datum of the current batch.
+   *
+   * @param reader a {@link DatumReader} for the datum
+   * @param in a {@link Decoder} positioned at the datum
+   * @return the decoded datum, which may be a recycled instance
+   * @throws IOException
+   */
+  public D read(DatumReader<D> reader, Decoder in) throws IOException {
+    D reuse = size < datums.size() ? datums.get(size) : null;
+    D datum = reader.read(reuse, in);
+    if (size < datums.size()) {
+      datums.set(size, datum);
+    } else {
+      datums.add(datum);
+    }
+    size += 1;
+    return datum;
+  }
+
+  /**
+   * Reads {@code count} datums into the current batch.
+   *
+   * @param reader a {@link DatumReader} for the datums
+   * @param in a {@link Decoder} positioned at the first datum
+   * @param count the number of datums to read
+   * @return the datums read by this call, in order
+   * @throws IOException
+   */
+  public List<D> read(DatumReader<D> reader, Decoder in, int count)
+      throws IOException {
+    int start = size;
+    for (int i = 0; i < count; i += 1) {
+      read(reader, in);
+    }
+    return Collections.unmodifiableList(datums.subList(start, size));
+  }
+
+  /**
+   * Returns the datums in the current batch, in the order they were read.
+   */
+  public List<D> getBatch() {
+    return Collections.unmodifiableList(datums.subList(0, size));
+  }
+
+  /**
+   * Returns the number of datums in the current batch.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Releases the current batch. The datums in the batch will be recycled by
+   * the following reads and must no longer be used.
+   */
+  public void release() {
+    this.size = 0;
+  }
+
+  /**
+   * Releases the current batch and drops all recycled datums.
+   */
+  public void clear() {
+    datums.clear();
+    this.size = 0;
+  }
+}
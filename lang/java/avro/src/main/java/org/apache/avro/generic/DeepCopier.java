@@ -0,0 +1,360 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.generic;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Conversion;
+import org.apache.avro.Conversions;
+import org.apache.avro.LogicalType;
+import org.apache.avro.Schema;
+import org.apache.avro.Schema.Field;
+import org.apache.avro.util.Utf8;
+
+/**
+ * Makes deep copies of values of a single schema.
+ *
+ * <p>The schema is walked once, when the copier is built, into a tree of
+ * copiers specialized for each type, so copying a value does no per-value
+ * dispatch on the schema type. Arrays and maps are pre-sized to the size of
+ * the copied container.
+ *
+ * <p>Results are the same as those of {@link GenericData#deepCopy(Schema,
+ * Object)}, unless the copier shares immutable leaves: then strings and enum
+ * symbols of the original are referenced by the copy instead of being copied.
+ * Mutable strings ({@link Utf8}) shared this way must not be modified in place
+ * afterwards, or the change is visible through both values.
+ *
+ * <p>Instances are thread-safe. Obtain them from
+ * {@link GenericData#getDeepCopier(Schema, boolean)}, which caches them while
+ * they are referenced.
+ */
+public final class DeepCopier<T> {
+  private final Schema schema;
+  private final Copier root;
+
+  DeepCopier(GenericData data, Schema schema, boolean shareImmutableLeaves) {
+    this.schema = schema;
+    this.root = new Compiler(data, shareImmutableLeaves).compile(schema);
+  }
+
+  /** Returns the schema of the values this copies. */
+  public Schema getSchema() {
+    return schema;
+  }
+
+  /**
+   * Makes a deep copy of a value.
+   * @param value the value to copy, may be null.
+   * @return a deep copy of the given value.
+   */
+  @SuppressWarnings("unchecked")
+  public T copy(T value) {
+    return (T) root.copy(value);
+  }
+
+  /** Copies values of one schema. */
+  private abstract static class Copier {
+    final Object copy(Object value) {
+      return value == null ? null : copyNonNull(value);
+    }
+
+    abstract Object copyNonNull(Object value);
+  }
+
+  /** Builds the copier tree of a schema. */
+  private static final class Compiler {
+    private final GenericData data;
+    private final boolean share;
+    private final Map<Schema, RecordCopier> records = new IdentityHashMap<>();
+
+    Compiler(GenericData data, boolean share) {
+      this.data = data;
+      this.share = share;
+    }
+
+    Copier compile(Schema schema) {
+      Copier raw = compileRaw(schema);
+      LogicalType logicalType = schema.getLogicalType();
+      return logicalType == null
+          ? raw : new LogicalCopier(data, schema, logicalType, raw);
+    }
+
+    private Copier compileRaw(Schema schema) {
+      switch (schema.getType()) {
+      case NULL:
+        return NULL;
+      case BOOLEAN:
+      case INT:
+      case LONG:
+      case FLOAT:
+      case DOUBLE:
+        return IMMUTABLE;
+      case STRING:
+        return share ? IMMUTABLE : STRING;
+      case BYTES:
+        return BYTES;
+      case ENUM:
+        return share ? IMMUTABLE : new EnumCopier(data, schema);
+      case FIXED:
+        return new FixedCopier(data, schema);
+      case ARRAY:
+        return new ArrayCopier(schema, compile(schema.getElementType()));
+      case MAP:
+        return new MapCopier(share ? IMMUTABLE : STRING,
+            compile(schema.getValueType()));
+      case UNION:
+        List<Schema> types = schema.getTypes();
+        Copier[] branches = new Copier[types.size()];
+        for (int i = 0; i < branches.length; i++)
+          branches[i] = compile(types.get(i));
+        return new UnionCopier(data, schema, branches);
+      case RECORD:
+        RecordCopier record = records.get(schema);
+        if (record == null) {
+          // register before compiling fields, so recursive references resolve
+          record = new RecordCopier(data, schema);
+          records.put(schema, record);
+          List<Field> fields = schema.getFields();
+          Copier[] copiers = new Copier[fields.size()];
+          for (Field f : fields)
+            copiers[f.pos()] = compile(f.schema());
+          record.fieldCopiers = copiers;
+        }
+        return record;
+      default:
+        throw new AvroRuntimeException("Unknown type: " + schema);
+      }
+    }
+  }
+
+  private static final Copier NULL = new Copier() {
+    @Override
+    Object copyNonNull(Object value) {
+      return null;
+    }
+  };
+
+  private static final Copier IMMUTABLE = new Copier() {
+    @Override
+    Object copyNonNull(Object value) {
+      return value;
+    }
+  };
+
+  private static final Copier STRING = new Copier() {
+    @Override
+    Object copyNonNull(Object value) {
+      if (value instanceof String)
+        return value;
+      if (value instanceof Utf8)
+        return new Utf8((Utf8) value);
+      return new Utf8(value.toString());
+    }
+  };
+
+  private static final Copier BYTES = new Copier() {
+    @Override
+    Object copyNonNull(Object value) {
+      ByteBuffer buffer = (ByteBuffer) value;
+      int start = buffer.position();
+      int length = buffer.limit() - start;
+      byte[] bytes = new byte[length];
+      buffer.get(bytes, 0, length);
+      buffer.position(start);
+      return ByteBuffer.wrap(bytes, 0, length);
+    }
+  };
+
+  private static final class EnumCopier extends Copier {
+    private final GenericData data;
+    private final Schema schema;
+
+    EnumCopier(GenericData data, Schema schema) {
+      this.data = data;
+      this.schema = schema;
+    }
+
+    @Override
+    Object copyNonNull(Object value) {
+      return data.createEnum(value.toString(), schema);
+    }
+  }
+
+  private static final class FixedCopier extends Copier {
+    private final GenericData data;
+    private final Schema schema;
+
+    FixedCopier(GenericData data, Schema schema) {
+      this.data = data;
+      this.schema = schema;
+    }
+
+    @Override
+    Object copyNonNull(Object value) {
+      return data.createFixed(null, ((GenericFixed) value).bytes(), schema);
+    }
+  }
+
+  private static final class ArrayCopier extends Copier {
+    private final Schema schema;
+    private final Copier elementCopier;
+
+    ArrayCopier(Schema schema, Copier elementCopier) {
+      this.schema = schema;
+      this.elementCopier = elementCopier;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    Object copyNonNull(Object value) {
+      List<Object> array = (List<Object>) value;
+      List<Object> copy = new GenericData.Array<>(array.size(), schema);
+      if (elementCopier == IMMUTABLE) {
+        copy.addAll(array);
+      } else {
+        for (Object element : array)
+          copy.add(elementCopier.copy(element));
+      }
+      return copy;
+    }
+  }
+
+  private static final class MapCopier extends Copier {
+    private final Copier keyCopier;
+    private final Copier valueCopier;
+
+    MapCopier(Copier keyCopier, Copier valueCopier) {
+      this.keyCopier = keyCopier;
+      this.valueCopier = valueCopier;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    Object copyNonNull(Object value) {
+      Map<Object, Object> map = (Map<Object, Object>) value;
+      // sized so that copying does not trigger a rehash
+      Map<Object, Object> copy =
+          new HashMap<>((int) (map.size() / 0.75f) + 1);
+      for (Map.Entry<Object, Object> entry : map.entrySet())
+        copy.put(keyCopier.copy(entry.getKey()),
+            valueCopier.copy(entry.getValue()));
+      return copy;
+    }
+  }
+
+  private static final class UnionCopier extends Copier {
+    private final GenericData data;
+    private final Schema schema;
+    private final Copier[] branches;
+
+    UnionCopier(GenericData data, Schema schema, Copier[] branches) {
+      this.data = data;
+      this.schema = schema;
+      this.branches = branches;
+    }
+
+    @Override
+    Object copyNonNull(Object value) {
+      return branches[data.resolveUnion(schema, value)].copy(value);
+    }
+  }
+
+  private static final class RecordCopier extends Copier {
+    private final GenericData data;
+    private final Schema schema;
+    private final Field[] fields;
+    private Copier[] fieldCopiers;
+
+    RecordCopier(GenericData data, Schema schema) {
+      this.data = data;
+      this.schema = schema;
+      this.fields = schema.getFields().toArray(new Field[0]);
+    }
+
+    @Override
+    Object copyNonNull(Object value) {
+      Object oldState = data.getRecordState(value, schema);
+      Object newRecord = data.newRecord(null, schema);
+      Object newState = data.getRecordState(newRecord, schema);
+      for (int i = 0; i < fields.length; i++) {
+        Field f = fields[i];
+        int pos = f.pos();
+        String name = f.name();
+        Object newValue = fieldCopiers[pos].copy(
+            data.getField(value, name, pos, oldState));
+        data.setField(newRecord, name, pos, newValue, newState);
+      }
+      return newRecord;
+    }
+  }
+
+  /**
+   * Converts logical values to their raw type, copies them, and converts them
+   * back. The conversion of the last seen class is remembered.
+   */
+  private static final class LogicalCopier extends Copier {
+    private final GenericData data;
+    private final Schema schema;
+    private final LogicalType logicalType;
+    private final Copier raw;
+    private volatile ConversionForClass last;
+
+    LogicalCopier(GenericData data, Schema schema, LogicalType logicalType,
+                  Copier raw) {
+      this.data = data;
+      this.schema = schema;
+      this.logicalType = logicalType;
+      this.raw = raw;
+    }
+
+    @Override
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    Object copyNonNull(Object value) {
+      Class<?> c = value.getClass();
+      ConversionForClass cached = last;
+      if (cached == null || cached.datumClass != c) {
+        cached = new ConversionForClass(c,
+            data.getConversionByClass(c, logicalType));
+        last = cached;
+      }
+      Conversion conversion = cached.conversion;
+      if (conversion == null)            // no conversion defined -- raw copy
+        return raw.copy(value);
+      Object rawValue = Conversions.convertToRawType(value, schema, logicalType,
+          conversion);
+      return Conversions.convertToLogicalType(raw.copy(rawValue), schema,
+          logicalType, conversion);
+    }
+  }
+
+  private static final class ConversionForClass {
+    private final Class<?> datumClass;
+    private final Conversion<?> conversion;
+
+    ConversionForClass(Class<?> datumClass, Conversion<?> conversion) {
+      this.datumClass = datumClass;
+      this.conversion = conversion;
+    }
+  }
+}
@@ -24,14 +24,12 @@ import java.nio.charset.StandardCharsets;
 import java.util.AbstractList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.WeakHashMap;
 
 import org.apache.avro.AvroMissingFieldException;
 import org.apache.avro.AvroRuntimeException;
@@ -52,6 +50,7 @@ import org.apache.avro.io.EncoderFactory;
 import org.apache.avro.io.DatumReader;
 import org.apache.avro.io.DatumWriter;
 import org.apache.avro.util.Utf8;
+import org.apache.avro.util.WeakIdentityHashMap;
 import org.apache.avro.util.internal.Accessor;
 
 import com.fasterxml.jackson.databind.JsonNode;
@@ -70,6 +69,11 @@ public class GenericData {
   public static final String STRING_PROP = "avro.java.string";
   protected static final String STRING_TYPE_STRING = "String";
 
+  /** Used to enable de-duplication of decoded values for a string schema. The
+   * value is the maximum number of distinct values to cache.
+   * @see #setStringDedup(Schema, int) */
+  public static final String STRING_DEDUP_PROP = "avro.java.string.dedup";
+
   private final ClassLoader classLoader;
 
   /** Set the Java type to be used when reading this schema.  Meaningful only
@@ -81,6 +85,14 @@ public class GenericData {
       s.addProp(GenericData.STRING_PROP, GenericData.STRING_TYPE_STRING);
   }
 
+  /** Cache up to {@code maxEntries} canonical values when reading this string
+   * schema, so that repeated values share an instance.  Meaningful only for
+   * low-cardinality string schemas; see
+   * {@link org.apache.avro.util.StringDedupCache}. */
+  public static void setStringDedup(Schema s, int maxEntries) {
+    s.addProp(GenericData.STRING_DEDUP_PROP, maxEntries);
+  }
+
   /** Return the singleton instance. */
   public static GenericData get() { return INSTANCE; }
 
@@ -1002,7 +1014,7 @@ public class GenericData {
   }
 
   private final Map<Field, Object> defaultValueCache
-    = Collections.synchronizedMap(new WeakHashMap<>());
+    = new WeakIdentityHashMap<>();
 
   /**
    * Gets the default value of the given field, if any.
@@ -1042,7 +1054,8 @@ public class GenericData {
         // this MAY result in two threads creating the same defaultValue
         // and calling put.  The last thread will win.  However,
         // that's not an issue.
-        defaultValueCache.put(field, defaultValue);
+        if (defaultValue != null)
+          defaultValueCache.put(field, defaultValue);
       } catch (IOException e) {
         throw new AvroRuntimeException(e);
       }
@@ -1052,6 +1065,34 @@ public class GenericData {
 
   private static final Schema STRINGS = Schema.create(Type.STRING);
 
+  // Copiers reference their schema, so are kept on the schema itself: held
+  // in a map here, they would keep their schema from ever being released.
+  private final Object deepCopiersKey = new Object();
+  private final Object sharingDeepCopiersKey = new Object();
+
+  /**
+   * Returns a deep copier compiled for the given schema.  Copiers are built
+   * once per schema and kept as long as the schema is, making them cheaper
+   * than {@link #deepCopy(Schema, Object)} when many values of a schema are
+   * copied.
+   * @param schema the schema of the values to copy.
+   * @param shareImmutableLeaves whether strings and enum symbols are shared
+   * with the original value instead of being copied.
+   * @return a thread-safe copier for values of the given schema.
+   * @see DeepCopier
+   */
+  @SuppressWarnings("unchecked")
+  public <T> DeepCopier<T> getDeepCopier(Schema schema,
+                                         boolean shareImmutableLeaves) {
+    Object key = shareImmutableLeaves ? sharingDeepCopiersKey : deepCopiersKey;
+    DeepCopier<?> copier = (DeepCopier<?>) Accessor.getDerived(schema, key);
+    if (copier == null) {
+      copier = new DeepCopier<>(this, schema, shareImmutableLeaves);
+      Accessor.putDerived(schema, key, copier);
+    }
+    return (DeepCopier<T>) copier;
+  }
+
   /**
    * Makes a deep copy of a value given its schema.
    * <P>Logical types are converted to raw types, copied, then converted back.
@@ -18,10 +18,13 @@
 package org.apache.avro.generic;
 
 import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.IdentityHashMap;
 import java.util.Map;
 import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
 import java.nio.ByteBuffer;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
@@ -36,6 +39,9 @@ import org.apache.avro.io.DatumReader;
 import org.apache.avro.io.Decoder;
 import org.apache.avro.io.DecoderFactory;
 import org.apache.avro.io.ResolvingDecoder;
+import org.apache.avro.metrics.AvroMetrics;
+import org.apache.avro.metrics.SchemaMetrics;
+import org.apache.avro.util.StringDedupCache;
 import org.apache.avro.util.Utf8;
 import org.apache.avro.util.WeakIdentityHashMap;
 
@@ -44,6 +50,7 @@ public class GenericDatumReader<D> implements DatumReader<D> {
   private final GenericData data;
   private Schema actual;
   private Schema expected;
+  private SchemaMetrics metrics;
 
   private ResolvingDecoder creatorResolver = null;
   private final Thread creator;
@@ -66,6 +73,7 @@ public class GenericDatumReader<D> implements DatumReader<D> {
     this(data);
     this.actual = writer;
     this.expected = reader;
+    this.metrics = AvroMetrics.forSchema(writer);
   }
 
   protected GenericDatumReader(GenericData data) {
@@ -85,6 +93,7 @@ public class GenericDatumReader<D> implements DatumReader<D> {
     if (expected == null) {
       expected = actual;
     }
+    this.metrics = AvroMetrics.forSchema(writer);
     creatorResolver = null;
   }
 
@@ -125,6 +134,9 @@ public class GenericDatumReader<D> implements DatumReader<D> {
       RESOLVER_CACHE.get().put(actual, cache);
     }
     resolver = cache.get(expected);
+    if (metrics != null) {
+      metrics.resolverLookup(resolver != null);
+    }
     if (resolver == null) {
       resolver = DecoderFactory.get().resolvingDecoder(
           Schema.applyAliases(actual, expected), expected, null);
@@ -145,6 +157,9 @@ public class GenericDatumReader<D> implements DatumReader<D> {
     resolver.configure(in);
     D result = (D) read(reuse, expected, resolver);
     resolver.drain();
+    if (metrics != null) {
+      metrics.recordRead();
+    }
     return result;
   }
 
@@ -309,7 +324,8 @@ public class GenericDatumReader<D> implements DatumReader<D> {
     long l = in.readMapStart();
     LogicalType logicalType = eValue.getLogicalType();
     Conversion<?> conversion = getData().getConversionFor(logicalType);
-    Object map = newMap(old, (int) l);
+    Map<Object, Object> previous = reusableMapValues(old, eValue);
+    Object map = newMap(previous != null ? takeSpareMap() : old, (int) l);
     if (l > 0) {
       do {
         if (logicalType != null && conversion != null) {
@@ -319,15 +335,54 @@ public class GenericDatumReader<D> implements DatumReader<D> {
           }
         } else {
           for (int i = 0; i < l; i++) {
-            addToMap(map, readMapKey(null, expected, in),
-                readWithoutConversion(null, eValue, in));
+            Object key = readMapKey(null, expected, in);
+            addToMap(map, key, readWithoutConversion(
+                previous != null ? previous.get(key) : null, eValue, in));
           }
         }
       } while ((l = in.mapNext()) > 0);
     }
+    if (previous != null)
+      giveSpareMap(previous);
     return map;
   }
 
+  /** Returns a reused map whose value schema is a record, array or map, so
+   * that values with the same key can be reused, or null if there is nothing
+   * worth reusing.  Such a map is not cleared and refilled: the new entries
+   * are read into a spare map, and the old one becomes a spare once read. */
+  @SuppressWarnings("unchecked")
+  private static Map<Object, Object> reusableMapValues(Object old,
+                                                       Schema valueSchema) {
+    if (old == null || old.getClass() != HashMap.class
+        || ((Map) old).isEmpty())
+      return null;
+    switch (valueSchema.getType()) {
+    case RECORD: case ARRAY: case MAP:
+      return (Map<Object, Object>) old;
+    default:
+      return null;
+    }
+  }
+
+  /* Maps are swapped with spares rather than copied, so each thread keeps a
+   * few: one per level of maps nested within maps. */
+  private static final int MAX_SPARE_MAPS = 8;
+  private static final ThreadLocal<ArrayDeque<Map<Object, Object>>>
+    SPARE_MAPS = ThreadLocal.withInitial(ArrayDeque::new);
+
+  private static Map<Object, Object> takeSpareMap() {
+    Map<Object, Object> spare = SPARE_MAPS.get().poll();
+    return spare != null ? spare : new HashMap<>();
+  }
+
+  private static void giveSpareMap(Map<Object, Object> map) {
+    map.clear();
+    ArrayDeque<Map<Object, Object>> spares = SPARE_MAPS.get();
+    if (spares.size() < MAX_SPARE_MAPS)
+      spares.push(map);
+  }
+
   /** Called by the default implementation of {@link #readMap} to read a
    * key value.  The default implementation returns delegates to
    * {@link #readString(Object, org.apache.avro.io.Decoder)}.*/
@@ -419,7 +474,10 @@ public class GenericDatumReader<D> implements DatumReader<D> {
    * #readString(Object,Decoder)}.*/
   protected Object readString(Object old, Schema expected,
                               Decoder in) throws IOException {
-    Class stringClass = getStringClass(expected);
+    StringReading reading = getStringReading(expected);
+    if (reading.dedup != null)
+      return in.readCachedString(reading.dedup);
+    Class stringClass = reading.stringClass;
     if (stringClass == String.class)
       return in.readString();
     if (stringClass == CharSequence.class)
@@ -456,20 +514,65 @@ public class GenericDatumReader<D> implements DatumReader<D> {
     }
   }
 
-  private Map<Schema,Class> stringClassCache =
-    new IdentityHashMap<>();
+  /* A reader may be shared by threads, so this cache is never updated in
+   * place: a new schema replaces the map with a copy that includes it.  Two
+   * threads adding schemas at once may lose one, which is just found again
+   * on its next read. */
+  private volatile Map<Schema,StringReading> stringCache =
+    Collections.emptyMap();
+
+  /** How values of a string schema are read: the class that represents
+   * them, and the cache that de-duplicates them, if any.  Both are found
+   * with one lookup, so reading strings costs no more when no schema is
+   * de-duplicated. */
+  private static final class StringReading {
+    final Class stringClass;
+    final StringDedupCache dedup;
+
+    StringReading(Class stringClass, StringDedupCache dedup) {
+      this.stringClass = stringClass;
+      this.dedup = dedup;
+    }
+  }
 
-  private Class getStringClass(Schema s) {
-    Class c = stringClassCache.get(s);
-    if (c == null) {
-      c = findStringClass(s);
-      stringClassCache.put(s, c);
+  private StringReading getStringReading(Schema s) {
+    Map<Schema,StringReading> cache = stringCache;
+    StringReading reading = cache.get(s);
+    if (reading == null) {
+      Class c = findStringClass(s);
+      reading = new StringReading(c, findStringDedupCache(s, c));
+      Map<Schema,StringReading> copy = new IdentityHashMap<>(cache);
+      copy.put(s, reading);
+      stringCache = copy;
+    }
+    return reading;
+  }
+
+  /** Creates the cache used to de-duplicate values of a string schema, or
+   * returns null if values should not be de-duplicated.  By default uses
+   * {@link GenericData#STRING_DEDUP_PROP} to determine the size of the cache.
+   * Only {@link String} and {@link Utf8} values are de-duplicated.
+   */
+  protected StringDedupCache findStringDedupCache(Schema schema,
+                                                  Class stringClass) {
+    Object size = schema.getObjectProp(GenericData.STRING_DEDUP_PROP);
+    if (size == null
+        || (stringClass != String.class && stringClass != CharSequence.class))
+      return null;
+    int maxEntries;
+    try {
+      maxEntries = size instanceof Number
+        ? ((Number) size).intValue()
+        : Integer.parseInt(size.toString());
+    } catch (NumberFormatException e) {
+      throw new AvroRuntimeException("Invalid " + GenericData.STRING_DEDUP_PROP
+                                     + " value: " + size, e);
     }
-    return c;
+    return new StringDedupCache(maxEntries, stringClass == String.class);
   }
 
   private final Map<Class,Constructor> stringCtorCache =
-    new HashMap<>();
+    new ConcurrentHashMap<>();
 
   @SuppressWarnings("unchecked")
   protected Object newInstanceFromString(Class c, String s) {
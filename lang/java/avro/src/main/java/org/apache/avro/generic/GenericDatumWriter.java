@@ -33,11 +33,14 @@ import org.apache.avro.Schema;
 import org.apache.avro.Schema.Field;
 import org.apache.avro.io.DatumWriter;
 import org.apache.avro.io.Encoder;
+import org.apache.avro.metrics.AvroMetrics;
+import org.apache.avro.metrics.SchemaMetrics;
 
 /** {@link DatumWriter} for generic Java objects. */
 public class GenericDatumWriter<D> implements DatumWriter<D> {
   private final GenericData data;
   private Schema root;
+  private SchemaMetrics metrics;
 
   public GenericDatumWriter() { this(GenericData.get()); }
 
@@ -56,10 +59,16 @@ public class GenericDatumWriter<D> implements DatumWriter<D> {
   /** Return the {@link GenericData} implementation. */
   public GenericData getData() { return data; }
 
-  public void setSchema(Schema root) { this.root = root; }
+  public void setSchema(Schema root) {
+    this.root = root;
+    this.metrics = AvroMetrics.forSchema(root);
+  }
 
   public void write(D datum, Encoder out) throws IOException {
     write(root, datum, out);
+    if (metrics != null) {
+      metrics.recordWritten();
+    }
   }
 
   /** Called to write data.*/
@@ -24,6 +24,7 @@ import java.nio.ByteBuffer;
 
 import org.apache.avro.AvroRuntimeException;
 import org.apache.avro.InvalidNumberEncodingException;
+import org.apache.avro.util.StringDedupCache;
 import org.apache.avro.util.Utf8;
 
 /** An {@link Decoder} for binary-format data.
@@ -135,6 +136,14 @@ public class BinaryDecoder extends Decoder {
 
   @Override
   public int readInt() throws IOException {
+    if (pos < limit) {
+      int b = buf[pos];
+      if (b >= 0) {
+        // single-byte values are the common case; skip the bounds check
+        pos++;
+        return (b >>> 1) ^ -(b & 1);
+      }
+    }
     ensureBounds(5); // won't throw index out of bounds
     int len = 1;
     int b = buf[pos] & 0xff;
@@ -167,6 +176,14 @@ public class BinaryDecoder extends Decoder {
 
   @Override
   public long readLong() throws IOException {
+    if (pos < limit) {
+      int b = buf[pos];
+      if (b >= 0) {
+        // single-byte values are the common case; skip the bounds check
+        pos++;
+        return (b >>> 1) ^ -(b & 1);
+      }
+    }
     ensureBounds(10);
     int b = buf[pos++] & 0xff;
     int n = b & 0x7f;
@@ -288,6 +305,27 @@ public class BinaryDecoder extends Decoder {
     return readString(scratchUtf8).toString();
   }
 
+  @Override
+  public Object readCachedString(StringDedupCache cache) throws IOException {
+    long length = readLong();
+    if (length > MAX_ARRAY_SIZE) {
+      throw new UnsupportedOperationException("Cannot read strings longer than " + MAX_ARRAY_SIZE + " bytes");
+    }
+    if (length < 0L) {
+      throw new AvroRuntimeException("Malformed data. Length is negative: " + length);
+    }
+    int len = (int) length;
+    if (buf != null && len <= limit - pos) {
+      // look the value up in place, without copying it out of the buffer
+      Object result = cache.get(buf, pos, len);
+      pos += len;
+      return result;
+    }
+    scratchUtf8.setByteLength(len);
+    doReadBytes(scratchUtf8.getBytes(), 0, len);
+    return cache.get(scratchUtf8.getBytes(), 0, len);
+  }
+
   @Override
   public void skipString() throws IOException {
     doSkipBytes(readInt());
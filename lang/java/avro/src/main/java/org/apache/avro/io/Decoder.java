@@ -20,6 +20,7 @@ package org.apache.avro.io;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 
+import org.apache.avro.util.StringDedupCache;
 import org.apache.avro.util.Utf8;
 
 /**
@@ -103,6 +104,21 @@ public abstract class Decoder {
    */
   public abstract String readString() throws IOException;
 
+  /**
+   * Reads a char-string written by {@link Encoder#writeString} and returns
+   * the canonical instance for its value from a {@link StringDedupCache}.
+   * <p>
+   * The default implementation reads the value into a new {@link Utf8};
+   * decoders that buffer their input override this to look the value up
+   * without copying it.
+   * @throws AvroTypeException If this is a stateful reader and
+   * char-string is not the type of the next value to be read
+   */
+  public Object readCachedString(StringDedupCache cache) throws IOException {
+    Utf8 value = readString(null);
+    return cache.get(value.getBytes(), 0, value.getByteLength());
+  }
+
   /**
    * Discards a char-string written by {@link Encoder#writeString}.
    *  @throws AvroTypeException If this is a stateful reader and
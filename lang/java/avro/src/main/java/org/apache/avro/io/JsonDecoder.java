@@ -20,8 +20,6 @@ package org.apache.avro.io;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.math.BigDecimal;
-import java.math.BigInteger;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -35,14 +33,11 @@ import org.apache.avro.io.parsing.JsonGrammarGenerator;
 import org.apache.avro.io.parsing.Parser;
 import org.apache.avro.io.parsing.Symbol;
 import org.apache.avro.util.Utf8;
-import com.fasterxml.jackson.core.Base64Variant;
+import org.apache.avro.util.WeakIdentityHashMap;
 import com.fasterxml.jackson.core.JsonFactory;
-import com.fasterxml.jackson.core.JsonLocation;
 import com.fasterxml.jackson.core.JsonParser;
-import com.fasterxml.jackson.core.JsonStreamContext;
 import com.fasterxml.jackson.core.JsonToken;
-import com.fasterxml.jackson.core.ObjectCodec;
-import com.fasterxml.jackson.core.Version;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 
 /** A {@link Decoder} for Avro's JSON data encoding.
  * </p>
@@ -56,9 +51,15 @@ public class JsonDecoder extends ParsingDecoder
   private static JsonFactory jsonFactory = new JsonFactory();
   Stack<ReorderBuffer> reorderBuffers = new Stack<>();
   ReorderBuffer currentReorderBuffer;
+  /** Reorder buffers of completed records, reused by later records. */
+  private final List<ReorderBuffer> freeReorderBuffers = new ArrayList<>();
+
+  /** Grammars by schema; they are immutable, so decoders can share them. */
+  private static final Map<Schema, Symbol> SYMBOL_CACHE =
+    new WeakIdentityHashMap<>();
 
   private static class ReorderBuffer {
-    public Map<String, List<JsonElement>> savedFields = new HashMap<>();
+    public Map<String, TokenBuffer> savedFields = new HashMap<>();
     public JsonParser origParser = null;
   }
 
@@ -82,11 +83,16 @@ public class JsonDecoder extends ParsingDecoder
     this(getSymbol(schema), in);
   }
 
-  private static Symbol getSymbol(Schema schema) {
+  static Symbol getSymbol(Schema schema) {
     if (null == schema) {
       throw new NullPointerException("Schema cannot be null!");
     }
-    return new JsonGrammarGenerator().generate(schema);
+    Symbol symbol = SYMBOL_CACHE.get(schema);
+    if (symbol == null) {
+      symbol = new JsonGrammarGenerator().generate(schema);
+      SYMBOL_CACHE.put(schema, symbol);
+    }
+    return symbol;
   }
 
   /**
@@ -132,7 +138,7 @@ public class JsonDecoder extends ParsingDecoder
     parser.reset();
     reorderBuffers.clear();
     currentReorderBuffer = null;
-    this.in = new JsonFactory().createJsonParser(in);
+    this.in = jsonFactory.createJsonParser(in);
     this.in.nextToken();
     return this;
   }
@@ -458,11 +464,11 @@ public class JsonDecoder extends ParsingDecoder
         Symbol.FieldAdjustAction fa = (Symbol.FieldAdjustAction) top;
         String name = fa.fname;
       if (currentReorderBuffer != null) {
-        List<JsonElement> node = currentReorderBuffer.savedFields.get(name);
+        TokenBuffer node = currentReorderBuffer.savedFields.remove(name);
         if (node != null) {
-          currentReorderBuffer.savedFields.remove(name);
           currentReorderBuffer.origParser = in;
-          in = makeParser(node);
+          in = node.asParser();
+          in.nextToken();
           return null;
         }
       }
@@ -474,9 +480,9 @@ public class JsonDecoder extends ParsingDecoder
             return null;
           } else {
             if (currentReorderBuffer == null) {
-              currentReorderBuffer = new ReorderBuffer();
+              currentReorderBuffer = newReorderBuffer();
             }
-            currentReorderBuffer.savedFields.put(fn, getValueAsTree(in));
+            currentReorderBuffer.savedFields.put(fn, bufferValue(in));
           }
         } while (in.getCurrentToken() == JsonToken.FIELD_NAME);
         throw new AvroTypeException("Expected field name not found: " + fa.fname);
@@ -501,8 +507,11 @@ public class JsonDecoder extends ParsingDecoder
       }
 
       if (top == Symbol.RECORD_END) {
-        if (currentReorderBuffer != null && !currentReorderBuffer.savedFields.isEmpty()) {
-          throw error("Unknown fields: " + currentReorderBuffer.savedFields.keySet());
+        if (currentReorderBuffer != null) {
+          if (!currentReorderBuffer.savedFields.isEmpty()) {
+            throw error("Unknown fields: " + currentReorderBuffer.savedFields.keySet());
+          }
+          freeReorderBuffers.add(currentReorderBuffer);
         }
         currentReorderBuffer = reorderBuffers.pop();
       }
@@ -516,246 +525,20 @@ public class JsonDecoder extends ParsingDecoder
     return null;
   }
 
-  private static class JsonElement {
-    public final JsonToken token;
-    public final String value;
-    public JsonElement(JsonToken t, String value) {
-      this.token = t;
-      this.value = value;
-    }
-
-    public JsonElement(JsonToken t) {
-      this(t, null);
-    }
-  }
-
-  private static List<JsonElement> getValueAsTree(JsonParser in) throws IOException {
-    int level = 0;
-    List<JsonElement> result = new ArrayList<>();
-    do {
-      JsonToken t = in.getCurrentToken();
-      switch (t) {
-      case START_OBJECT:
-      case START_ARRAY:
-        level++;
-        result.add(new JsonElement(t));
-        break;
-      case END_OBJECT:
-      case END_ARRAY:
-        level--;
-        result.add(new JsonElement(t));
-        break;
-      case FIELD_NAME:
-      case VALUE_STRING:
-      case VALUE_NUMBER_INT:
-      case VALUE_NUMBER_FLOAT:
-      case VALUE_TRUE:
-      case VALUE_FALSE:
-      case VALUE_NULL:
-        result.add(new JsonElement(t, in.getText()));
-        break;
-      }
-      in.nextToken();
-    } while (level != 0);
-    result.add(new JsonElement(null));
-    return result;
+  private ReorderBuffer newReorderBuffer() {
+    int free = freeReorderBuffers.size();
+    return free == 0 ? new ReorderBuffer() : freeReorderBuffers.remove(free - 1);
   }
 
-  private JsonParser makeParser(final List<JsonElement> elements) throws IOException {
-    return new JsonParser() {
-      int pos = 0;
-
-      @Override
-      public ObjectCodec getCodec() {
-        throw new UnsupportedOperationException();
-      }
-
-      @Override
-      public void setCodec(ObjectCodec c) {
-        throw new UnsupportedOperationException();
-      }
-
-      @Override
-      public void close() throws IOException {
-        throw new UnsupportedOperationException();
-      }
-
-      @Override
-      public JsonToken nextToken() throws IOException {
-        pos++;
-        return elements.get(pos).token;
-      }
-
-      @Override
-      public JsonParser skipChildren() throws IOException {
-        JsonToken tkn = elements.get(pos).token;
-        int level = (tkn == JsonToken.START_ARRAY || tkn == JsonToken.END_ARRAY) ? 1 : 0;
-        while (level > 0) {
-          switch(elements.get(++pos).token) {
-          case START_ARRAY:
-          case START_OBJECT:
-            level++;
-            break;
-          case END_ARRAY:
-          case END_OBJECT:
-            level--;
-            break;
-          }
-        }
-        return this;
-      }
-
-      @Override
-      public boolean isClosed() {
-        throw new UnsupportedOperationException();
-      }
-
-      @Override
-      public String getCurrentName() throws IOException {
-        throw new UnsupportedOperationException();
-      }
-
-      @Override
-      public JsonStreamContext getParsingContext() {
-        throw new UnsupportedOperationException();
-      }
-
-      @Override
-      public JsonLocation getTokenLocation() {
-        throw new UnsupportedOperationException();
-      }
-
-      @Override
-      public JsonLocation getCurrentLocation() {
-        throw new UnsupportedOperationException();
-      }
-
-      @Override
-      public String getText() throws IOException {
-        return elements.get(pos).value;
-      }
-
-      @Override
-      public char[] getTextCharacters() throws IOException {
-        throw new UnsupportedOperationException();
-      }
-
-      @Override
-      public int getTextLength() throws IOException {
-        throw new UnsupportedOperationException();
-      }
-
-      @Override
-      public int getTextOffset() throws IOException {
-        throw new UnsupportedOperationException();
-      }
-
-      @Override
-      public Number getNumberValue() throws IOException {
-        throw new UnsupportedOperationException();
-      }
-
-      @Override
-      public NumberType getNumberType() throws IOException {
-        throw new UnsupportedOperationException();
-      }
-
-      @Override
-      public int getIntValue() throws IOException {
-        return Integer.parseInt(getText());
-      }
-
-      @Override
-      public long getLongValue() throws IOException {
-        return Long.parseLong(getText());
-      }
-
-      @Override
-      public BigInteger getBigIntegerValue() throws IOException {
-        throw new UnsupportedOperationException();
-      }
-
-      @Override
-      public float getFloatValue() throws IOException {
-        return Float.parseFloat(getText());
-      }
-
-      @Override
-      public double getDoubleValue() throws IOException {
-        return Double.parseDouble(getText());
-      }
-
-      @Override
-      public BigDecimal getDecimalValue() throws IOException {
-        throw new UnsupportedOperationException();
-      }
-
-      @Override
-      public byte[] getBinaryValue(Base64Variant b64variant)
-        throws IOException {
-        throw new UnsupportedOperationException();
-      }
-
-      @Override
-      public JsonToken getCurrentToken() {
-        return elements.get(pos).token;
-      }
-
-      @Override
-      public Version version() {
-        throw new UnsupportedOperationException();
-      }
-
-      @Override
-      public JsonToken nextValue() throws IOException {
-        throw new UnsupportedOperationException();
-      }
-
-      @Override
-      public int getCurrentTokenId() {
-        throw new UnsupportedOperationException();
-      }
-
-      @Override
-      public boolean hasCurrentToken() {
-        throw new UnsupportedOperationException();
-      }
-
-      @Override
-      public boolean hasTokenId(int id) {
-        throw new UnsupportedOperationException();
-      }
-
-      @Override
-      public boolean hasToken(JsonToken t) {
-        throw new UnsupportedOperationException();
-      }
-
-      @Override
-      public void clearCurrentToken() {
-        throw new UnsupportedOperationException();
-      }
-
-      @Override
-      public JsonToken getLastClearedToken() {
-        throw new UnsupportedOperationException();
-      }
-
-      @Override
-      public void overrideCurrentName(String name) {
-        throw new UnsupportedOperationException();
-      }
-
-      @Override
-      public boolean hasTextCharacters() {
-        throw new UnsupportedOperationException();
-      }
-
-      @Override
-      public String getValueAsString(String def) throws IOException {
-        throw new UnsupportedOperationException();
-      }
-    };
+  /**
+   * Saves the value at the current token, so that it can be replayed when its
+   * field is reached, and advances past it.
+   */
+  private static TokenBuffer bufferValue(JsonParser in) throws IOException {
+    TokenBuffer buffer = new TokenBuffer(in);
+    buffer.copyCurrentStructure(in);
+    in.nextToken();
+    return buffer;
   }
 
   private AvroTypeException error(String type) {
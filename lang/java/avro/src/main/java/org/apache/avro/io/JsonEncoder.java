@@ -24,15 +24,15 @@ import java.util.BitSet;
 
 import org.apache.avro.AvroTypeException;
 import org.apache.avro.Schema;
-import org.apache.avro.io.parsing.JsonGrammarGenerator;
 import org.apache.avro.io.parsing.Parser;
 import org.apache.avro.io.parsing.Symbol;
 import org.apache.avro.util.Utf8;
 import com.fasterxml.jackson.core.JsonEncoding;
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.core.json.UTF8JsonGenerator;
 import com.fasterxml.jackson.core.util.DefaultPrettyPrinter;
-import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
 
 /** An {@link Encoder} for Avro's JSON data encoding.
  * </p>
@@ -45,8 +45,13 @@ import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
  * */
 public class JsonEncoder extends ParsingEncoder implements Parser.ActionHandler {
   private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+  private static final JsonFactory FACTORY = new JsonFactory();
   final Parser parser;
   private JsonGenerator out;
+  /** Whether {@link #out} accepts UTF-8 encoded strings directly. */
+  private boolean utf8Output;
+  /** Reused to write bytes and fixed without an intermediate String. */
+  private char[] chars = new char[64];
   /**
    * Has anything been written into the collections?
    */
@@ -62,8 +67,7 @@ public class JsonEncoder extends ParsingEncoder implements Parser.ActionHandler
 
   JsonEncoder(Schema sc, JsonGenerator out) throws IOException {
     configure(out);
-    this.parser =
-      new Parser(new JsonGrammarGenerator().generate(sc), this);
+    this.parser = new Parser(JsonDecoder.getSymbol(sc), this);
   }
 
   @Override
@@ -80,8 +84,7 @@ public class JsonEncoder extends ParsingEncoder implements Parser.ActionHandler
       throws IOException {
     if (null == out)
       throw new NullPointerException("OutputStream cannot be null");
-    JsonGenerator g
-      = new JsonFactory().createJsonGenerator(out, JsonEncoding.UTF8);
+    JsonGenerator g = FACTORY.createGenerator(out, JsonEncoding.UTF8);
     if (pretty) {
       DefaultPrettyPrinter pp = new DefaultPrettyPrinter() {
         //@Override
@@ -93,9 +96,8 @@ public class JsonEncoder extends ParsingEncoder implements Parser.ActionHandler
       };
       g.setPrettyPrinter(pp);
     } else {
-      MinimalPrettyPrinter pp = new MinimalPrettyPrinter();
-      pp.setRootValueSeparator(LINE_SEPARATOR);
-      g.setPrettyPrinter(pp);
+      // compact output needs no pretty printer, only the root separator
+      g.setRootValueSeparator(new SerializedString(LINE_SEPARATOR));
     }
     return g;
   }
@@ -139,6 +141,7 @@ public class JsonEncoder extends ParsingEncoder implements Parser.ActionHandler
       flush();
     }
     this.out = generator;
+    this.utf8Output = generator instanceof UTF8JsonGenerator;
     return this;
   }
 
@@ -180,7 +183,17 @@ public class JsonEncoder extends ParsingEncoder implements Parser.ActionHandler
 
   @Override
   public void writeString(Utf8 utf8) throws IOException {
-    writeString(utf8.toString());
+    if (!utf8Output) {
+      writeString(utf8.toString());
+      return;
+    }
+    parser.advance(Symbol.STRING);
+    if (parser.topSymbol() == Symbol.MAP_KEY_MARKER) {
+      parser.advance(Symbol.MAP_KEY_MARKER);
+      out.writeFieldName(utf8.toString());
+    } else {
+      out.writeUTF8String(utf8.getBytes(), 0, utf8.getByteLength());
+    }
   }
 
   @Override
@@ -213,8 +226,14 @@ public class JsonEncoder extends ParsingEncoder implements Parser.ActionHandler
 
   private void writeByteArray(byte[] bytes, int start, int len)
     throws IOException {
-    out.writeString(
-        new String(bytes, start, len, JsonDecoder.CHARSET));
+    // bytes are written as ISO-8859-1 characters, i.e. one char per byte
+    if (chars.length < len) {
+      chars = new char[Math.max(len, chars.length * 2)];
+    }
+    for (int i = 0; i < len; i++) {
+      chars[i] = (char) (bytes[start + i] & 0xff);
+    }
+    out.writeString(chars, 0, len);
   }
 
   @Override
@@ -25,6 +25,7 @@ import org.apache.avro.AvroTypeException;
 import org.apache.avro.Schema;
 import org.apache.avro.io.parsing.ResolvingGrammarGenerator;
 import org.apache.avro.io.parsing.Symbol;
+import org.apache.avro.util.StringDedupCache;
 import org.apache.avro.util.Utf8;
 
 /**
@@ -226,6 +227,18 @@ public class ResolvingDecoder extends ValidatingDecoder {
     }
   }
 
+  @Override
+  public Object readCachedString(StringDedupCache cache) throws IOException {
+    Symbol actual = parser.advance(Symbol.STRING);
+    if (actual == Symbol.BYTES) {
+      ByteBuffer bytes = in.readBytes(null);
+      return cache.get(bytes.array(), 0, bytes.limit());
+    } else {
+      assert actual == Symbol.STRING;
+      return in.readCachedString(cache);
+    }
+  }
+
   @Override
   public void skipString() throws IOException {
     Symbol actual = parser.advance(Symbol.STRING);
@@ -25,6 +25,7 @@ import org.apache.avro.Schema;
 import org.apache.avro.io.parsing.Parser;
 import org.apache.avro.io.parsing.Symbol;
 import org.apache.avro.io.parsing.ValidatingGrammarGenerator;
+import org.apache.avro.util.StringDedupCache;
 import org.apache.avro.util.Utf8;
 
 /**
@@ -113,6 +114,12 @@ public class ValidatingDecoder extends ParsingDecoder
     return in.readString();
   }
 
+  @Override
+  public Object readCachedString(StringDedupCache cache) throws IOException {
+    parser.advance(Symbol.STRING);
+    return in.readCachedString(cache);
+  }
+
   @Override
   public void skipString() throws IOException {
     parser.advance(Symbol.STRING);
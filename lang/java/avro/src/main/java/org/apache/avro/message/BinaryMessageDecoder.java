@@ -25,8 +25,12 @@ import org.apache.avro.generic.GenericData;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
@@ -40,6 +44,10 @@ import java.util.concurrent.ConcurrentHashMap;
  * to the constructor. Messages encoded using an unknown schema will cause
  * instances to throw a {@link MissingSchemaException}.
  * <p>
+ * When the {@link SchemaStore} is a {@link CachingSchemaStore}, unknown
+ * schemas in a batch passed to {@link #decodeAll(List)} are loaded in
+ * parallel before the batch is decoded.
+ * <p>
  * It is safe to continue using instances of this class after {@link #decode}
  * throws {@link BadHeaderException} or {@link MissingSchemaException}.
  * <p>
@@ -47,20 +55,14 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 public class BinaryMessageDecoder<D> extends MessageDecoder.BaseDecoder<D> {
 
+  private static final int HEADER_LENGTH =
+      BinaryMessageEncoder.V1_HEADER.length + 8;
+
   private static final ThreadLocal<byte[]> HEADER_BUFFER =
       new ThreadLocal<byte[]>() {
         @Override
         protected byte[] initialValue() {
-          return new byte[10];
-        }
-      };
-
-  private static final ThreadLocal<ByteBuffer> FP_BUFFER =
-      new ThreadLocal<ByteBuffer>() {
-        @Override
-        protected ByteBuffer initialValue() {
-          byte[] header = HEADER_BUFFER.get();
-          return ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN);
+          return new byte[HEADER_LENGTH];
         }
       };
 
@@ -157,16 +159,160 @@ public class BinaryMessageDecoder<D> extends MessageDecoder.BaseDecoder<D> {
       throw new IOException("Failed to read header and fingerprint bytes", e);
     }
 
-    if (BinaryMessageEncoder.V1_HEADER[0] != header[0] ||
-        BinaryMessageEncoder.V1_HEADER[1] != header[1]) {
+    RawMessageDecoder<D> decoder = getDecoder(header, 0, HEADER_LENGTH);
+
+    return decoder.decode(stream, reuse);
+  }
+
+  @Override
+  public D decode(ByteBuffer encoded, D reuse) throws IOException {
+    if (encoded.hasArray()) {
+      return decode(encoded.array(),
+          encoded.arrayOffset() + encoded.position(), encoded.remaining(),
+          reuse);
+    }
+    return decode(copyOf(encoded), 0, encoded.remaining(), reuse);
+  }
+
+  @Override
+  public D decode(byte[] encoded, D reuse) throws IOException {
+    return decode(encoded, 0, encoded.length, reuse);
+  }
+
+  /**
+   * Deserialize a single datum from a range of a byte array.
+   * <p>
+   * The header and fingerprint are read in place and the payload is decoded
+   * directly from {@code encoded}, without wrapping it in a stream.
+   *
+   * @param encoded a byte array containing an encoded datum
+   * @param offset the position of the message in {@code encoded}
+   * @param length the length of the message, including the header
+   * @param reuse a datum instance to reuse, avoiding instantiation if possible
+   * @return a datum read from the array
+   * @throws BadHeaderException If the payload's header is not recognized.
+   * @throws MissingSchemaException If the payload's schema cannot be found.
+   * @throws IOException
+   */
+  public D decode(byte[] encoded, int offset, int length, D reuse)
+      throws IOException {
+    RawMessageDecoder<D> decoder = getDecoder(encoded, offset, length);
+    return decoder.decode(encoded, offset + HEADER_LENGTH,
+        length - HEADER_LENGTH, reuse);
+  }
+
+  /**
+   * Deserialize a batch of datums, one from each ByteBuffer.
+   * <p>
+   * Consecutive messages written with the same schema share a single schema
+   * lookup. The positions of the buffers are not changed.
+   *
+   * @param encoded a list of ByteBuffers, each containing an encoded datum
+   * @return a list of datums, in the same order as {@code encoded}
+   * @throws BadHeaderException If a payload's header is not recognized.
+   * @throws MissingSchemaException If a payload's schema cannot be found.
+   * @throws IOException
+   */
+  public List<D> decodeAll(List<ByteBuffer> encoded) throws IOException {
+    if (resolver instanceof CachingSchemaStore) {
+      prefetchSchemas((CachingSchemaStore) resolver, encoded);
+    }
+
+    List<D> datums = new ArrayList<>(encoded.size());
+    RawMessageDecoder<D> decoder = null;
+    long lastFingerprint = 0;
+    for (ByteBuffer buffer : encoded) {
+      int length = buffer.remaining();
+      byte[] bytes;
+      int offset;
+      if (buffer.hasArray()) {
+        bytes = buffer.array();
+        offset = buffer.arrayOffset() + buffer.position();
+      } else {
+        bytes = copyOf(buffer);
+        offset = 0;
+      }
+
+      checkHeader(bytes, offset, length);
+      long fp = readFingerprint(bytes,
+          offset + BinaryMessageEncoder.V1_HEADER.length);
+      if (decoder == null || fp != lastFingerprint) {
+        decoder = getDecoder(fp);
+        lastFingerprint = fp;
+      }
+
+      datums.add(decoder.decode(bytes, offset + HEADER_LENGTH,
+          length - HEADER_LENGTH, null));
+    }
+    return datums;
+  }
+
+  /**
+   * Starts loading all unknown schemas in a batch and waits for the loads to
+   * finish. Failures are ignored here and reported when the message that
+   * needs the schema is decoded.
+   */
+  private void prefetchSchemas(CachingSchemaStore store,
+                               List<ByteBuffer> encoded) {
+    Set<Long> requested = new HashSet<>();
+    List<CompletableFuture<Schema>> pending = new ArrayList<>();
+    for (ByteBuffer buffer : encoded) {
+      if (buffer.remaining() < HEADER_LENGTH) {
+        continue;
+      }
+      long fp = readFingerprint(buffer,
+          buffer.position() + BinaryMessageEncoder.V1_HEADER.length);
+      if (!codecByFingerprint.containsKey(fp) && requested.add(fp)) {
+        pending.add(store.prefetch(fp));
+      }
+    }
+
+    for (CompletableFuture<Schema> future : pending) {
+      try {
+        future.join();
+      } catch (RuntimeException e) {
+        // the synchronous lookup during decoding reports the failure
+      }
+    }
+  }
+
+  private RawMessageDecoder<D> getDecoder(byte[] bytes, int offset,
+                                          int length) {
+    checkHeader(bytes, offset, length);
+    return getDecoder(readFingerprint(bytes,
+        offset + BinaryMessageEncoder.V1_HEADER.length));
+  }
+
+  private static void checkHeader(byte[] bytes, int offset, int length) {
+    if (length < HEADER_LENGTH) {
+      throw new BadHeaderException("Not enough header bytes");
+    }
+
+    if (BinaryMessageEncoder.V1_HEADER[0] != bytes[offset] ||
+        BinaryMessageEncoder.V1_HEADER[1] != bytes[offset + 1]) {
       throw new BadHeaderException(String.format(
           "Unrecognized header bytes: 0x%02X 0x%02X",
-          header[0], header[1]));
+          bytes[offset], bytes[offset + 1]));
     }
+  }
 
-    RawMessageDecoder<D> decoder = getDecoder(FP_BUFFER.get().getLong(2));
+  /**
+   * Reads the little-endian schema fingerprint at {@code offset}.
+   */
+  private static long readFingerprint(byte[] bytes, int offset) {
+    long fp = 0;
+    for (int i = 7; i >= 0; i -= 1) {
+      fp = (fp << 8) | (bytes[offset + i] & 0xFFL);
+    }
+    return fp;
+  }
 
-    return decoder.decode(stream, reuse);
+  private static long readFingerprint(ByteBuffer buffer, int index) {
+    long fp = 0;
+    for (int i = 7; i >= 0; i -= 1) {
+      fp = (fp << 8) | (buffer.get(index + i) & 0xFFL);
+    }
+    return fp;
   }
 
   /**
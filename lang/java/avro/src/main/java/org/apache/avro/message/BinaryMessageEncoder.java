@@ -26,6 +26,7 @@ import org.apache.avro.generic.GenericData;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.util.List;
 import java.security.NoSuchAlgorithmException;
 
 /**
@@ -88,6 +89,42 @@ public class BinaryMessageEncoder<D> implements MessageEncoder<D> {
     writeCodec.encode(datum, stream);
   }
 
+  /**
+   * Serialize a single datum, with its header and schema fingerprint, into a
+   * ByteBuffer starting at its position.
+   * <p>
+   * On success, the buffer's position is advanced past the encoded message. If
+   * the message does not fit in the buffer's remaining space, this returns -1
+   * and leaves the buffer's position unchanged so the caller can retry with a
+   * larger buffer.
+   *
+   * @param datum a datum
+   * @param target a heap or direct ByteBuffer to serialize the datum to
+   * @return the number of bytes written, or -1 if the message did not fit
+   * @throws IOException
+   */
+  public int encode(D datum, ByteBuffer target) throws IOException {
+    return writeCodec.encode(datum, target);
+  }
+
+  /**
+   * Serialize each datum, with its header and schema fingerprint, into its
+   * own buffer from a {@link BufferPool}.
+   * <p>
+   * Each returned buffer is ready to read, from position 0 to its limit.
+   * Callers should {@link BufferPool#release release} the buffers once they
+   * are no longer needed.
+   *
+   * @param datums datums to serialize
+   * @param pool a {@link BufferPool} to take buffers from
+   * @return a list of buffers, one for each datum, in order
+   * @throws IOException
+   */
+  public List<ByteBuffer> encodeAll(Iterable<D> datums, BufferPool pool)
+      throws IOException {
+    return writeCodec.encodeAll(datums, pool);
+  }
+
   /**
    * This is a RawDatumEncoder that adds the V1 header to the outgoing buffer.
    * BinaryDatumEncoder wraps this class to avoid confusion over what it does.
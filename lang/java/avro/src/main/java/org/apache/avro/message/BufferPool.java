@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.avro.message;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A pool of reusable {@link ByteBuffer ByteBuffers} for encoding messages.
+ * <p>
+ * Buffers are handed out by {@link #acquire(int)} and returned with
+ * {@link #release(ByteBuffer)} once their contents have been consumed. Up to
+ * {@code maxPooled} released buffers are kept; further buffers are left to the
+ * garbage collector.
+ * <p>
+ * This class is thread-safe.
+ */
+public class BufferPool {
+
+  private final int bufferSize;
+  private final boolean direct;
+  private final int maxPooled;
+  private final Queue<ByteBuffer> free = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger freeCount = new AtomicInteger();
+
+  /**
+   * Creates a new {@link BufferPool} of heap buffers.
+   *
+   * @param bufferSize the default capacity of new buffers
+   * @param maxPooled the maximum number of released buffers to keep
+   */
+  public BufferPool(int bufferSize, int maxPooled) {
+    this(bufferSize, maxPooled, false);
+  }
+
+  /**
+   * Creates a new {@link BufferPool}.
+   *
+   * @param bufferSize the default capacity of new buffers
+   * @param maxPooled the maximum number of released buffers to keep
+   * @param direct whether to allocate direct buffers
+   */
+  public BufferPool(int bufferSize, int maxPooled, boolean direct) {
+    if (bufferSize <= 0) {
+      throw new IllegalArgumentException(
+          "Buffer size must be positive: " + bufferSize);
+    }
+    if (maxPooled < 0) {
+      throw new IllegalArgumentException(
+          "Pool size cannot be negative: " + maxPooled);
+    }
+    this.bufferSize = bufferSize;
+    this.maxPooled = maxPooled;
+    this.direct = direct;
+  }
+
+  /**
+   * Returns a cleared buffer with at least {@code minCapacity} bytes of
+   * capacity, reusing a released buffer if one is large enough.
+   *
+   * @param minCapacity the minimum capacity of the buffer
+   * @return a cleared ByteBuffer
+   */
+  public ByteBuffer acquire(int minCapacity) {
+    ByteBuffer buffer = free.poll();
+    if (buffer != null) {
+      freeCount.decrementAndGet();
+      if (buffer.capacity() >= minCapacity) {
+        buffer.clear();
+        return buffer;
+      }
+      // too small for this request; keep it for a later one
+      release(buffer);
+    }
+    int capacity = Math.max(bufferSize, minCapacity);
+    return direct ? ByteBuffer.allocateDirect(capacity) :
+        ByteBuffer.allocate(capacity);
+  }
+
+  /**
+   * Returns a buffer to this pool. The buffer must not be used after it is
+   * released.
+   *
+   * @param buffer a buffer returned by {@link #acquire(int)}
+   */
+  public void release(ByteBuffer buffer) {
+    if (buffer.isDirect() != direct || buffer.isReadOnly()) {
+      return;
+    }
+    if (freeCount.incrementAndGet() <= maxPooled) {
+      free.offer(buffer);
+    } else {
+      freeCount.decrementAndGet();
+    }
+  }
+
+  /**
+   * Returns the default capacity of buffers allocated by this pool.
+   */
+  public int getBufferSize() {
+    return bufferSize;
+  }
+
+  /**
+   * Returns whether this pool allocates direct buffers.
+   */
+  public boolean isDirect() {
+    return direct;
+  }
+}
@@ -0,0 +1,257 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.avro.message;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaNormalization;
+import java.io.File;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link SchemaStore} that keeps a concurrent in-memory cache in front of
+ * another, possibly slow, {@link SchemaStore} that is used to load schemas.
+ * <p>
+ * Schemas are loaded at most once per fingerprint: concurrent lookups for a
+ * fingerprint that is being loaded wait for the same load. Fingerprints that
+ * the loader cannot find are remembered for a configurable time so that
+ * repeated lookups do not reach the loader. Schemas can be loaded ahead of
+ * time with {@link #prefetch(long)}.
+ * <p>
+ * This class is thread-safe.
+ */
+public class CachingSchemaStore implements SchemaStore {
+
+  /** The default time that missing fingerprints are cached: 30 seconds. */
+  public static final long DEFAULT_NEGATIVE_CACHE_MILLIS = 30000;
+
+  private final SchemaStore loader;
+  private final long negativeCacheNanos;
+  private final Executor executor;
+
+  private final Map<Long, Schema> schemas = new ConcurrentHashMap<>();
+  private final Map<Long, Long> missingUntil = new ConcurrentHashMap<>();
+  private final Map<Long, CompletableFuture<Schema>> loading =
+      new ConcurrentHashMap<>();
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder negativeHits = new LongAdder();
+  private final LongAdder loads = new LongAdder();
+  private final LongAdder loadFailures = new LongAdder();
+
+  /**
+   * Creates a new {@link CachingSchemaStore} that loads schemas from the
+   * {@code .avsc} files in a directory.
+   *
+   * @param directory a directory of schema files
+   * @see DirectorySchemaStore
+   */
+  public CachingSchemaStore(File directory) {
+    this(new DirectorySchemaStore(directory));
+  }
+
+  /**
+   * Creates a new {@link CachingSchemaStore} that loads schemas using the
+   * given {@link SchemaStore}.
+   *
+   * @param loader a {@link SchemaStore} used to load missing schemas
+   */
+  public CachingSchemaStore(SchemaStore loader) {
+    this(loader, DEFAULT_NEGATIVE_CACHE_MILLIS, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Creates a new {@link CachingSchemaStore} that loads schemas using the
+   * given {@link SchemaStore}.
+   * <p>
+   * The {@code executor} runs the loads started by {@link #prefetch(long)}.
+   * Loaders that block on remote calls should be given a dedicated executor.
+   *
+   * @param loader a {@link SchemaStore} used to load missing schemas
+   * @param negativeCacheMillis how long a fingerprint that could not be found
+   *                            is remembered as missing, or 0 to disable
+   * @param executor an {@link Executor} used to prefetch schemas
+   */
+  public CachingSchemaStore(SchemaStore loader, long negativeCacheMillis,
+                            Executor executor) {
+    if (loader == null) {
+      throw new IllegalArgumentException("Loader cannot be null");
+    }
+    if (negativeCacheMillis < 0) {
+      throw new IllegalArgumentException(
+          "Negative cache time cannot be negative: " + negativeCacheMillis);
+    }
+    this.loader = loader;
+    this.negativeCacheNanos =
+        TimeUnit.MILLISECONDS.toNanos(negativeCacheMillis);
+    this.executor = executor;
+  }
+
+  /**
+   * Adds a schema to this cache that can be retrieved using its AVRO-CRC-64
+   * fingerprint.
+   *
+   * @param schema a {@link Schema}
+   */
+  public void addSchema(Schema schema) {
+    long fp = SchemaNormalization.parsingFingerprint64(schema);
+    schemas.put(fp, schema);
+    missingUntil.remove(fp);
+  }
+
+  @Override
+  public Schema findByFingerprint(long fingerprint) {
+    Schema schema = schemas.get(fingerprint);
+    if (schema != null) {
+      hits.increment();
+      return schema;
+    }
+
+    if (isKnownMissing(fingerprint)) {
+      negativeHits.increment();
+      return null;
+    }
+
+    misses.increment();
+    return load(fingerprint);
+  }
+
+  /**
+   * Starts loading the schema for a fingerprint in the background, if it is
+   * not already cached.
+   *
+   * @param fingerprint an AVRO-CRC-64 fingerprint long
+   * @return a future for the schema with the given fingerprint, or null if it
+   *         could not be found
+   */
+  public CompletableFuture<Schema> prefetch(final long fingerprint) {
+    Schema schema = schemas.get(fingerprint);
+    if (schema != null || isKnownMissing(fingerprint)) {
+      return CompletableFuture.completedFuture(schema);
+    }
+
+    CompletableFuture<Schema> inProgress = loading.get(fingerprint);
+    if (inProgress != null) {
+      return inProgress;
+    }
+
+    return CompletableFuture.supplyAsync(() -> load(fingerprint), executor);
+  }
+
+  /**
+   * Returns the number of schemas held in this cache.
+   */
+  public int size() {
+    return schemas.size();
+  }
+
+  /** Returns the number of lookups answered from the cache. */
+  public long getHitCount() {
+    return hits.sum();
+  }
+
+  /** Returns the number of lookups that had to load a schema. */
+  public long getMissCount() {
+    return misses.sum();
+  }
+
+  /**
+   * Returns the number of lookups answered by a cached missing fingerprint.
+   */
+  public long getNegativeHitCount() {
+    return negativeHits.sum();
+  }
+
+  /** Returns the number of calls made to the loader. */
+  public long getLoadCount() {
+    return loads.sum();
+  }
+
+  /** Returns the number of calls to the loader that threw an exception. */
+  public long getLoadFailureCount() {
+    return loadFailures.sum();
+  }
+
+  private boolean isKnownMissing(long fingerprint) {
+    Long until = missingUntil.get(fingerprint);
+    if (until == null) {
+      return false;
+    }
+    if (System.nanoTime() - until < 0) {
+      return true;
+    }
+    missingUntil.remove(fingerprint, until);
+    return false;
+  }
+
+  private Schema load(long fingerprint) {
+    CompletableFuture<Schema> future = new CompletableFuture<>();
+    CompletableFuture<Schema> inProgress =
+        loading.putIfAbsent(fingerprint, future);
+    if (inProgress != null) {
+      return await(inProgress);
+    }
+
+    try {
+      // another thread may have finished loading before this one registered
+      Schema schema = schemas.get(fingerprint);
+      if (schema == null && !isKnownMissing(fingerprint)) {
+        loads.increment();
+        schema = loader.findByFingerprint(fingerprint);
+        if (schema != null) {
+          schemas.put(fingerprint, schema);
+        } else if (negativeCacheNanos > 0) {
+          missingUntil.put(fingerprint, System.nanoTime() + negativeCacheNanos);
+        }
+      }
+      future.complete(schema);
+      return schema;
+    } catch (RuntimeException e) {
+      loadFailures.increment();
+      future.completeExceptionally(e);
+      throw e;
+    } finally {
+      loading.remove(fingerprint, future);
+    }
+  }
+
+  private static Schema await(CompletableFuture<Schema> future) {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new AvroRuntimeException(
+          "Interrupted while waiting for schema", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new AvroRuntimeException("Failed to load schema", e.getCause());
+    }
+  }
+}
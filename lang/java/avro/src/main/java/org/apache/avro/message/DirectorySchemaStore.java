@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.avro.message;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaNormalization;
+import org.apache.avro.SchemaParseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A {@link SchemaStore} backed by a local directory of {@code .avsc} files.
+ * <p>
+ * Each file holds one schema and is indexed by the AVRO-CRC-64 fingerprint of
+ * that schema; file names are not significant. The directory is scanned on
+ * the first lookup and again when a fingerprint is not found, so files added
+ * while the store is in use are picked up. Files that cannot be parsed are
+ * logged and skipped until they are modified.
+ * <p>
+ * Lookups for unknown fingerprints rescan the directory, so this store is
+ * usually wrapped in a {@link CachingSchemaStore}, which remembers missing
+ * fingerprints.
+ * <p>
+ * This class is thread-safe.
+ */
+public class DirectorySchemaStore implements SchemaStore {
+
+  private static final Logger LOG =
+      LoggerFactory.getLogger(DirectorySchemaStore.class);
+
+  private static final String EXTENSION = ".avsc";
+
+  private final File directory;
+  private final Map<Long, Schema> schemas = new ConcurrentHashMap<>();
+  // guarded by this; last modified time of each scanned file
+  private final Map<String, Long> scanned = new HashMap<>();
+
+  /**
+   * Creates a new {@link DirectorySchemaStore} for the given directory.
+   *
+   * @param directory a directory of {@code .avsc} schema files
+   */
+  public DirectorySchemaStore(File directory) {
+    if (directory == null) {
+      throw new IllegalArgumentException("Directory cannot be null");
+    }
+    this.directory = directory;
+  }
+
+  @Override
+  public Schema findByFingerprint(long fingerprint) {
+    Schema schema = schemas.get(fingerprint);
+    if (schema == null) {
+      scan();
+      schema = schemas.get(fingerprint);
+    }
+    return schema;
+  }
+
+  /**
+   * Writes a schema to a new file in this store's directory, named by its
+   * fingerprint. The file is written to a temporary file first and moved into
+   * place, so concurrent scans never see a partial schema.
+   *
+   * @param schema a {@link Schema}
+   * @throws IOException if the schema file cannot be written
+   */
+  public void addSchema(Schema schema) throws IOException {
+    long fp = SchemaNormalization.parsingFingerprint64(schema);
+    File target = new File(directory, String.format("%016x", fp) + EXTENSION);
+    File temp = File.createTempFile(".schema-", ".tmp", directory);
+    try {
+      try (OutputStream out = new FileOutputStream(temp)) {
+        out.write(schema.toString(true).getBytes(StandardCharsets.UTF_8));
+      }
+      Files.move(temp.toPath(), target.toPath(),
+          StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(temp.toPath());
+    }
+    schemas.put(fp, schema);
+  }
+
+  private synchronized void scan() {
+    File[] files = directory.listFiles(
+        (dir, name) -> name.endsWith(EXTENSION));
+    if (files == null) {
+      throw new AvroRuntimeException(
+          "Cannot list schema directory: " + directory);
+    }
+
+    for (File file : files) {
+      long modified = file.lastModified();
+      Long lastScanned = scanned.get(file.getName());
+      if (lastScanned != null && lastScanned == modified) {
+        continue;
+      }
+      scanned.put(file.getName(), modified);
+
+      try {
+        Schema schema = new Schema.Parser().parse(file);
+        schemas.put(SchemaNormalization.parsingFingerprint64(schema), schema);
+      } catch (IOException | SchemaParseException e) {
+        LOG.warn("Skipping unreadable schema file {}", file, e);
+      }
+    }
+  }
+}
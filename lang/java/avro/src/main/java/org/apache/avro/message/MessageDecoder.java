@@ -126,6 +126,34 @@ public interface MessageDecoder<D> {
           }
         };
 
+    private static final ThreadLocal<byte[]> DIRECT_BUFFER_COPY =
+        new ThreadLocal<byte[]>() {
+          @Override
+          protected byte[] initialValue() {
+            return new byte[256];
+          }
+        };
+
+    /**
+     * Copies the remaining bytes of a buffer that is not backed by an array
+     * into a reused thread-local array. The position of {@code encoded} is not
+     * changed.
+     *
+     * @param encoded a direct or read-only ByteBuffer
+     * @return a thread-local array that holds the remaining bytes at offset 0
+     */
+    static byte[] copyOf(ByteBuffer encoded) {
+      int length = encoded.remaining();
+      byte[] bytes = DIRECT_BUFFER_COPY.get();
+      if (bytes.length < length) {
+        bytes = new byte[Math.max(length, bytes.length << 1)];
+        DIRECT_BUFFER_COPY.set(bytes);
+      }
+      // read from a duplicate so the caller's buffer position is not modified
+      encoded.duplicate().get(bytes, 0, length);
+      return bytes;
+    }
+
     @Override
     public D decode(InputStream stream) throws IOException {
       return decode(stream, null);
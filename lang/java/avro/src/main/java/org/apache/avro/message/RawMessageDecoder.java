@@ -27,6 +27,7 @@ import org.apache.avro.io.DatumReader;
 import org.apache.avro.io.DecoderFactory;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 /**
  * A {@link MessageDecoder} that deserializes from raw datum bytes.
@@ -46,6 +47,9 @@ public class RawMessageDecoder<D> extends MessageDecoder.BaseDecoder<D> {
   private static final ThreadLocal<BinaryDecoder> DECODER =
       new ThreadLocal<>();
 
+  private static final ThreadLocal<BinaryDecoder> ARRAY_DECODER =
+      new ThreadLocal<>();
+
   private final Schema writeSchema;
   private final Schema readSchema;
   private final DatumReader<D> reader;
@@ -98,4 +102,42 @@ public class RawMessageDecoder<D> extends MessageDecoder.BaseDecoder<D> {
       throw new AvroRuntimeException("Decoding datum failed", e);
     }
   }
+
+  @Override
+  public D decode(ByteBuffer encoded, D reuse) {
+    if (encoded.hasArray()) {
+      return decode(encoded.array(),
+          encoded.arrayOffset() + encoded.position(), encoded.remaining(),
+          reuse);
+    }
+    return decode(copyOf(encoded), 0, encoded.remaining(), reuse);
+  }
+
+  @Override
+  public D decode(byte[] encoded, D reuse) {
+    return decode(encoded, 0, encoded.length, reuse);
+  }
+
+  /**
+   * Deserialize a single datum from a range of a byte array.
+   * <p>
+   * The datum is read directly from {@code encoded} by a reused thread-local
+   * decoder, without wrapping the array in a stream.
+   *
+   * @param encoded a byte array containing an encoded datum
+   * @param offset the position of the encoded datum in {@code encoded}
+   * @param length the number of bytes available to decode
+   * @param reuse a datum instance to reuse, avoiding instantiation if possible
+   * @return a datum read from the array
+   */
+  public D decode(byte[] encoded, int offset, int length, D reuse) {
+    BinaryDecoder decoder = DecoderFactory.get()
+        .binaryDecoder(encoded, offset, length, ARRAY_DECODER.get());
+    ARRAY_DECODER.set(decoder);
+    try {
+      return reader.read(reuse, decoder);
+    } catch (IOException e) {
+      throw new AvroRuntimeException("Decoding datum failed", e);
+    }
+  }
 }
@@ -27,7 +27,10 @@ import org.apache.avro.io.EncoderFactory;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * A {@link MessageEncoder} that encodes only a datum's bytes, without additional
@@ -45,6 +48,14 @@ public class RawMessageEncoder<D> implements MessageEncoder<D> {
         }
       };
 
+  private static final ThreadLocal<BufferTargetStream> TARGET =
+      new ThreadLocal<BufferTargetStream>() {
+        @Override
+        protected BufferTargetStream initialValue() {
+          return new BufferTargetStream();
+        }
+      };
+
   private static final ThreadLocal<BinaryEncoder> ENCODER =
       new ThreadLocal<>();
 
@@ -114,6 +125,96 @@ public class RawMessageEncoder<D> implements MessageEncoder<D> {
     encoder.flush();
   }
 
+  /**
+   * Serialize a single datum into a ByteBuffer, starting at its position.
+   * <p>
+   * On success, the buffer's position is advanced past the encoded datum. If
+   * the datum does not fit in the buffer's remaining space, this returns -1
+   * and leaves the buffer's position unchanged; the bytes after the position
+   * may have been overwritten. Callers can retry with a larger buffer.
+   *
+   * @param datum a datum
+   * @param target a ByteBuffer to serialize the datum to
+   * @return the number of bytes written, or -1 if the datum did not fit
+   * @throws IOException
+   */
+  public int encode(D datum, ByteBuffer target) throws IOException {
+    int start = target.position();
+    BufferTargetStream stream = TARGET.get();
+    stream.buffer = target;
+    try {
+      encode(datum, stream);
+      return target.position() - start;
+    } catch (BufferOverflowException e) {
+      target.position(start);
+      return -1;
+    } finally {
+      stream.buffer = null;
+    }
+  }
+
+  /**
+   * Serialize each datum into its own buffer from a {@link BufferPool}.
+   * <p>
+   * Each returned buffer is ready to read, from position 0 to its limit.
+   * Datums that do not fit in a pooled buffer are retried with buffers of
+   * twice the size, and later datums start with the larger size. Callers should {@link BufferPool#release release} the
+   * buffers once they are no longer needed.
+   *
+   * @param datums datums to serialize
+   * @param pool a {@link BufferPool} to take buffers from
+   * @return a list of buffers, one for each datum, in order
+   * @throws IOException
+   */
+  public List<ByteBuffer> encodeAll(Iterable<D> datums, BufferPool pool)
+      throws IOException {
+    List<ByteBuffer> buffers = new ArrayList<>();
+    // start each datum with the size that fit the last one
+    int capacity = pool.getBufferSize();
+    for (D datum : datums) {
+      ByteBuffer buffer = pool.acquire(capacity);
+      try {
+        while (encode(datum, buffer) < 0) {
+          capacity = buffer.capacity();
+          pool.release(buffer);
+          buffer = null;
+          if (capacity > Integer.MAX_VALUE / 2) {
+            throw new IOException(
+                "Cannot encode datum: too large for a buffer");
+          }
+          capacity *= 2;
+          buffer = pool.acquire(capacity);
+        }
+      } catch (IOException | RuntimeException e) {
+        if (buffer != null) {
+          pool.release(buffer);
+        }
+        throw e;
+      }
+      buffer.flip();
+      buffers.add(buffer);
+    }
+    return buffers;
+  }
+
+  /**
+   * An OutputStream that writes into a ByteBuffer and throws
+   * {@link BufferOverflowException} when the buffer is full.
+   */
+  private static class BufferTargetStream extends OutputStream {
+    private ByteBuffer buffer = null;
+
+    @Override
+    public void write(int b) {
+      buffer.put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      buffer.put(b, off, len);
+    }
+  }
+
   private static class BufferOutputStream extends ByteArrayOutputStream {
     BufferOutputStream() {
     }
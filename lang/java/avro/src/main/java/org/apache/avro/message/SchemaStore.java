@@ -26,6 +26,9 @@ import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Interface for classes that can provide avro schemas by fingerprint.
+ * <p>
+ * {@link CachingSchemaStore} adds concurrent caching, negative caching and
+ * prefetching to any implementation, such as a {@link DirectorySchemaStore}.
  */
 public interface SchemaStore {
 
@@ -0,0 +1,159 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaNormalization;
+import org.apache.avro.util.WeakIdentityHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Registry of the optional per-schema metrics collected by datum readers and
+ * writers and by data file streams and writers.
+ * <p>
+ * Metrics are disabled by default. They are enabled by setting the
+ * {@code org.apache.avro.metrics.enabled} system property to {@code true} or
+ * by calling {@link #setEnabled(boolean)}. Readers and writers look up their
+ * metrics when their schema is set, so metrics should be enabled before they
+ * are created. When metrics are disabled, instrumentation costs a null
+ * check.
+ * <p>
+ * Each {@link SchemaMetrics} is also registered as a platform MBean named
+ * {@code org.apache.avro:type=SchemaMetrics,fingerprint=<hex>}, unless the
+ * {@code org.apache.avro.metrics.jmx} system property is {@code false}.
+ * <p>
+ * This class is thread-safe.
+ */
+public final class AvroMetrics {
+
+  private static final Logger LOG = LoggerFactory.getLogger(AvroMetrics.class);
+
+  static final String ENABLED_PROPERTY = "org.apache.avro.metrics.enabled";
+  static final String JMX_PROPERTY = "org.apache.avro.metrics.jmx";
+
+  private static volatile boolean enabled =
+      Boolean.getBoolean(ENABLED_PROPERTY);
+  private static final boolean JMX_ENABLED =
+      !"false".equalsIgnoreCase(System.getProperty(JMX_PROPERTY));
+
+  private static final Map<Long, SchemaMetrics> BY_FINGERPRINT =
+      new ConcurrentHashMap<>();
+  private static final Map<Schema, SchemaMetrics> BY_SCHEMA =
+      new WeakIdentityHashMap<>();
+  private static final List<MetricsListener> LISTENERS =
+      new CopyOnWriteArrayList<>();
+
+  private AvroMetrics() {
+  }
+
+  /** Returns whether metrics are collected by newly created readers and
+   * writers. */
+  public static boolean isEnabled() {
+    return enabled;
+  }
+
+  /** Enables or disables metrics for newly created readers and writers. */
+  public static void setEnabled(boolean enabled) {
+    AvroMetrics.enabled = enabled;
+  }
+
+  /**
+   * Returns the metrics for a schema, or null if metrics are disabled.
+   * Schemas with the same parsing fingerprint share their metrics.
+   *
+   * @param schema a {@link Schema}
+   * @return the schema's {@link SchemaMetrics}, or null
+   */
+  public static SchemaMetrics forSchema(Schema schema) {
+    if (!enabled || schema == null) {
+      return null;
+    }
+    SchemaMetrics metrics = BY_SCHEMA.get(schema);
+    if (metrics == null) {
+      long fp = SchemaNormalization.parsingFingerprint64(schema);
+      metrics = BY_FINGERPRINT.get(fp);
+      if (metrics == null) {
+        metrics = add(new SchemaMetrics(fp, schema.getFullName()));
+      }
+      BY_SCHEMA.put(schema, metrics);
+    }
+    return metrics;
+  }
+
+  /** Returns the metrics of all schemas seen so far. */
+  public static Collection<SchemaMetrics> getAll() {
+    return new ArrayList<>(BY_FINGERPRINT.values());
+  }
+
+  /** Adds a listener that is notified of data file blocks. */
+  public static void addListener(MetricsListener listener) {
+    LISTENERS.add(listener);
+  }
+
+  /** Removes a listener added with {@link #addListener}. */
+  public static void removeListener(MetricsListener listener) {
+    LISTENERS.remove(listener);
+  }
+
+  static List<MetricsListener> listeners() {
+    return LISTENERS;
+  }
+
+  private static SchemaMetrics add(SchemaMetrics metrics) {
+    SchemaMetrics existing = BY_FINGERPRINT.putIfAbsent(
+        metrics.getFingerprintLong(), metrics);
+    if (existing != null) {
+      return existing;
+    }
+    if (JMX_ENABLED) {
+      register(metrics);
+    }
+    for (MetricsListener listener : LISTENERS) {
+      listener.schemaAdded(metrics);
+    }
+    return metrics;
+  }
+
+  private static void register(SchemaMetrics metrics) {
+    try {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      ObjectName name = new ObjectName(
+          "org.apache.avro:type=SchemaMetrics,fingerprint="
+          + metrics.getFingerprint());
+      if (!server.isRegistered(name)) {
+        server.registerMBean(metrics, name);
+      }
+    } catch (JMException | RuntimeException e) {
+      LOG.warn("Cannot register metrics MBean for {}",
+          metrics.getSchemaName(), e);
+    }
+  }
+}
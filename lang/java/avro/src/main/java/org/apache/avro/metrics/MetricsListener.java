@@ -0,0 +1,47 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.metrics;
+
+/**
+ * Receives notifications of data file blocks read and written, in addition
+ * to the counters kept by {@link SchemaMetrics}.
+ * <p>
+ * Listeners are called synchronously on the reading or writing thread, once
+ * per block, and must be thread-safe and fast. Per-datum events are only
+ * counted, not sent to listeners, to keep the overhead low.
+ *
+ * @see AvroMetrics#addListener(MetricsListener)
+ */
+public interface MetricsListener {
+
+  /** Called when metrics are first created for a schema. */
+  default void schemaAdded(SchemaMetrics schema) {
+  }
+
+  /** Called after a data file block has been read and decompressed. */
+  default void blockRead(SchemaMetrics schema, String codec, long records,
+                         long compressedBytes, long uncompressedBytes,
+                         long decompressNanos) {
+  }
+
+  /** Called after a data file block has been compressed and written. */
+  default void blockWritten(SchemaMetrics schema, String codec, long records,
+                            long uncompressedBytes, long compressedBytes,
+                            long compressNanos) {
+  }
+}
@@ -0,0 +1,215 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters for the data read and written with one schema, identified by its
+ * parsing fingerprint.
+ * <p>
+ * Counters are striped {@link LongAdder LongAdders}, so updates from many
+ * threads do not contend. Instances are created by
+ * {@link AvroMetrics#forSchema(org.apache.avro.Schema)}.
+ * <p>
+ * This class is thread-safe.
+ */
+public class SchemaMetrics implements SchemaMetricsMXBean {
+
+  private final long fingerprint;
+  private final String schemaName;
+
+  private final LongAdder recordsRead = new LongAdder();
+  private final LongAdder recordsWritten = new LongAdder();
+  private final LongAdder blocksRead = new LongAdder();
+  private final LongAdder blocksWritten = new LongAdder();
+  private final LongAdder bytesRead = new LongAdder();
+  private final LongAdder bytesWritten = new LongAdder();
+  private final LongAdder bytesDecoded = new LongAdder();
+  private final LongAdder bytesEncoded = new LongAdder();
+  private final LongAdder resolverHits = new LongAdder();
+  private final LongAdder resolverMisses = new LongAdder();
+  private final Map<String, LongAdder> decompressNanos =
+      new ConcurrentHashMap<>();
+  private final Map<String, LongAdder> compressNanos =
+      new ConcurrentHashMap<>();
+
+  SchemaMetrics(long fingerprint, String schemaName) {
+    this.fingerprint = fingerprint;
+    this.schemaName = schemaName;
+  }
+
+  /** Returns the schema's AVRO-CRC-64 parsing fingerprint. */
+  public long getFingerprintLong() {
+    return fingerprint;
+  }
+
+  /** Called when a datum has been read with this schema. */
+  public void recordRead() {
+    recordsRead.increment();
+  }
+
+  /** Called when a datum has been written with this schema. */
+  public void recordWritten() {
+    recordsWritten.increment();
+  }
+
+  /** Called when a resolving decoder has been looked up for this schema. */
+  public void resolverLookup(boolean cached) {
+    (cached ? resolverHits : resolverMisses).increment();
+  }
+
+  /**
+   * Called when a data file block has been read and decompressed.
+   *
+   * @param codec the name of the block's codec
+   * @param records the number of datums in the block
+   * @param compressedBytes the size of the block as stored
+   * @param uncompressedBytes the size of the block after decompression
+   * @param nanos the time spent decompressing the block
+   */
+  public void blockRead(String codec, long records, long compressedBytes,
+                        long uncompressedBytes, long nanos) {
+    blocksRead.increment();
+    bytesRead.add(compressedBytes);
+    bytesDecoded.add(uncompressedBytes);
+    adder(decompressNanos, codec).add(nanos);
+    for (MetricsListener listener : AvroMetrics.listeners()) {
+      listener.blockRead(this, codec, records, compressedBytes,
+          uncompressedBytes, nanos);
+    }
+  }
+
+  /**
+   * Called when a data file block has been compressed and written.
+   *
+   * @param codec the name of the block's codec
+   * @param records the number of datums in the block
+   * @param uncompressedBytes the size of the block before compression
+   * @param compressedBytes the size of the block as stored
+   * @param nanos the time spent compressing the block
+   */
+  public void blockWritten(String codec, long records, long uncompressedBytes,
+                           long compressedBytes, long nanos) {
+    blocksWritten.increment();
+    bytesEncoded.add(uncompressedBytes);
+    bytesWritten.add(compressedBytes);
+    adder(compressNanos, codec).add(nanos);
+    for (MetricsListener listener : AvroMetrics.listeners()) {
+      listener.blockWritten(this, codec, records, uncompressedBytes,
+          compressedBytes, nanos);
+    }
+  }
+
+  @Override
+  public String getSchemaName() {
+    return schemaName;
+  }
+
+  @Override
+  public String getFingerprint() {
+    return String.format("%016x", fingerprint);
+  }
+
+  @Override
+  public long getRecordsRead() {
+    return recordsRead.sum();
+  }
+
+  @Override
+  public long getRecordsWritten() {
+    return recordsWritten.sum();
+  }
+
+  @Override
+  public long getBlocksRead() {
+    return blocksRead.sum();
+  }
+
+  @Override
+  public long getBlocksWritten() {
+    return blocksWritten.sum();
+  }
+
+  @Override
+  public long getBytesRead() {
+    return bytesRead.sum();
+  }
+
+  @Override
+  public long getBytesWritten() {
+    return bytesWritten.sum();
+  }
+
+  @Override
+  public long getBytesDecoded() {
+    return bytesDecoded.sum();
+  }
+
+  @Override
+  public long getBytesEncoded() {
+    return bytesEncoded.sum();
+  }
+
+  @Override
+  public Map<String, Long> getDecompressNanosByCodec() {
+    return sums(decompressNanos);
+  }
+
+  @Override
+  public Map<String, Long> getCompressNanosByCodec() {
+    return sums(compressNanos);
+  }
+
+  @Override
+  public long getResolverCacheHits() {
+    return resolverHits.sum();
+  }
+
+  @Override
+  public long getResolverCacheMisses() {
+    return resolverMisses.sum();
+  }
+
+  @Override
+  public String toString() {
+    return "SchemaMetrics{" + schemaName + ", " + getFingerprint()
+        + ", read=" + getRecordsRead() + ", written=" + getRecordsWritten()
+        + "}";
+  }
+
+  private static LongAdder adder(Map<String, LongAdder> adders, String key) {
+    LongAdder adder = adders.get(key);
+    if (adder == null) {
+      adder = adders.computeIfAbsent(key, k -> new LongAdder());
+    }
+    return adder;
+  }
+
+  private static Map<String, Long> sums(Map<String, LongAdder> adders) {
+    Map<String, Long> result = new TreeMap<>();
+    for (Map.Entry<String, LongAdder> entry : adders.entrySet()) {
+      result.put(entry.getKey(), entry.getValue().sum());
+    }
+    return Collections.unmodifiableMap(result);
+  }
+}
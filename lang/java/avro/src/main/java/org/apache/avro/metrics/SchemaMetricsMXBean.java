@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX management interface for the metrics of one schema.
+ *
+ * @see SchemaMetrics
+ */
+public interface SchemaMetricsMXBean {
+
+  /** The schema's full name. */
+  String getSchemaName();
+
+  /** The schema's AVRO-CRC-64 parsing fingerprint, as 16 hex digits. */
+  String getFingerprint();
+
+  /** The number of datums read by datum readers with this schema. */
+  long getRecordsRead();
+
+  /** The number of datums written by datum writers with this schema. */
+  long getRecordsWritten();
+
+  /** The number of data file blocks read with this schema. */
+  long getBlocksRead();
+
+  /** The number of data file blocks written with this schema. */
+  long getBlocksWritten();
+
+  /** The compressed size of the data file blocks read with this schema. */
+  long getBytesRead();
+
+  /** The compressed size of the data file blocks written with this schema. */
+  long getBytesWritten();
+
+  /** The uncompressed size of the data file blocks read with this schema. */
+  long getBytesDecoded();
+
+  /** The uncompressed size of the data file blocks written with this
+   * schema. */
+  long getBytesEncoded();
+
+  /** Time spent decompressing blocks, in nanoseconds, by codec name. */
+  Map<String, Long> getDecompressNanosByCodec();
+
+  /** Time spent compressing blocks, in nanoseconds, by codec name. */
+  Map<String, Long> getCompressNanosByCodec();
+
+  /** The number of resolving decoder lookups answered from the cache. */
+  long getResolverCacheHits();
+
+  /** The number of resolving decoder lookups that built a new decoder. */
+  long getResolverCacheMisses();
+}
@@ -19,6 +19,7 @@ package org.apache.avro.reflect;
 
 import java.io.IOException;
 import java.lang.annotation.Annotation;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Field;
 import java.lang.reflect.GenericArrayType;
 import java.lang.reflect.Method;
@@ -37,7 +38,6 @@ import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.WeakHashMap;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.avro.AvroRemoteException;
@@ -247,8 +247,8 @@ public class ReflectData extends SpecificData {
     private final Class<?> clazz;
     private final Map<String, FieldAccessor> byName =
         new HashMap<>();
-    //getAccessorsFor is already synchronized, no need to wrap
-    final Map<Schema, FieldAccessor[]> bySchema = new WeakHashMap<>();
+    // copy-on-write: readers never lock, a new array is published per schema
+    volatile AccessorsBySchema[] bySchema = new AccessorsBySchema[0];
 
     private ClassAccessorData(Class<?> c) {
       clazz = c;
@@ -268,13 +268,35 @@ public class ReflectData extends SpecificData {
      * Return the field accessors as an array, indexed by the field
      * index of the given schema.
      */
-    private synchronized FieldAccessor[] getAccessorsFor(Schema schema) {
-      //if synchronized is removed from this method, adjust bySchema appropriately
-      FieldAccessor[] result = bySchema.get(schema);
-      if (result == null) {
-        result = createAccessorsFor(schema);
-        bySchema.put(schema, result);
+    private FieldAccessor[] getAccessorsFor(Schema schema) {
+      for (AccessorsBySchema entry : bySchema) {
+        if (schema.equals(entry.get())) {
+          return entry.accessors;
+        }
+      }
+      return addAccessorsFor(schema);
+    }
+
+    /**
+     * Publish a copy of {@link #bySchema} that includes the given schema and
+     * drops entries whose schema has been garbage collected.
+     */
+    private synchronized FieldAccessor[] addAccessorsFor(Schema schema) {
+      AccessorsBySchema[] current = bySchema;
+      List<AccessorsBySchema> entries = new ArrayList<>(current.length + 1);
+      for (AccessorsBySchema entry : current) {
+        Schema cached = entry.get();
+        if (cached == null) {
+          continue;
+        }
+        if (schema.equals(cached)) {
+          return entry.accessors;  // added by a concurrent caller
+        }
+        entries.add(entry);
       }
+      FieldAccessor[] result = createAccessorsFor(schema);
+      entries.add(new AccessorsBySchema(schema, result));
+      bySchema = entries.toArray(new AccessorsBySchema[0]);
       return result;
     }
 
@@ -297,6 +319,16 @@ public class ReflectData extends SpecificData {
     }
   }
 
+  /** Field accessors for a schema, holding the schema weakly. */
+  static final class AccessorsBySchema extends WeakReference<Schema> {
+    private final FieldAccessor[] accessors;
+
+    private AccessorsBySchema(Schema schema, FieldAccessor[] accessors) {
+      super(schema);
+      this.accessors = accessors;
+    }
+  }
+
   private ClassAccessorData getClassAccessorData(Class<?> c) {
     return ACCESSOR_CACHE.get(c);
   }
@@ -24,7 +24,9 @@ import org.apache.avro.AvroRuntimeException;
  * use.
  *
  * Use of Unsafe on Android is forbidden, as Android provides only a very
- * limited functionality for this class compared to the JDK version.
+ * limited functionality for this class compared to the JDK version. Where
+ * Unsafe is unavailable, method handles are used and plain reflection is the
+ * last resort.
  *
  */
 
@@ -42,7 +44,8 @@ class ReflectionUtil {
     // so it is monomorphic and the JIT can inline
     FieldAccess access = null;
     try {
-      if (null == System.getProperty("avro.disable.unsafe")) {
+      if (null == System.getProperty("avro.disable.unsafe")
+          && !isUnsafeDeprecated()) {
         FieldAccess unsafeAccess = load(
             "org.apache.avro.reflect.FieldAccessUnsafe", FieldAccess.class);
         if (validate(unsafeAccess)) {
@@ -51,6 +54,16 @@ class ReflectionUtil {
       }
     } catch (Throwable ignored) {
     }
+    if (access == null) {
+      try {
+        FieldAccess handleAccess = load(
+            "org.apache.avro.reflect.FieldAccessMethodHandle", FieldAccess.class);
+        if (validate(handleAccess)) {
+          access = handleAccess;
+        }
+      } catch (Throwable ignored) {
+      }
+    }
     if (access == null) {
       try {
         FieldAccess reflectAccess = load(
@@ -66,6 +79,23 @@ class ReflectionUtil {
     fieldAccess = access;
   }
 
+  /**
+   * Unsafe memory access is deprecated for removal and warns at runtime from
+   * Java 24 on, where method handles are used instead, at some cost in
+   * throughput: see {@link FieldAccessMethodHandle}.
+   */
+  static boolean isUnsafeDeprecated() {
+    String version = System.getProperty("java.specification.version", "1.8");
+    if (version.startsWith("1.")) {
+      return false;
+    }
+    try {
+      return Integer.parseInt(version) >= 24;
+    } catch (NumberFormatException e) {
+      return false;
+    }
+  }
+
   private static <T> T load(String name, Class<T> type) throws Exception {
     return ReflectionUtil.class.getClassLoader().loadClass(name)
         .asSubclass(type).newInstance();
@@ -75,7 +105,7 @@ class ReflectionUtil {
     return fieldAccess;
   }
 
-  private static boolean validate(FieldAccess access) throws Exception {
+  static boolean validate(FieldAccess access) throws Exception {
     return new AccessorTestClass().validate(access);
   }
 
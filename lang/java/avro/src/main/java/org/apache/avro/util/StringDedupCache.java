@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.avro.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A bounded cache of canonical string instances, looked up by their UTF-8
+ * bytes.
+ * <p>
+ * Decoders use this cache for low-cardinality string fields, such as country
+ * codes or event types, so that repeated values share one {@link String} or
+ * {@link Utf8} instance instead of allocating a new one per datum. Lookups
+ * hash the encoded bytes in place, so a repeated value is neither copied nor
+ * decoded. The cache is direct-mapped: a value that collides with another
+ * replaces it, which bounds the memory used to {@code maxEntries} values.
+ * <p>
+ * Instances returned by this cache are shared and must not be modified. In
+ * particular, a {@link Utf8} returned by this cache must not be passed as a
+ * reused instance to {@link org.apache.avro.io.Decoder#readString(Utf8)}.
+ * <p>
+ * This class is thread-safe.
+ *
+ * @see org.apache.avro.generic.GenericData#STRING_DEDUP_PROP
+ */
+public class StringDedupCache {
+
+  /** Values longer than this many bytes are not cached. */
+  public static final int MAX_CACHED_LENGTH = 256;
+
+  private final Entry[] table;
+  private final int mask;
+  private final boolean javaStrings;
+
+  /**
+   * Creates a new {@link StringDedupCache}.
+   *
+   * @param maxEntries the maximum number of values to keep
+   * @param javaStrings whether to return {@link String} instances rather than
+   *                    {@link Utf8} instances
+   */
+  public StringDedupCache(int maxEntries, boolean javaStrings) {
+    if (maxEntries <= 0) {
+      throw new IllegalArgumentException(
+          "Cache size must be positive: " + maxEntries);
+    }
+    int size = Integer.highestOneBit(Math.min(maxEntries, 1 << 30));
+    this.table = new Entry[size];
+    this.mask = size - 1;
+    this.javaStrings = javaStrings;
+  }
+
+  /**
+   * Returns whether this cache returns {@link String} instances rather than
+   * {@link Utf8} instances.
+   */
+  public boolean isJavaStrings() {
+    return javaStrings;
+  }
+
+  /**
+   * Returns the canonical instance for a UTF-8 encoded value. The bytes are
+   * copied only if the value is not already cached.
+   *
+   * @param bytes an array that holds the encoded value
+   * @param offset the position of the value in {@code bytes}
+   * @param length the length of the value in bytes
+   * @return a {@link String} or {@link Utf8}, depending on this cache
+   */
+  public Object get(byte[] bytes, int offset, int length) {
+    if (length > MAX_CACHED_LENGTH) {
+      return newValue(Arrays.copyOfRange(bytes, offset, offset + length));
+    }
+
+    int hash = 0;
+    for (int i = offset, end = offset + length; i < end; i += 1) {
+      hash = hash * 31 + bytes[i];
+    }
+
+    int index = (hash ^ (hash >>> 16)) & mask;
+    Entry entry = table[index];
+    if (entry != null && entry.hash == hash &&
+        entry.matches(bytes, offset, length)) {
+      return entry.value;
+    }
+
+    byte[] copy = Arrays.copyOfRange(bytes, offset, offset + length);
+    Object value = newValue(copy);
+    table[index] = new Entry(hash, copy, value);
+    return value;
+  }
+
+  private Object newValue(byte[] copy) {
+    if (javaStrings) {
+      return new String(copy, StandardCharsets.UTF_8);
+    }
+    return new Utf8(copy);
+  }
+
+  private static final class Entry {
+    private final int hash;
+    private final byte[] bytes;
+    private final Object value;
+
+    private Entry(int hash, byte[] bytes, Object value) {
+      this.hash = hash;
+      this.bytes = bytes;
+      this.value = value;
+    }
+
+    private boolean matches(byte[] other, int offset, int length) {
+      if (bytes.length != length) {
+        return false;
+      }
+      for (int i = 0; i < length; i += 1) {
+        if (bytes[i] != other[offset + i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+}
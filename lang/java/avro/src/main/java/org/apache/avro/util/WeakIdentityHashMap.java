@@ -22,10 +22,10 @@ import java.lang.ref.ReferenceQueue;
 import java.lang.ref.WeakReference;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Implements a combination of WeakHashMap and IdentityHashMap.
@@ -39,13 +39,15 @@ import java.util.Set;
  * when comparing objects. This class is designed for use only in the
  * rare cases wherein reference-equality semantics are required.
  *
- * Note that this implementation is not synchronized.
  * </b>
+ *
+ * This implementation is thread-safe: it is backed by a concurrent map, and
+ * lookups take no locks.
  */
 public class WeakIdentityHashMap<K, V> implements Map<K, V> {
   private final ReferenceQueue<K> queue = new ReferenceQueue<>();
   private Map<IdentityWeakReference, V> backingStore
-    = new HashMap<>();
+    = new ConcurrentHashMap<>();
 
   public WeakIdentityHashMap() {}
 
@@ -135,7 +137,7 @@ public class WeakIdentityHashMap<K, V> implements Map<K, V> {
     return backingStore.values();
   }
 
-  private synchronized void reap() {
+  private void reap() {
       Object zombie = queue.poll();
 
       while (zombie != null) {
@@ -35,6 +35,12 @@ public class Accessor {
     protected abstract void addProp(JsonProperties props, String name, JsonNode value);
   }
 
+  public abstract static class SchemaAccessor {
+    protected abstract Object getDerived(Schema schema, Object key);
+
+    protected abstract void putDerived(Schema schema, Object key, Object value);
+  }
+
   public abstract static class FieldAccessor {
     protected abstract JsonNode defaultValue(Field field);
 
@@ -54,6 +60,8 @@ public class Accessor {
 
   private static volatile JsonPropertiesAccessor jsonPropertiesAccessor;
 
+  private static volatile SchemaAccessor schemaAccessor;
+
   private static volatile FieldAccessor fieldAccessor;
 
   private static volatile ResolvingGrammarGeneratorAccessor resolvingGrammarGeneratorAccessor;
@@ -64,6 +72,12 @@ public class Accessor {
     jsonPropertiesAccessor = accessor;
   }
 
+  public static void setAccessor(SchemaAccessor accessor) {
+    if (schemaAccessor != null)
+      throw new IllegalStateException("SchemaAccessor already initialized");
+    schemaAccessor = accessor;
+  }
+
   public static void setAccessor(FieldAccessor accessor) {
     if (fieldAccessor != null)
       throw new IllegalStateException("FieldAccessor already initialized");
@@ -100,6 +114,14 @@ public class Accessor {
     jsonPropertiesAccessor.addProp(props, name, value);
   }
 
+  public static Object getDerived(Schema schema, Object key) {
+    return schemaAccessor.getDerived(schema, key);
+  }
+
+  public static void putDerived(Schema schema, Object key, Object value) {
+    schemaAccessor.putDerived(schema, key, value);
+  }
+
   public static JsonNode defaultValue(Field field) {
     return fieldAccessor.defaultValue(field);
   }
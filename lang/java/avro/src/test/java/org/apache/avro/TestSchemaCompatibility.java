@@ -21,6 +21,7 @@ import static java.util.Arrays.asList;
 import static org.apache.avro.SchemaCompatibility.*;
 import static org.apache.avro.TestSchemas.*;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 import java.io.ByteArrayOutputStream;
 import java.util.*;
@@ -383,6 +384,128 @@ public class TestSchemaCompatibility {
     }
   }
 
+  /** The cache must report the same results as the one-shot check. */
+  @Test
+  public void testCachedReaderWriterCompatibility() {
+    final SchemaCompatibility.Cache cache = new SchemaCompatibility.Cache();
+    for (int pass = 0; pass < 2; pass++) {
+      for (ReaderWriter readerWriter : COMPATIBLE_READER_WRITER_TEST_CASES) {
+        final Schema reader = readerWriter.getReader();
+        final Schema writer = readerWriter.getWriter();
+        assertEquals(checkReaderWriterCompatibility(reader, writer),
+            cache.checkReaderWriterCompatibility(reader, writer));
+      }
+    }
+    assertEquals(checkReaderWriterCompatibility(INT_SCHEMA, STRING_SCHEMA),
+        cache.checkReaderWriterCompatibility(INT_SCHEMA, STRING_SCHEMA));
+  }
+
+  /** Equal schemas parsed independently share the cached result. */
+  @Test
+  public void testCacheIsKeyedBySchemaValue() {
+    final String json = "{\"type\":\"record\",\"name\":\"Node\",\"fields\":["
+        + "{\"name\":\"value\",\"type\":\"int\"},"
+        + "{\"name\":\"next\",\"type\":[\"null\",\"Node\"]}]}";
+    final Schema reader = new Schema.Parser().parse(json);
+    final Schema writer = new Schema.Parser().parse(json);
+    final SchemaCompatibility.Cache cache = new SchemaCompatibility.Cache();
+    final SchemaPairCompatibility first = cache.checkReaderWriterCompatibility(reader, writer);
+    assertEquals(SchemaCompatibilityType.COMPATIBLE, first.getType());
+    assertSame(first, cache.checkReaderWriterCompatibility(
+        new Schema.Parser().parse(json), new Schema.Parser().parse(json)));
+    assertEquals(1, cache.size());
+  }
+
+  /** Shared record results must not hide incompatibilities found later in the history. */
+  @Test
+  public void testCacheSharesOnlyCompatibleRecords() {
+    final Schema reader = outer(inner(INT_SCHEMA));
+    final SchemaCompatibility.Cache cache = new SchemaCompatibility.Cache();
+    assertEquals(SchemaCompatibilityType.COMPATIBLE, cache.checkReaderWriterCompatibility(
+        reader, outer(inner(INT_SCHEMA, INT_SCHEMA))).getType());
+    final Schema incompatibleWriter = outer(inner());
+    assertEquals(checkReaderWriterCompatibility(reader, incompatibleWriter),
+        cache.checkReaderWriterCompatibility(reader, incompatibleWriter));
+    assertEquals(SchemaCompatibilityType.INCOMPATIBLE,
+        cache.checkReaderWriterCompatibility(reader, incompatibleWriter).getType());
+  }
+
+  /** Schemas that are equal but for field aliases must not share cached results. */
+  @Test
+  public void testCacheDistinguishesAliases() {
+    final Schema writer = Schema.createRecord("Inner", null, null, false, list(
+        new Schema.Field("oldName", INT_SCHEMA, null, null)));
+    final Schema.Field renamed = new Schema.Field("newName", INT_SCHEMA, null, null);
+    renamed.addAlias("oldName");
+    final Schema aliased = Schema.createRecord("Inner", null, null, false, list(renamed));
+    final Schema plain = Schema.createRecord("Inner", null, null, false, list(
+        new Schema.Field("newName", INT_SCHEMA, null, null)));
+    assertEquals(aliased, plain);
+
+    final SchemaCompatibility.Cache cache = new SchemaCompatibility.Cache();
+    assertEquals(SchemaCompatibilityType.COMPATIBLE,
+        cache.checkReaderWriterCompatibility(aliased, writer).getType());
+    assertEquals(SchemaCompatibilityType.INCOMPATIBLE,
+        cache.checkReaderWriterCompatibility(plain, writer).getType());
+    // the same for records nested in otherwise identical pairs
+    assertEquals(SchemaCompatibilityType.COMPATIBLE,
+        cache.checkReaderWriterCompatibility(outer(aliased), outer(writer)).getType());
+    assertEquals(SchemaCompatibilityType.INCOMPATIBLE,
+        cache.checkReaderWriterCompatibility(outer(plain), outer(writer)).getType());
+  }
+
+  /** Schemas that are equal but for an enum default must not share cached results. */
+  @Test
+  public void testCacheDistinguishesEnumDefaults() {
+    final Schema writer = Schema.createEnum("E", null, null, list("A", "B", "C"));
+    final Schema withDefault = Schema.createEnum("E", null, null, list("A", "B"), "A");
+    final Schema withoutDefault = Schema.createEnum("E", null, null, list("A", "B"));
+    assertEquals(withDefault, withoutDefault);
+
+    final SchemaCompatibility.Cache cache = new SchemaCompatibility.Cache();
+    assertEquals(SchemaCompatibilityType.COMPATIBLE,
+        cache.checkReaderWriterCompatibility(withDefault, writer).getType());
+    assertEquals(SchemaCompatibilityType.INCOMPATIBLE,
+        cache.checkReaderWriterCompatibility(withoutDefault, writer).getType());
+    assertEquals(SchemaCompatibilityType.COMPATIBLE,
+        cache.checkReaderWriterCompatibility(outer(inner(withDefault)),
+            outer(inner(writer))).getType());
+    assertEquals(SchemaCompatibilityType.INCOMPATIBLE,
+        cache.checkReaderWriterCompatibility(outer(inner(withoutDefault)),
+            outer(inner(writer))).getType());
+  }
+
+  /** Each schema instance is rendered to JSON once, not on every lookup. */
+  @Test
+  public void testCacheRendersEachSchemaOnce() {
+    final Schema reader = outer(inner(INT_SCHEMA));
+    final Schema writer = outer(inner(INT_SCHEMA));
+    final SchemaCompatibility.Cache cache = new SchemaCompatibility.Cache();
+    cache.checkReaderWriterCompatibility(reader, writer);
+    // a property added afterwards would change the JSON: the key is the
+    // JSON remembered for the instance
+    reader.addProp("extra", "value");
+    cache.checkReaderWriterCompatibility(reader, writer);
+    assertEquals(1, cache.size());
+    // an independent copy is rendered anew, so sees the change
+    cache.checkReaderWriterCompatibility(new Schema.Parser().parse(reader.toString()), writer);
+    assertEquals(2, cache.size());
+  }
+
+  private static Schema outer(Schema inner) {
+    return Schema.createRecord("Outer", null, null, false, list(
+        new Schema.Field("first", A_INT_RECORD1, null, null),
+        new Schema.Field("second", inner, null, null)));
+  }
+
+  private static Schema inner(Schema... fieldTypes) {
+    final List<Schema.Field> fields = new ArrayList<>();
+    for (int i = 0; i < fieldTypes.length; i++) {
+      fields.add(new Schema.Field("f" + i, fieldTypes[i], null, null));
+    }
+    return Schema.createRecord("Inner", null, null, false, fields);
+  }
+
   // -----------------------------------------------------------------------------------------------
 
   /**
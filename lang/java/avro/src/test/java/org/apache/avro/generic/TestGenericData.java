@@ -23,6 +23,7 @@ import static org.junit.Assert.*;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.lang.ref.WeakReference;
 import java.nio.ByteBuffer;
 import java.util.*;
 
@@ -38,7 +39,9 @@ import org.apache.avro.SchemaBuilder;
 import org.apache.avro.TestCircularReferences.ReferenceManager;
 import org.apache.avro.generic.GenericData.Record;
 import org.apache.avro.io.BinaryData;
+import org.apache.avro.io.BinaryDecoder;
 import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DecoderFactory;
 import org.apache.avro.io.EncoderFactory;
 import org.apache.avro.util.Utf8;
 import org.junit.Test;
@@ -469,6 +472,103 @@ public class TestGenericData {
     assertEquals(buffer, buffer_copy);
   }
 
+  @Test
+  public void testDeepCopier() {
+    Schema schema = new Schema.Parser().parse("{\"type\":\"record\","
+        + "\"name\":\"Node\",\"fields\":["
+        + "{\"name\":\"label\",\"type\":\"string\"},"
+        + "{\"name\":\"kind\",\"type\":{\"type\":\"enum\","
+        + "\"name\":\"Kind\",\"symbols\":[\"A\",\"B\"]}},"
+        + "{\"name\":\"data\",\"type\":\"bytes\"},"
+        + "{\"name\":\"counts\",\"type\":{\"type\":\"map\","
+        + "\"values\":\"long\"}},"
+        + "{\"name\":\"children\",\"type\":{\"type\":\"array\","
+        + "\"items\":\"Node\"}},"
+        + "{\"name\":\"next\",\"type\":[\"null\",\"Node\"]}]}");
+    GenericData.Record child = node(schema, "child", null);
+    GenericData.Record root = node(schema, "root", child);
+    root.put("next", child);
+
+    DeepCopier<GenericData.Record> copier =
+      GenericData.get().getDeepCopier(schema, false);
+    assertSame(copier, GenericData.get().getDeepCopier(schema, false));
+    GenericData.Record copy = copier.copy(root);
+    assertEquals(GenericData.get().deepCopy(schema, root), copy);
+    assertEquals(root, copy);
+    assertNotSame(root.get("label"), copy.get("label"));
+    assertNotSame(root.get("kind"), copy.get("kind"));
+    assertNotSame(root.get("data"), copy.get("data"));
+    assertNotSame(root.get("next"), copy.get("next"));
+    assertNull(copier.copy(null));
+
+    GenericData.Record shared =
+      GenericData.get().<GenericData.Record>getDeepCopier(schema, true).copy(root);
+    assertEquals(root, shared);
+    assertSame(root.get("label"), shared.get("label"));
+    assertSame(root.get("kind"), shared.get("kind"));
+    assertNotSame(root.get("data"), shared.get("data"));
+    assertNotSame(root.get("children"), shared.get("children"));
+  }
+
+  @Test
+  public void testWeakDeepCopierCaching() {
+    GenericData data = new GenericData();
+    int numSchemas = 100000;
+    List<WeakReference<Schema>> schemas = new ArrayList<>(numSchemas);
+    for (int i = 0; i < numSchemas; i++) {
+      Schema schema = Schema.createRecord("schema", null, null, false);
+      schema.setFields(Collections.singletonList(
+          new Field("f", Schema.create(Type.INT), null, null)));
+      data.getDeepCopier(schema, false);
+      schemas.add(new WeakReference<>(schema));
+    }
+
+    System.gc(); // Not guaranteed, but seems to be reliable enough
+
+    int released = 0;
+    for (WeakReference<Schema> schema : schemas)
+      if (schema.get() == null)
+        released++;
+    assertTrue("GenericData copier cache should release schemas",
+        released > 0);
+  }
+
+  @Test
+  public void testDeepCopierKeptWhileSchemaIs() {
+    GenericData data = new GenericData();
+    Schema schema = Schema.createRecord("schema", null, null, false);
+    schema.setFields(Collections.singletonList(
+        new Field("f", Schema.create(Type.INT), null, null)));
+    WeakReference<DeepCopier<?>> copier =
+      new WeakReference<>(data.getDeepCopier(schema, false));
+
+    System.gc();
+
+    assertNotNull(copier.get());
+    assertSame(copier.get(), data.getDeepCopier(schema, false));
+    assertNotSame(data.getDeepCopier(schema, false),
+        data.getDeepCopier(schema, true));
+  }
+
+  private static GenericData.Record node(Schema schema, String label,
+                                         GenericData.Record child) {
+    GenericData.Record record = new GenericData.Record(schema);
+    record.put("label", new Utf8(label));
+    record.put("kind", new GenericData.EnumSymbol(
+        schema.getField("kind").schema(), "B"));
+    record.put("data", ByteBuffer.wrap(new byte[] {1, 2, 3}));
+    Map<Utf8, Long> counts = new HashMap<>();
+    counts.put(new Utf8(label), 7L);
+    record.put("counts", counts);
+    Schema arraySchema = schema.getField("children").schema();
+    GenericData.Array<GenericData.Record> children =
+      new GenericData.Array<>(1, arraySchema);
+    if (child != null)
+      children.add(child);
+    record.put("children", children);
+    return record;
+  }
+
   @Test
   public void testValidateNullableEnum() {
     List<Schema> unionTypes = new ArrayList<>();
@@ -717,4 +817,135 @@ public class TestGenericData {
     assertNull( list.peek() );
   }
 
+
+  @Test
+  public void testStringDedup() throws IOException {
+    Schema codeSchema = Schema.create(Type.STRING);
+    GenericData.setStringType(codeSchema, GenericData.StringType.String);
+    GenericData.setStringDedup(codeSchema, 64);
+    Schema nameSchema = Schema.create(Type.STRING);
+    GenericData.setStringDedup(nameSchema, 64);
+    Schema schema = SchemaBuilder.record("Event").fields()
+        .name("code").type(codeSchema).noDefault()
+        .name("name").type(nameSchema).noDefault()
+        .name("other").type().stringType().noDefault()
+        .endRecord();
+    assertEquals(64, new Schema.Parser().parse(schema.toString())
+        .getField("code").schema().getObjectProp(GenericData.STRING_DEDUP_PROP));
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+    GenericDatumWriter<Record> writer = new GenericDatumWriter<>(schema);
+    for (int i = 0; i < 2; i += 1) {
+      Record record = new Record(schema);
+      record.put("code", "US");
+      record.put("name", "click");
+      record.put("other", "x");
+      writer.write(record, encoder);
+    }
+    encoder.flush();
+
+    GenericDatumReader<Record> reader = new GenericDatumReader<>(schema);
+    BinaryDecoder decoder = DecoderFactory.get().binaryDecoder(out.toByteArray(), null);
+    Record first = reader.read(null, decoder);
+    Record second = reader.read(first, decoder);
+    Record copy = new Record(schema);
+    copy.put("code", "US");
+    copy.put("name", new Utf8("click"));
+    copy.put("other", new Utf8("x"));
+    assertEquals(copy, second);
+    assertTrue(second.get("code") instanceof String);
+    assertTrue(second.get("name") instanceof Utf8);
+
+    decoder = DecoderFactory.get().binaryDecoder(out.toByteArray(), null);
+    Record third = reader.read(null, decoder);
+    Record fourth = reader.read(null, decoder);
+    assertSame(third.get("code"), fourth.get("code"));
+    assertSame(third.get("name"), fourth.get("name"));
+    assertNotSame(third.get("other"), fourth.get("other"));
+  }
+
+  @Test
+  public void testDatumArena() throws IOException {
+    Schema point = SchemaBuilder.record("Point").fields()
+        .requiredInt("x").requiredString("label").endRecord();
+    Schema schema = SchemaBuilder.record("Shape").fields()
+        .name("origin").type(point).noDefault()
+        .name("points").type().array().items(point).noDefault()
+        .name("named").type().map().values(point).noDefault()
+        .endRecord();
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+    GenericDatumWriter<Record> writer = new GenericDatumWriter<>(schema);
+    List<Record> expected = new ArrayList<>();
+    for (int i = 0; i < 3; i += 1) {
+      Record origin = new GenericRecordBuilder(point)
+          .set("x", i).set("label", "o" + i).build();
+      Record shape = new Record(schema);
+      shape.put("origin", origin);
+      shape.put("points", Arrays.asList(origin, origin));
+      shape.put("named", Collections.singletonMap("a", origin));
+      writer.write(shape, encoder);
+      expected.add(shape);
+    }
+    encoder.flush();
+    byte[] bytes = out.toByteArray();
+
+    GenericDatumReader<Record> reader = new GenericDatumReader<>(schema);
+    DatumArena<Record> arena = new DatumArena<>();
+    List<Record> first = new ArrayList<>(arena.read(reader,
+        DecoderFactory.get().binaryDecoder(bytes, null), 3));
+    assertEquals(3, arena.size());
+    Object nested = first.get(1).get("origin");
+    Object element = ((List<?>) first.get(1).get("points")).get(0);
+    Object mapValue = ((Map<?, ?>) first.get(1).get("named")).get(new Utf8("a"));
+
+    arena.release();
+    List<Record> second = arena.read(reader,
+        DecoderFactory.get().binaryDecoder(bytes, null), 3);
+
+    assertEquals(expected.size(), second.size());
+    for (int i = 0; i < expected.size(); i += 1) {
+      assertEquals(GenericData.get().toString(expected.get(i)),
+          GenericData.get().toString(second.get(i)));
+      assertSame(first.get(i), second.get(i));
+    }
+    assertSame(nested, second.get(1).get("origin"));
+    assertSame(element, ((List<?>) second.get(1).get("points")).get(0));
+    assertSame(mapValue,
+        ((Map<?, ?>) second.get(1).get("named")).get(new Utf8("a")));
+    assertEquals(second, arena.getBatch());
+  }
+
+  @Test
+  public void testReusedMapIsNotCopied() throws IOException {
+    Schema point = SchemaBuilder.record("Point").fields()
+        .requiredInt("x").endRecord();
+    Schema schema = SchemaBuilder.map().values(point);
+    Record origin = new GenericRecordBuilder(point).set("x", 1).build();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+    new GenericDatumWriter<Map<String, Record>>(schema)
+        .write(Collections.singletonMap("a", origin), encoder);
+    encoder.flush();
+    byte[] bytes = out.toByteArray();
+
+    // each read swaps the reused map with a spare rather than copying it,
+    // so two maps alternate and their values are reused
+    GenericDatumReader<Map<Utf8, Record>> reader =
+        new GenericDatumReader<>(schema);
+    List<Map<Utf8, Record>> maps = new ArrayList<>();
+    Map<Utf8, Record> map = null;
+    for (int i = 0; i < 4; i += 1) {
+      map = reader.read(map, DecoderFactory.get().binaryDecoder(bytes, null));
+      assertEquals(1, map.size());
+      maps.add(map);
+    }
+    assertNotSame(maps.get(0), maps.get(1));
+    assertSame(maps.get(0), maps.get(2));
+    assertSame(maps.get(1), maps.get(3));
+    assertSame(maps.get(1).get(new Utf8("a")), maps.get(3).get(new Utf8("a")));
+    assertEquals(1, maps.get(3).get(new Utf8("a")).get("x"));
+  }
 }
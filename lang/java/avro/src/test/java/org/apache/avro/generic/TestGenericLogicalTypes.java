@@ -282,6 +282,11 @@ public class TestGenericLogicalTypes {
     Schema recordArraySchema = Schema.createArray(recordSchema);
     ArrayList recordArray = new ArrayList(Arrays.asList(record));
     checkCopy(recordArray, model.deepCopy(recordArraySchema, recordArray), true);
+
+    // test compiled copiers
+    checkCopy(value, model.getDeepCopier(schema, false).copy(value), false);
+    checkCopy(recordArray,
+        model.getDeepCopier(recordArraySchema, false).copy(recordArray), true);
   }
 
   private void checkCopy(Object original, Object copy, boolean notSame) {
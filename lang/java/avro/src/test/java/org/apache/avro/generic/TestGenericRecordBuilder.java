@@ -95,6 +95,25 @@ public class TestGenericRecordBuilder {
     }
   }
 
+  @Test
+  public void testDefaultValuesSharedOnlyWhenImmutable() {
+    List<Field> fields = new ArrayList<>();
+    fields.add(new Field("count", Schema.create(Type.LONG), null, 42L));
+    fields.add(new Field("label", Schema.create(Type.STRING), null, "x"));
+    fields.add(new Field("tags", Schema.createArray(Schema.create(Type.STRING)),
+        null, Arrays.asList("a", "b")));
+    Schema schema = Schema.createRecord("Defaults", null, "mytest", false, fields);
+
+    Record first = new GenericRecordBuilder(schema).build();
+    Record second = new GenericRecordBuilder(schema).build();
+    Assert.assertEquals(42L, first.get("count"));
+    Assert.assertSame(first.get("count"), second.get("count"));
+    Assert.assertEquals(first.get("label"), second.get("label"));
+    Assert.assertNotSame(first.get("label"), second.get("label"));
+    Assert.assertEquals(first.get("tags"), second.get("tags"));
+    Assert.assertNotSame(first.get("tags"), second.get("tags"));
+  }
+
   /** Creates a test record schema */
   private static Schema recordSchema() {
     List<Field> fields = new ArrayList<>();
@@ -30,6 +30,7 @@ import org.apache.avro.generic.GenericDatumWriter;
 import org.apache.avro.util.ByteBufferInputStream;
 import org.apache.avro.util.ByteBufferOutputStream;
 import org.apache.avro.util.RandomData;
+import org.apache.avro.util.StringDedupCache;
 import org.apache.avro.util.Utf8;
 import org.junit.Assert;
 import org.junit.BeforeClass;
@@ -464,4 +465,50 @@ public class TestBinaryDecoder {
     d.readInt();
   }
 
+  @Test
+  public void testSingleByteVarints() throws IOException {
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    Encoder e = EncoderFactory.get().binaryEncoder(baos, null);
+    long[] values = { 0, -1, 1, 63, -64, 64, -65 };
+    for (long value : values) {
+      e.writeInt((int) value);
+      e.writeLong(value);
+    }
+    e.flush();
+    byte[] bytes = baos.toByteArray();
+
+    Decoder d = newDecoder(new ByteArrayInputStream(bytes));
+    for (long value : values) {
+      Assert.assertEquals((int) value, d.readInt());
+      Assert.assertEquals(value, d.readLong());
+    }
+  }
+
+  @Test
+  public void testReadCachedString() throws IOException {
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    Encoder e = EncoderFactory.get().binaryEncoder(baos, null);
+    e.writeString("US");
+    e.writeString("DE");
+    e.writeString("US");
+    e.writeString("");
+    e.flush();
+    byte[] bytes = baos.toByteArray();
+
+    for (Decoder d : Arrays.asList(newDecoder(bytes),
+        newDecoder(new ByteArrayInputStream(bytes)))) {
+      StringDedupCache cache = new StringDedupCache(16, true);
+      Object first = d.readCachedString(cache);
+      Assert.assertEquals("US", first);
+      Assert.assertEquals("DE", d.readCachedString(cache));
+      Assert.assertSame("Repeated value should be shared",
+          first, d.readCachedString(cache));
+      Assert.assertEquals("", d.readCachedString(cache));
+    }
+
+    StringDedupCache utf8Cache = new StringDedupCache(16, false);
+    Assert.assertEquals(new Utf8("US"),
+        newDecoder(bytes).readCachedString(utf8Cache));
+  }
+
 }
@@ -27,6 +27,7 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.nio.MappedByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -41,6 +42,7 @@ import org.apache.avro.Schema;
 import org.apache.avro.Schema.Type;
 import org.apache.avro.generic.GenericDatumReader;
 import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.util.Utf8;
 import org.junit.Assert;
 import org.junit.Rule;
 import org.junit.Test;
@@ -126,6 +128,29 @@ public class TestEncoders {
     Assert.assertEquals("1"+separator+"2", out.toString());
   }
 
+  @Test
+  public void testJsonEncoderStringsAndBytes() throws IOException {
+    Schema schema = Schema.parse("{\"type\":\"record\",\"name\":\"R\",\"fields\":["
+        + "{\"name\":\"s\",\"type\":\"string\"},"
+        + "{\"name\":\"m\",\"type\":{\"type\":\"map\",\"values\":\"bytes\"}},"
+        + "{\"name\":\"f\",\"type\":{\"type\":\"fixed\",\"name\":\"F\",\"size\":3}}]}");
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    Encoder e = factory.jsonEncoder(schema, out);
+    e.writeString(new Utf8("a\"\u00e9\n"));
+    e.writeMapStart();
+    e.setItemCount(1);
+    e.startItem();
+    e.writeString(new Utf8("k\u00e9"));
+    e.writeBytes(new byte[] {(byte) 0xff, 0x00, '"'});
+    e.writeMapEnd();
+    e.writeFixed(new byte[] {'x', (byte) 0x80, '\\'});
+    e.flush();
+    Assert.assertEquals("{\"s\":\"a\\\"\u00e9\\n\","
+        + "\"m\":{\"k\u00e9\":\"\u00ff\\u0000\\\"\"},"
+        + "\"f\":\"x\u0080\\\\\"}",
+        new String(out.toByteArray(), StandardCharsets.UTF_8));
+  }
+
   @Test
   public void testValidatingEncoderInit() throws IOException {
     Schema s = Schema.parse("\"int\"");
@@ -75,4 +75,29 @@ public class TestJsonDecoder {
     Assert.assertEquals(200, in.readLong());
     in.skipArray();
   }
+
+  @Test public void testReorderNestedFields() throws Exception {
+    String w =
+      "{\"type\":\"record\",\"name\":\"R\",\"fields\":["
+      +"{\"name\":\"id\",\"type\":\"long\"},"
+      +"{\"name\":\"inner\",\"type\":{\"type\":\"record\",\"name\":\"I\","
+      +"\"fields\":[{\"name\":\"x\",\"type\":\"double\"},"
+      +"{\"name\":\"s\",\"type\":[\"null\",\"string\"]}]}},"
+      +"{\"name\":\"tags\",\"type\":{\"type\":\"map\",\"values\":\"int\"}}"
+      +"]}";
+    Schema schema = new Schema.Parser().parse(w);
+    DatumReader<GenericRecord> reader = new GenericDatumReader<>(schema);
+    String data =
+      "{\"tags\":{\"a\":1},\"inner\":{\"s\":{\"string\":\"q\"},\"x\":1.5},\"id\":7}"
+      + "{\"inner\":{\"x\":2.5,\"s\":null},\"tags\":{},\"id\":8}"
+      + "{\"id\":9,\"inner\":{\"s\":null,\"x\":3.5},\"tags\":{\"b\":2}}";
+    Decoder decoder = DecoderFactory.get().jsonDecoder(schema, data);
+    long[] ids = {7L, 8L, 9L};
+    double[] xs = {1.5, 2.5, 3.5};
+    for (int i = 0; i < ids.length; i++) {
+      GenericRecord r = reader.read(null, decoder);
+      Assert.assertEquals(ids[i], r.get("id"));
+      Assert.assertEquals(xs[i], ((GenericRecord) r.get("inner")).get("x"));
+    }
+  }
 }
@@ -244,4 +244,126 @@ public class TestBinaryMessageEncoding {
 
     decoder.decode(buffer);
   }
+
+  @Test
+  public void testDecodeArrayRange() throws Exception {
+    MessageEncoder<Record> encoder = new BinaryMessageEncoder<>(GenericData.get(), SCHEMA_V1);
+    BinaryMessageDecoder<Record> decoder = new BinaryMessageDecoder<>(GenericData.get(), SCHEMA_V1);
+
+    ByteBuffer encoded = encoder.encode(V1_RECORDS.get(2));
+    byte[] message = new byte[encoded.remaining()];
+    encoded.get(message);
+    byte[] padded = new byte[message.length + 7];
+    Arrays.fill(padded, (byte) 0xFF);
+    System.arraycopy(message, 0, padded, 3, message.length);
+
+    Assert.assertEquals(V1_RECORDS.get(2),
+        decoder.decode(padded, 3, message.length, null));
+    Assert.assertEquals(V1_RECORDS.get(2), decoder.decode(message));
+  }
+
+  @Test
+  public void testDecodeSlicedAndDirectBuffers() throws Exception {
+    MessageEncoder<Record> encoder = new BinaryMessageEncoder<>(GenericData.get(), SCHEMA_V1);
+    MessageDecoder<Record> decoder = new BinaryMessageDecoder<>(GenericData.get(), SCHEMA_V1);
+
+    ByteBuffer heap = encoder.encode(V1_RECORDS.get(1));
+    ByteBuffer container = ByteBuffer.allocate(heap.remaining() + 5);
+    container.position(5);
+    container.put(heap.duplicate());
+    container.position(5);
+    ByteBuffer slice = container.slice();
+
+    Assert.assertEquals(V1_RECORDS.get(1), decoder.decode(slice));
+    Assert.assertEquals("Should not change the buffer position",
+        0, slice.position());
+
+    ByteBuffer direct = ByteBuffer.allocateDirect(heap.remaining());
+    direct.put(heap.duplicate());
+    direct.flip();
+
+    Assert.assertEquals(V1_RECORDS.get(1), decoder.decode(direct));
+    Assert.assertEquals("Should not change the buffer position",
+        0, direct.position());
+  }
+
+  @Test
+  public void testDecodeAll() throws Exception {
+    MessageEncoder<Record> v1Encoder = new BinaryMessageEncoder<>(GenericData.get(), SCHEMA_V1);
+    MessageEncoder<Record> v2Encoder = new BinaryMessageEncoder<>(GenericData.get(), SCHEMA_V2);
+    BinaryMessageDecoder<Record> decoder = new BinaryMessageDecoder<>(GenericData.get(), SCHEMA_V2);
+    decoder.addSchema(SCHEMA_V1);
+
+    List<ByteBuffer> buffers = new ArrayList<>();
+    buffers.add(v1Encoder.encode(V1_RECORDS.get(0)));
+    buffers.add(v1Encoder.encode(V1_RECORDS.get(1)));
+    buffers.add(v2Encoder.encode(V2_RECORDS.get(0)));
+    ByteBuffer direct = ByteBuffer.allocateDirect(64);
+    direct.put(v1Encoder.encode(V1_RECORDS.get(2)));
+    direct.flip();
+    buffers.add(direct);
+
+    List<Record> records = decoder.decodeAll(buffers);
+
+    Assert.assertEquals(4, records.size());
+    Assert.assertEquals(1L, records.get(0).get("id"));
+    Assert.assertEquals(2L, records.get(1).get("id"));
+    Assert.assertEquals(V2_RECORDS.get(0), records.get(2));
+    Assert.assertEquals(4L, records.get(3).get("id"));
+    Assert.assertEquals("m-4", records.get(3).get("message").toString());
+  }
+
+  @Test
+  public void testEncodeToByteBuffer() throws Exception {
+    BinaryMessageEncoder<Record> encoder = new BinaryMessageEncoder<>(GenericData.get(), SCHEMA_V2);
+    MessageDecoder<Record> decoder = new BinaryMessageDecoder<>(GenericData.get(), SCHEMA_V2);
+    ByteBuffer expected = encoder.encode(V2_RECORDS.get(0));
+
+    for (ByteBuffer target : Arrays.asList(
+        ByteBuffer.allocate(100), ByteBuffer.allocateDirect(100))) {
+      target.position(3);
+      int length = encoder.encode(V2_RECORDS.get(0), target);
+      Assert.assertEquals(expected.remaining(), length);
+      Assert.assertEquals(3 + length, target.position());
+
+      target.flip();
+      target.position(3);
+      Assert.assertEquals(expected, target);
+      Assert.assertEquals(V2_RECORDS.get(0), decoder.decode(target));
+    }
+  }
+
+  @Test
+  public void testEncodeToByteBufferOverflow() throws Exception {
+    BinaryMessageEncoder<Record> encoder = new BinaryMessageEncoder<>(GenericData.get(), SCHEMA_V2);
+    ByteBuffer target = ByteBuffer.allocate(12);
+    target.position(2);
+
+    Assert.assertEquals(-1, encoder.encode(V2_RECORDS.get(0), target));
+    Assert.assertEquals("Position should not change on overflow",
+        2, target.position());
+  }
+
+  @Test
+  public void testEncodeAllWithPool() throws Exception {
+    BinaryMessageEncoder<Record> encoder = new BinaryMessageEncoder<>(GenericData.get(), SCHEMA_V2);
+    BinaryMessageDecoder<Record> decoder = new BinaryMessageDecoder<>(GenericData.get(), SCHEMA_V2);
+    // smaller than an encoded record so that every record is retried
+    BufferPool pool = new BufferPool(16, 8, true);
+
+    List<ByteBuffer> buffers = encoder.encodeAll(V2_RECORDS, pool);
+    Assert.assertEquals(V2_RECORDS.size(), buffers.size());
+    for (ByteBuffer buffer : buffers) {
+      Assert.assertTrue(buffer.isDirect());
+      Assert.assertEquals(0, buffer.position());
+    }
+    Assert.assertEquals(V2_RECORDS, decoder.decodeAll(buffers));
+
+    BufferPool heapPool = new BufferPool(64, 8);
+    ByteBuffer released = encoder.encodeAll(V2_RECORDS.subList(0, 1), heapPool).get(0);
+    Assert.assertFalse(released.isDirect());
+    heapPool.release(released);
+    Assert.assertSame("Should reuse released buffers",
+        released, heapPool.acquire(64));
+  }
 }
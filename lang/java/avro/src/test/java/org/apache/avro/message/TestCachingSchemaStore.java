@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.avro.message;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.SchemaNormalization;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericData.Record;
+import org.apache.avro.generic.GenericRecordBuilder;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TestCachingSchemaStore {
+  private static final Schema SCHEMA_V1 = SchemaBuilder.record("TestRecord")
+      .fields()
+      .requiredInt("id")
+      .endRecord();
+
+  private static final Schema SCHEMA_V2 = SchemaBuilder.record("TestRecord")
+      .fields()
+      .requiredLong("id")
+      .optionalString("msg")
+      .endRecord();
+
+  private static final long FP_V1 = SchemaNormalization.parsingFingerprint64(SCHEMA_V1);
+  private static final long FP_V2 = SchemaNormalization.parsingFingerprint64(SCHEMA_V2);
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private static class CountingStore implements SchemaStore {
+    private final SchemaStore.Cache delegate = new SchemaStore.Cache();
+    private final AtomicInteger lookups = new AtomicInteger();
+
+    @Override
+    public Schema findByFingerprint(long fingerprint) {
+      lookups.incrementAndGet();
+      return delegate.findByFingerprint(fingerprint);
+    }
+  }
+
+  @Test
+  public void testCachesLoadedSchemas() {
+    CountingStore loader = new CountingStore();
+    loader.delegate.addSchema(SCHEMA_V1);
+    CachingSchemaStore store = new CachingSchemaStore(loader);
+
+    Assert.assertEquals(SCHEMA_V1, store.findByFingerprint(FP_V1));
+    Assert.assertEquals(SCHEMA_V1, store.findByFingerprint(FP_V1));
+
+    Assert.assertEquals(1, loader.lookups.get());
+    Assert.assertEquals(1, store.getMissCount());
+    Assert.assertEquals(1, store.getHitCount());
+    Assert.assertEquals(1, store.getLoadCount());
+    Assert.assertEquals(1, store.size());
+  }
+
+  @Test
+  public void testNegativeCaching() {
+    CountingStore loader = new CountingStore();
+    CachingSchemaStore store = new CachingSchemaStore(loader);
+
+    Assert.assertNull(store.findByFingerprint(FP_V1));
+    Assert.assertNull(store.findByFingerprint(FP_V1));
+    Assert.assertEquals("Missing fingerprint should be cached",
+        1, loader.lookups.get());
+    Assert.assertEquals(1, store.getNegativeHitCount());
+
+    store.addSchema(SCHEMA_V1);
+    Assert.assertEquals("Adding a schema should clear the missing entry",
+        SCHEMA_V1, store.findByFingerprint(FP_V1));
+
+    CachingSchemaStore uncached = new CachingSchemaStore(loader, 0, Runnable::run);
+    uncached.findByFingerprint(FP_V2);
+    uncached.findByFingerprint(FP_V2);
+    Assert.assertEquals(3, loader.lookups.get());
+  }
+
+  @Test
+  public void testLoadFailure() {
+    CachingSchemaStore store = new CachingSchemaStore(fp -> {
+      throw new IllegalStateException("Registry unavailable");
+    });
+
+    try {
+      store.findByFingerprint(FP_V1);
+      Assert.fail("Should propagate the loader failure");
+    } catch (IllegalStateException e) {
+      Assert.assertEquals("Registry unavailable", e.getMessage());
+    }
+    Assert.assertEquals(1, store.getLoadFailureCount());
+    Assert.assertEquals(0, store.getNegativeHitCount());
+  }
+
+  @Test
+  public void testPrefetch() throws Exception {
+    CountingStore loader = new CountingStore();
+    loader.delegate.addSchema(SCHEMA_V2);
+    CachingSchemaStore store = new CachingSchemaStore(loader);
+
+    Assert.assertEquals(SCHEMA_V2, store.prefetch(FP_V2).get());
+    Assert.assertEquals(SCHEMA_V2, store.prefetch(FP_V2).get());
+    Assert.assertEquals(SCHEMA_V2, store.findByFingerprint(FP_V2));
+    Assert.assertEquals(1, loader.lookups.get());
+  }
+
+  @Test
+  public void testDirectorySchemaStore() throws Exception {
+    File dir = temp.newFolder();
+    DirectorySchemaStore directory = new DirectorySchemaStore(dir);
+    Assert.assertNull(directory.findByFingerprint(FP_V1));
+
+    try (OutputStream out = new FileOutputStream(new File(dir, "v1.avsc"))) {
+      out.write(SCHEMA_V1.toString().getBytes(StandardCharsets.UTF_8));
+    }
+    try (OutputStream out = new FileOutputStream(new File(dir, "broken.avsc"))) {
+      out.write("{\"type\": \"record\"".getBytes(StandardCharsets.UTF_8));
+    }
+    Assert.assertEquals("Should pick up new files",
+        SCHEMA_V1, directory.findByFingerprint(FP_V1));
+
+    directory.addSchema(SCHEMA_V2);
+    Assert.assertEquals("Should persist added schemas", SCHEMA_V2,
+        new DirectorySchemaStore(dir).findByFingerprint(FP_V2));
+  }
+
+  @Test
+  public void testDecodeWithDirectoryStore() throws Exception {
+    new DirectorySchemaStore(temp.getRoot()).addSchema(SCHEMA_V1);
+    CachingSchemaStore store = new CachingSchemaStore(temp.getRoot());
+
+    Record v1 = new GenericRecordBuilder(SCHEMA_V1).set("id", 1).build();
+    Record v2 = new GenericRecordBuilder(SCHEMA_V2).set("id", 2L).build();
+    MessageEncoder<Record> v1Encoder = new BinaryMessageEncoder<>(GenericData.get(), SCHEMA_V1);
+    MessageEncoder<Record> v2Encoder = new BinaryMessageEncoder<>(GenericData.get(), SCHEMA_V2);
+    BinaryMessageDecoder<Record> decoder = new BinaryMessageDecoder<>(GenericData.get(), SCHEMA_V2, store);
+
+    List<ByteBuffer> buffers = new ArrayList<>(Arrays.asList(
+        v1Encoder.encode(v1), v2Encoder.encode(v2), v1Encoder.encode(v1)));
+    List<Record> records = decoder.decodeAll(buffers);
+
+    Assert.assertEquals(1L, records.get(0).get("id"));
+    Assert.assertEquals(v2, records.get(1));
+    Assert.assertEquals(1L, records.get(2).get("id"));
+    Assert.assertEquals(1, store.getLoadCount());
+  }
+}
@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.file.CodecFactory;
+import org.apache.avro.file.DataFileStream;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.generic.GenericRecordBuilder;
+import org.apache.avro.io.EncoderFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestAvroMetrics {
+
+  private static final Schema SCHEMA = SchemaBuilder
+      .record("MetricsRecord").namespace("org.apache.avro.metrics.test")
+      .fields()
+      .requiredLong("id")
+      .requiredString("name")
+      .endRecord();
+
+  private final AtomicLong blocksRead = new AtomicLong();
+  private final MetricsListener listener = new MetricsListener() {
+    @Override
+    public void blockRead(SchemaMetrics schema, String codec, long records,
+                          long compressedBytes, long uncompressedBytes,
+                          long decompressNanos) {
+      blocksRead.addAndGet(1);
+    }
+  };
+
+  @Before
+  public void enable() {
+    AvroMetrics.setEnabled(true);
+    AvroMetrics.addListener(listener);
+  }
+
+  @After
+  public void disable() {
+    AvroMetrics.removeListener(listener);
+    AvroMetrics.setEnabled(false);
+  }
+
+  @Test
+  public void testDataFileMetrics() throws Exception {
+    SchemaMetrics metrics = AvroMetrics.forSchema(SCHEMA);
+    long readBefore = metrics.getRecordsRead();
+    long writtenBefore = metrics.getRecordsWritten();
+    long blocksBefore = metrics.getBlocksRead();
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (DataFileWriter<GenericRecord> writer = new DataFileWriter<>(
+        new GenericDatumWriter<GenericRecord>(SCHEMA))) {
+      writer.setCodec(CodecFactory.deflateCodec(6));
+      writer.create(SCHEMA, out);
+      for (long i = 0; i < 100; i += 1) {
+        writer.append(new GenericRecordBuilder(SCHEMA)
+            .set("id", i).set("name", "n" + i).build());
+      }
+    }
+
+    int count = 0;
+    try (DataFileStream<GenericRecord> reader = new DataFileStream<>(
+        new ByteArrayInputStream(out.toByteArray()),
+        new GenericDatumReader<GenericRecord>())) {
+      for (GenericRecord record : reader) {
+        count += 1;
+      }
+    }
+
+    assertEquals(100, count);
+    assertEquals(100, metrics.getRecordsWritten() - writtenBefore);
+    assertEquals(100, metrics.getRecordsRead() - readBefore);
+    assertEquals(1, metrics.getBlocksRead() - blocksBefore);
+    assertEquals(1, blocksRead.get());
+    assertTrue(metrics.getBytesDecoded() > 0);
+    assertTrue(metrics.getDecompressNanosByCodec().containsKey("deflate"));
+    assertTrue(metrics.getCompressNanosByCodec().containsKey("deflate"));
+    assertTrue(metrics.getResolverCacheHits()
+        + metrics.getResolverCacheMisses() > 0);
+  }
+
+  @Test
+  public void testSharedByFingerprint() throws IOException {
+    Schema copy = new Schema.Parser().parse(SCHEMA.toString());
+    SchemaMetrics metrics = AvroMetrics.forSchema(SCHEMA);
+    assertSame(metrics, AvroMetrics.forSchema(copy));
+    assertTrue(AvroMetrics.getAll().contains(metrics));
+    assertEquals("org.apache.avro.metrics.test.MetricsRecord",
+        metrics.getSchemaName());
+
+    AvroMetrics.setEnabled(false);
+    assertNull(AvroMetrics.forSchema(SCHEMA));
+  }
+
+  @Test
+  public void testMBeanRegistration() throws Exception {
+    SchemaMetrics metrics = AvroMetrics.forSchema(SCHEMA);
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    ObjectName name = new ObjectName(
+        "org.apache.avro:type=SchemaMetrics,fingerprint="
+        + metrics.getFingerprint());
+
+    assertTrue(server.isRegistered(name));
+    GenericDatumWriter<GenericRecord> writer = new GenericDatumWriter<>(SCHEMA);
+    writer.write(new GenericRecordBuilder(SCHEMA).set("id", 1L).set("name", "x").build(),
+        EncoderFactory.get().binaryEncoder(new ByteArrayOutputStream(), null));
+    assertEquals(metrics.getRecordsWritten(),
+        server.getAttribute(name, "RecordsWritten"));
+  }
+}
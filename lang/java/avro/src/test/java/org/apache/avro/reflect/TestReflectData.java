@@ -46,6 +46,6 @@ public class TestReflectData {
     System.gc(); // Not guaranteed, but seems to be reliable enough
 
     assertThat("ReflectData cache should release references",
-        classData.bySchema.size(), lessThan(numSchemas));
+        classData.bySchema.length, lessThan(numSchemas));
   }
 }
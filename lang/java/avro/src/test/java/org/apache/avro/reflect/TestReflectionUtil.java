@@ -17,6 +17,9 @@
  */
 package org.apache.avro.reflect;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
 import java.io.IOException;
 import java.io.InputStream;
 
@@ -36,12 +39,31 @@ public class TestReflectionUtil {
     testerClass.getDeclaredMethod("checkUnsafe").invoke(testerClass.newInstance());
   }
 
+  @Test
+  public void testMethodHandleAccess() throws Exception {
+    assertTrue(ReflectionUtil.validate(new FieldAccessMethodHandle()));
+  }
+
+  @Test
+  public void testMethodHandleWhenUnsafeNotExists() throws Exception {
+    ClassLoader cl = new NoUnsafe();
+    Class<?> testerClass = cl.loadClass(Tester.class.getName());
+    Object access = testerClass.getDeclaredMethod("fieldAccess")
+        .invoke(testerClass.newInstance());
+    assertEquals(FieldAccessMethodHandle.class.getName(),
+        access.getClass().getName());
+  }
+
   public static final class Tester {
     public Tester() {}
     public void checkUnsafe() {
       ReflectionUtil.getFieldAccess();
     }
 
+    public Object fieldAccess() {
+      return ReflectionUtil.getFieldAccess();
+    }
+
   }
 
   private static final class NoUnsafe extends ClassLoader {
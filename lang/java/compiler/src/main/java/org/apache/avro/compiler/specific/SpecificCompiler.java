@@ -27,6 +27,8 @@ import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
@@ -124,6 +126,7 @@ public class SpecificCompiler {
   private boolean createAllArgsConstructor = true;
   private String outputCharacterEncoding;
   private boolean enableDecimalLogicalType = false;
+  private boolean shareSchemas = false;
   private final DateTimeLogicalTypeImplementation dateTimeLogicalTypeImplementation;
   private String suffix = ".java";
 
@@ -289,6 +292,20 @@ public class SpecificCompiler {
     this.enableDecimalLogicalType = enableDecimalLogicalType;
   }
 
+  public boolean isShareSchemas() {
+    return this.shareSchemas;
+  }
+
+  /**
+   * Set to true to have each generated record build its schema from the
+   * schemas of the other classes generated by this compiler, rather than
+   * re-parsing their definitions inline.  Named types are then parsed once
+   * and shared across classes.
+   */
+  public void setShareSchemas(boolean shareSchemas) {
+    this.shareSchemas = shareSchemas;
+  }
+
   public DateTimeLogicalTypeImplementation getDateTimeLogicalTypeImplementation() {
     return dateTimeLogicalTypeImplementation;
   }
@@ -739,6 +756,108 @@ public class SpecificCompiler {
 
   private static final Schema NULL_SCHEMA = Schema.create(Schema.Type.NULL);
 
+  /** Utility for template use.  Returns the named types referenced by a
+   * record whose generated classes' schemas it should refer to rather than
+   * define inline.  Only types generated by this compiler are returned, and
+   * only those that cannot reach the record in turn, so that class
+   * initialization never cycles.  Empty unless {@link #setShareSchemas} is
+   * set. */
+  public List<Schema> getSharedSchemas(Schema schema) {
+    if (!shareSchemas || schema.getType() != Schema.Type.RECORD)
+      return Collections.emptyList();
+    Set<String> generated = new HashSet<>();
+    for (Schema s : queue)
+      generated.add(s.getFullName());
+    Map<Schema, Set<String>> reachable = new IdentityHashMap<>();
+    List<Schema> result = new ArrayList<>();
+    Set<String> seen = new HashSet<>();
+    seen.add(schema.getFullName());
+    for (Schema.Field field : schema.getFields())
+      collectSharedSchemas(schema, field.schema(), generated, reachable, seen,
+                           result);
+    return result;
+  }
+
+  private void collectSharedSchemas(Schema record, Schema schema,
+                                    Set<String> generated,
+                                    Map<Schema, Set<String>> reachable,
+                                    Set<String> seen, List<Schema> result) {
+    if (isNamed(schema)) {
+      if (!seen.add(schema.getFullName()))
+        return;                                   // already handled
+      if (generated.contains(schema.getFullName())
+          && !reachableNames(schema, reachable).contains(record.getFullName())) {
+        result.add(schema);                       // refer to its class
+        return;
+      }
+    }
+    switch (schema.getType()) {                   // define inline
+    case RECORD:
+      for (Schema.Field field : schema.getFields())
+        collectSharedSchemas(record, field.schema(), generated, reachable,
+                             seen, result);
+      break;
+    case MAP:
+      collectSharedSchemas(record, schema.getValueType(), generated, reachable,
+                           seen, result);
+      break;
+    case ARRAY:
+      collectSharedSchemas(record, schema.getElementType(), generated,
+                           reachable, seen, result);
+      break;
+    case UNION:
+      for (Schema s : schema.getTypes())
+        collectSharedSchemas(record, s, generated, reachable, seen, result);
+      break;
+    default:
+      break;
+    }
+  }
+
+  private static boolean isNamed(Schema schema) {
+    switch (schema.getType()) {
+    case RECORD: case ENUM: case FIXED: return true;
+    default: return false;
+    }
+  }
+
+  /** Returns the full names of all named types reachable from a schema. */
+  private static Set<String> reachableNames(Schema schema,
+                                            Map<Schema, Set<String>> cache) {
+    Set<String> names = cache.get(schema);
+    if (names == null) {
+      names = new HashSet<>();
+      addReachableNames(schema, names);
+      cache.put(schema, names);
+    }
+    return names;
+  }
+
+  private static void addReachableNames(Schema schema, Set<String> names) {
+    switch (schema.getType()) {
+    case RECORD:
+      if (!names.add(schema.getFullName())) return;
+      for (Schema.Field field : schema.getFields())
+        addReachableNames(field.schema(), names);
+      break;
+    case ENUM: case FIXED:
+      names.add(schema.getFullName());
+      break;
+    case MAP:
+      addReachableNames(schema.getValueType(), names);
+      break;
+    case ARRAY:
+      addReachableNames(schema.getElementType(), names);
+      break;
+    case UNION:
+      for (Schema s : schema.getTypes())
+        addReachableNames(s, names);
+      break;
+    default:
+      break;
+    }
+  }
+
   /** Utility for template use.  Returns the java type for a Schema. */
   public String javaType(Schema schema) {
     return javaType(schema, true);
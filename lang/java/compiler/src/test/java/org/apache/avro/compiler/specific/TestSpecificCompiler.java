@@ -765,4 +765,30 @@ public class TestSpecificCompiler {
     }
     assertEquals(17, optionalFound);
   }
+
+  @Test
+  public void testSharedSchemas() throws Exception {
+    Schema schema = new Schema.Parser().parse("{\"type\":\"record\",\"name\":\"Outer\","
+        + "\"namespace\":\"shared\",\"fields\":["
+        + "{\"name\":\"inner\",\"type\":{\"type\":\"record\",\"name\":\"Inner\",\"fields\":["
+        + "{\"name\":\"kind\",\"type\":{\"type\":\"enum\",\"name\":\"Kind\",\"symbols\":[\"A\",\"B\"]}}]}},"
+        + "{\"name\":\"kinds\",\"type\":{\"type\":\"array\",\"items\":\"Kind\"}},"
+        + "{\"name\":\"node\",\"type\":[\"null\",{\"type\":\"record\",\"name\":\"Node\",\"fields\":["
+        + "{\"name\":\"parent\",\"type\":[\"null\",\"Outer\"]}]}]}]}");
+    SpecificCompiler compiler = new SpecificCompiler(schema);
+    assertTrue(compiler.getSharedSchemas(schema).isEmpty());
+
+    compiler.setShareSchemas(true);
+    // Node refers back to Outer, so it must stay inline to avoid a cycle
+    List<Schema> shared = compiler.getSharedSchemas(schema);
+    assertEquals(2, shared.size());
+    assertEquals("shared.Inner", shared.get(0).getFullName());
+    assertEquals("shared.Kind", shared.get(1).getFullName());
+    assertEquals(schema, new Schema.Parser()
+        .addTypes(shared.toArray(new Schema[shared.size()]))
+        .parse(schema.toString(shared, false)));
+
+    assertCompilesWithJavaCompiler(new File(OUTPUT_DIR.getRoot(), name.getMethodName()),
+        compiler.compile());
+  }
 }
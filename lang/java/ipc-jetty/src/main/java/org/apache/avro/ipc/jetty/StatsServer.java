@@ -1,4 +1,5 @@
 package org.apache.avro.ipc.jetty;
+import org.apache.avro.ipc.stats.MetricsServlet;
 import org.apache.avro.ipc.stats.StatsPlugin;
 import org.apache.avro.ipc.stats.StatsServlet;
 /*
@@ -29,6 +30,8 @@ import org.eclipse.jetty.servlet.ServletHolder;
  *    requestor.addPlugin(plugin);
  *    StatsServer server = new StatsServer(plugin, 8080);
  *
+ *  Besides the HTML view, metrics are served for scraping at /metrics in
+ *  the Prometheus text format and at /metrics.json as JSON.
  *  */
 public class StatsServer {
   Server httpServer;
@@ -46,6 +49,11 @@ public class StatsServer {
 
     handler.addServletWithMapping(new ServletHolder(new StatsServlet(plugin)), "/");
 
+    handler.addServletWithMapping(
+        new ServletHolder(new MetricsServlet(plugin)), "/metrics");
+    handler.addServletWithMapping(
+        new ServletHolder(new MetricsServlet(plugin)), "/metrics.json");
+
     httpServer.start();
   }
 
@@ -26,16 +26,26 @@ import org.apache.avro.ipc.Transceiver;
 import org.apache.avro.ipc.Responder;
 import org.apache.avro.ipc.HttpTransceiver;
 import org.apache.avro.ipc.generic.GenericRequestor;
+import org.apache.avro.ipc.generic.GenericResponder;
 import org.apache.avro.ipc.specific.SpecificRequestor;
 import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
 import org.apache.avro.test.Simple;
 
 import org.junit.Test;
 
+import static org.junit.Assert.assertEquals;
+
 import java.net.URL;
 import java.net.ServerSocket;
 import java.net.SocketTimeoutException;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 public class TestProtocolHttp extends TestProtocolSpecific {
 
@@ -69,6 +79,43 @@ public class TestProtocolHttp extends TestProtocolSpecific {
     }
   }
 
+  /** Test that calls through one transceiver and requestor overlap. */
+  @Test public void testConcurrentRequests() throws Exception {
+    Protocol protocol = Protocol.parse("{\"protocol\": \"Minimal\", "
+        + "\"messages\": { \"m\": {"
+        + "   \"request\": [{\"name\": \"x\", \"type\": \"int\"}], "
+        + "   \"response\": \"int\"} } }");
+    final CyclicBarrier inFlight = new CyclicBarrier(2);
+    Responder responder = new GenericResponder(protocol) {
+      @Override
+      public Object respond(Protocol.Message message, Object request)
+        throws Exception {
+        inFlight.await(10, TimeUnit.SECONDS);    // both calls must arrive
+        return ((GenericRecord)request).get("x");
+      }
+    };
+    Server httpServer = new HttpServer(responder, 0);
+    httpServer.start();
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      final GenericRequestor requestor = new GenericRequestor(protocol,
+        new HttpTransceiver(new URL("http://127.0.0.1:"
+                                    + httpServer.getPort() + "/")));
+      List<Future<Object>> results = new ArrayList<>();
+      for (int i = 0; i < 2; i++) {
+        final GenericRecord params =
+          new GenericData.Record(protocol.getMessages().get("m").getRequest());
+        params.put("x", i);
+        results.add(executor.submit(() -> requestor.request("m", params)));
+      }
+      for (int i = 0; i < 2; i++)
+        assertEquals(i, results.get(i).get(20, TimeUnit.SECONDS));
+    } finally {
+      executor.shutdownNow();
+      httpServer.close();
+    }
+  }
+
   /** Test that Responder ignores one-way with stateless transport. */
   @Test public void testStatelessOneway() throws Exception {
     // a version of the Simple protocol that doesn't declare "ack" one-way
@@ -19,6 +19,7 @@ package org.apache.avro.ipc.jetty;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.io.IOException;
 import java.io.StringWriter;
@@ -28,7 +29,11 @@ import java.util.Random;
 
 import javax.servlet.UnavailableException;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
 import org.apache.avro.AvroRemoteException;
+import org.apache.avro.AvroRuntimeException;
 import org.apache.avro.Protocol;
 import org.apache.avro.Protocol.Message;
 import org.apache.avro.generic.GenericData;
@@ -40,6 +45,7 @@ import org.apache.avro.ipc.Responder;
 import org.apache.avro.ipc.Transceiver;
 import org.apache.avro.ipc.generic.GenericRequestor;
 import org.apache.avro.ipc.generic.GenericResponder;
+import org.apache.avro.ipc.stats.MetricsServlet;
 import org.apache.avro.ipc.stats.StatsPlugin;
 import org.apache.avro.ipc.stats.StatsServlet;
 import org.junit.Test;
@@ -144,6 +150,67 @@ public class TestStatsPluginAndServlet {
 
   }
 
+  /** Fails when x is not 0. */
+  static class FailingResponder extends GenericResponder {
+    public FailingResponder(Protocol local) {
+      super(local);
+    }
+
+    @Override
+    public Object respond(Message message, Object request)
+        throws AvroRemoteException {
+      if (!Integer.valueOf(0).equals(((GenericRecord) request).get("x")))
+        throw new AvroRemoteException("x is not 0");
+      return 1;
+    }
+  }
+
+  @Test
+  public void testMetricsExport() throws IOException {
+    Responder r = new FailingResponder(protocol);
+    StatsPlugin statsPlugin = new StatsPlugin();
+    r.addRPCPlugin(statsPlugin);
+    Transceiver t = new LocalTransceiver(r);
+    makeRequest(t);
+    makeRequest(t);
+    GenericRecord params = new GenericData.Record(message.getRequest());
+    params.put("x", 1);
+    try {
+      new GenericRequestor(protocol, t).request("m", params);
+      fail("Expected an error");
+    } catch (AvroRuntimeException e) {
+      // expected, as m declares no errors
+    }
+    statsPlugin.serverReceiveRequest(makeContext()); // left in flight
+
+    MetricsServlet servlet = new MetricsServlet(statsPlugin);
+    StringWriter w = new StringWriter();
+    servlet.writePrometheus(w);
+    String text = w.toString();
+    assertTrue(text.contains("# TYPE avro_ipc_calls_total counter\n"));
+    assertTrue(text.contains("avro_ipc_calls_total{message=\"m\"} 3\n"));
+    assertTrue(text.contains("avro_ipc_errors_total{message=\"m\"} 1\n"));
+    assertTrue(text.contains("avro_ipc_active_rpcs{message=\"m\"} 1\n"));
+    assertTrue(text.contains(
+        "avro_ipc_latency_seconds{message=\"m\",quantile=\"0.99\"} "));
+    assertTrue(text.contains("avro_ipc_latency_seconds_count{message=\"m\"} 3\n"));
+    assertTrue(text.contains(
+        "avro_ipc_receive_payload_bytes_count{message=\"m\"} 4\n"));
+
+    w = new StringWriter();
+    servlet.writeJson(w);
+    JsonNode json = new ObjectMapper().readTree(w.toString());
+    assertEquals(1, json.get("activeRpcs").asInt());
+    JsonNode m = json.get("messages").get("m");
+    assertEquals(3, m.get("calls").asInt());
+    assertEquals(1, m.get("errors").asInt());
+    assertEquals(1, m.get("active").asInt());
+    assertEquals(3, m.get("latencyMillis").get("count").asInt());
+    assertTrue(m.get("latencyMillis").has("p999"));
+    assertEquals(3, m.get("sendPayloadBytes").get("count").asInt());
+    assertTrue(m.get("sendPayloadBytes").get("max").asDouble() > 0);
+  }
+
   private RPCContext makeContext() {
     RPCContext context = new RPCContext();
     context.setMessage(message);
@@ -18,7 +18,6 @@
 
 package org.apache.avro.ipc.netty;
 
-import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
 import java.util.List;
@@ -30,7 +29,10 @@ import org.apache.avro.ipc.Server;
 import org.apache.avro.ipc.netty.NettyTransportCodec.NettyDataPack;
 import org.apache.avro.ipc.netty.NettyTransportCodec.NettyFrameDecoder;
 import org.apache.avro.ipc.netty.NettyTransportCodec.NettyFrameEncoder;
+import org.apache.avro.ipc.netty.NettyTransceiver.NettyTransceiverThreadFactory;
 import org.jboss.netty.bootstrap.ServerBootstrap;
+import org.jboss.netty.buffer.ChannelBufferFactory;
+import org.jboss.netty.buffer.DirectChannelBufferFactory;
 import org.jboss.netty.channel.Channel;
 import org.jboss.netty.channel.ChannelEvent;
 import org.jboss.netty.channel.ChannelFactory;
@@ -76,6 +78,31 @@ public class NettyServer implements Server {
       this(responder, addr, channelFactory, null);
   }
 
+  /**
+   * Creates a server whose I/O is handled by a fixed number of worker
+   * threads.
+   * @param workerCount the number of I/O worker threads; each one services
+   *                    many connections.
+   * @param directBuffers if true, read data into direct rather than heap
+   *                      buffers.
+   */
+  public NettyServer(Responder responder, InetSocketAddress addr,
+                     int workerCount, boolean directBuffers) {
+    this(responder, addr, new NioServerSocketChannelFactory
+         (Executors.newCachedThreadPool(new NettyTransceiverThreadFactory
+                                        ("Avro NettyServer Boss")), 1,
+          Executors.newCachedThreadPool(new NettyTransceiverThreadFactory
+                                        ("Avro NettyServer I/O Worker")),
+          workerCount),
+         new ChannelPipelineFactory() {
+           @Override
+           public ChannelPipeline getPipeline() throws Exception {
+             return Channels.pipeline();
+           }
+         }, null,
+         directBuffers ? DirectChannelBufferFactory.getInstance() : null);
+  }
+
   /**
    * @param executionHandler if not null, will be inserted into the Netty
    *                         pipeline. Use this when your responder does
@@ -88,6 +115,25 @@ public class NettyServer implements Server {
                      ChannelFactory channelFactory,
                      final ChannelPipelineFactory pipelineFactory,
                      final ExecutionHandler executionHandler) {
+    this(responder, addr, channelFactory, pipelineFactory, executionHandler,
+         null);
+  }
+
+  /**
+   * @param executionHandler if not null, will be inserted into the Netty
+   *                         pipeline. Use this when your responder does
+   *                         long, non-cpu bound processing (see Netty's
+   *                         ExecutionHandler javadoc).
+   * @param pipelineFactory  Avro-related handlers will be added on top of
+   *                         what this factory creates
+   * @param bufferFactory    if not null, used to allocate the buffers that
+   *                         accepted connections read into
+   */
+  public NettyServer(Responder responder, InetSocketAddress addr,
+                     ChannelFactory channelFactory,
+                     final ChannelPipelineFactory pipelineFactory,
+                     final ExecutionHandler executionHandler,
+                     ChannelBufferFactory bufferFactory) {
     this.responder = responder;
     this.channelFactory = channelFactory;
     this.executionHandler = executionHandler;
@@ -105,6 +151,9 @@ public class NettyServer implements Server {
         return p;
       }
     });
+    if (bufferFactory != null) {
+      bootstrap.setOption("child.bufferFactory", bufferFactory);
+    }
     serverChannel = bootstrap.bind(addr);
     allChannels.add(serverChannel);
   }
@@ -184,18 +233,19 @@ public class NettyServer implements Server {
 
     @Override
     public void messageReceived(ChannelHandlerContext ctx, MessageEvent e) {
-      try {
-        NettyDataPack dataPack = (NettyDataPack) e.getMessage();
-        List<ByteBuffer> req = dataPack.getDatas();
-        List<ByteBuffer> res = responder.respond(req, connectionMetadata);
-        // response will be null for oneway messages.
-        if(res != null) {
-          dataPack.setDatas(res);
-          e.getChannel().write(dataPack);
-        }
-      } catch (IOException ex) {
-        LOG.warn("unexpected error");
-      }
+      NettyDataPack dataPack = (NettyDataPack) e.getMessage();
+      List<ByteBuffer> req = dataPack.getDatas();
+      // Write the response once computed, without holding this thread.
+      // Responses are matched to requests by serial, so may be reordered.
+      responder.respondAsync(req, connectionMetadata)
+        .whenComplete((res, error) -> {
+            if (error != null) {
+              LOG.warn("unexpected error", error);
+            } else if (res != null) {   // null for oneway messages
+              dataPack.setDatas(res);
+              e.getChannel().write(dataPack);
+            }
+          });
     }
 
     @Override
@@ -131,6 +131,26 @@ public class NettyTransceiver extends Transceiver {
         connectTimeoutMillis);
   }
 
+  /**
+   * Creates a NettyTransceiver, and attempts to connect to the given address.
+   * @param addr the address to connect to.
+   * @param connectTimeoutMillis maximum amount of time to wait for connection
+   * establishment in milliseconds, or null to use
+   * {@link #DEFAULT_CONNECTION_TIMEOUT_MILLIS}.
+   * @param workerCount the number of I/O worker threads to use.
+   * @throws IOException if an error occurs connecting to the given address.
+   */
+  public NettyTransceiver(InetSocketAddress addr,
+      Long connectTimeoutMillis, int workerCount) throws IOException {
+    this(addr, new NioClientSocketChannelFactory(
+        Executors.newCachedThreadPool(new NettyTransceiverThreadFactory(
+            "Avro " + NettyTransceiver.class.getSimpleName() + " Boss")),
+        Executors.newCachedThreadPool(new NettyTransceiverThreadFactory(
+            "Avro " + NettyTransceiver.class.getSimpleName() + " I/O Worker")),
+        1, workerCount),
+        connectTimeoutMillis);
+  }
+
   /**
    * Creates a NettyTransceiver, and attempts to connect to the given address.
    * {@link #DEFAULT_CONNECTION_TIMEOUT_MILLIS} is used for the connection
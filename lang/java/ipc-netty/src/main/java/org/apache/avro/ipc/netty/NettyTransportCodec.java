@@ -69,7 +69,9 @@ public class NettyTransportCodec {
   /**
    * Protocol encoder which converts NettyDataPack which contains the
    * Responder's output List&lt;ByteBuffer&gt; to ChannelBuffer needed
-   * by Netty.
+   * by Netty.  The buffers are not copied: the pack header and the length
+   * fields are written to a single small buffer whose slices are interleaved
+   * with the data buffers in a composite ChannelBuffer.
    */
   public static class NettyFrameEncoder extends OneToOneEncoder {
 
@@ -84,30 +86,29 @@ public class NettyTransportCodec {
         throws Exception {
       NettyDataPack dataPack = (NettyDataPack)msg;
       List<ByteBuffer> origs = dataPack.getDatas();
-      List<ByteBuffer> bbs = new ArrayList<>(origs.size() * 2 + 1);
-      bbs.add(getPackHeader(dataPack)); // prepend a pack header including serial number and list size
-      for (ByteBuffer b : origs) {
-        bbs.add(getLengthHeader(b)); // for each buffer prepend length field
-        bbs.add(b);
+      int count = origs.size();
+      ByteBuffer headers = ByteBuffer.allocate(8 + 4 * count);
+      // pack header including serial number and list size
+      headers.putInt(dataPack.getSerial());
+      headers.putInt(count);
+      for (ByteBuffer b : origs)
+        headers.putInt(b.remaining());             // length field per buffer
+      headers.flip();
+
+      ByteBuffer[] bbs = new ByteBuffer[count * 2 + 1];
+      bbs[0] = slice(headers, 0, 8);
+      for (int i = 0; i < count; i++) {
+        bbs[2 * i + 1] = slice(headers, 8 + 4 * i, 4);
+        bbs[2 * i + 2] = origs.get(i);
       }
-
-      return ChannelBuffers
-          .wrappedBuffer(bbs.toArray(new ByteBuffer[bbs.size()]));
-    }
-
-    private ByteBuffer getPackHeader(NettyDataPack dataPack) {
-      ByteBuffer header = ByteBuffer.allocate(8);
-      header.putInt(dataPack.getSerial());
-      header.putInt(dataPack.getDatas().size());
-      header.flip();
-      return header;
+      return ChannelBuffers.wrappedBuffer(bbs);
     }
 
-    private ByteBuffer getLengthHeader(ByteBuffer buf) {
-      ByteBuffer header = ByteBuffer.allocate(4);
-      header.putInt(buf.limit());
-      header.flip();
-      return header;
+    private static ByteBuffer slice(ByteBuffer buf, int offset, int length) {
+      ByteBuffer slice = buf.duplicate();
+      slice.position(offset);
+      slice.limit(offset + length);
+      return slice;
     }
   }
 
@@ -164,6 +164,23 @@ public class TestNettyServer {
     Assert.assertEquals(1, numActiveConnections);
   }
 
+  @Test
+  public void testFixedWorkersAndDirectBuffers() throws Exception {
+    Server server2 = new NettyServer(new SpecificResponder(Mail.class,
+        mailService), new InetSocketAddress(0), 2, true);
+    Transceiver transceiver2 = new NettyTransceiver(new InetSocketAddress(
+        server2.getPort()), CONNECT_TIMEOUT_MILLIS, 1);
+    try {
+      Mail proxy2 = SpecificRequestor.getClient(Mail.class, transceiver2);
+      for (int x = 0; x < 5; x++) {
+        verifyResponse(proxy2.send(createMessage()));
+      }
+    } finally {
+      transceiver2.close();
+      server2.close();
+    }
+  }
+
   private Message createMessage() {
     Message msg = Message.newBuilder().
       setTo("wife").
@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.avro.ipc.netty;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.avro.ipc.Responder;
+import org.apache.avro.ipc.Server;
+import org.apache.avro.ipc.Transceiver;
+import org.apache.avro.ipc.specific.SpecificRequestor;
+import org.apache.avro.ipc.specific.SpecificResponder;
+import org.apache.avro.specific.SpecificData;
+import org.apache.avro.test.Simple;
+import org.apache.avro.test.TestError;
+import org.jboss.netty.channel.socket.nio.NioServerSocketChannelFactory;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Tests RPCs whose responses are futures, on both client and server.
+ */
+public class TestNettyServerWithFutures {
+  private static final long DELAY_MILLIS = 200;
+
+  /** {@link Simple}, with its responses as futures. */
+  public interface SimpleAsync {
+    CompletableFuture<String> hello(String greeting);
+    CompletableFuture<Void> error();
+  }
+
+  /** Completes responses later, from a timer thread. */
+  private static class SlowSimpleImpl implements SimpleAsync {
+    private final ScheduledExecutorService timer =
+      Executors.newSingleThreadScheduledExecutor();
+
+    @Override
+    public CompletableFuture<String> hello(String greeting) {
+      CompletableFuture<String> result = new CompletableFuture<>();
+      timer.schedule(() -> result.complete("Hello, " + greeting),
+                     DELAY_MILLIS, TimeUnit.MILLISECONDS);
+      return result;
+    }
+
+    @Override
+    public CompletableFuture<Void> error() {
+      CompletableFuture<Void> result = new CompletableFuture<>();
+      timer.schedule(() -> result.completeExceptionally
+                     (TestError.newBuilder().setMessage$("an error").build()),
+                     DELAY_MILLIS, TimeUnit.MILLISECONDS);
+      return result;
+    }
+  }
+
+  private static SlowSimpleImpl impl;
+  private static Server server;
+  private static Transceiver transceiver;
+  private static SimpleAsync client;
+
+  @BeforeClass
+  public static void initializeConnections() throws Exception {
+    impl = new SlowSimpleImpl();
+    Responder responder = new SpecificResponder(Simple.class, impl);
+    server = new NettyServer(responder, new InetSocketAddress(0),
+                             new NioServerSocketChannelFactory
+                             (Executors.newCachedThreadPool(),
+                              Executors.newCachedThreadPool(), 1));
+    server.start();
+    transceiver = new NettyTransceiver(new InetSocketAddress(
+        server.getPort()), TestNettyServer.CONNECT_TIMEOUT_MILLIS);
+    client = SpecificRequestor.getClient(SimpleAsync.class,
+        new SpecificRequestor(Simple.PROTOCOL, transceiver,
+                              new SpecificData(Simple.class.getClassLoader())));
+  }
+
+  @AfterClass
+  public static void tearDownConnections() throws Exception {
+    if (transceiver != null) {
+      transceiver.close();
+    }
+    if (server != null) {
+      server.close();
+    }
+    if (impl != null) {
+      impl.timer.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testConcurrentSlowCalls() throws Exception {
+    Assert.assertEquals("Hello, first", client.hello("first").get());
+
+    // a single server worker thread serves all calls at once
+    int calls = 50;
+    long start = System.nanoTime();
+    List<CompletableFuture<String>> results = new ArrayList<>();
+    for (int i = 0; i < calls; i++)
+      results.add(client.hello("call " + i));
+    for (int i = 0; i < calls; i++)
+      Assert.assertEquals("Hello, call " + i,
+                          results.get(i).get(10, TimeUnit.SECONDS));
+    long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    Assert.assertTrue("took " + elapsed + "ms",
+                      elapsed < calls * DELAY_MILLIS / 2);
+  }
+
+  @Test
+  public void testBlockingClient() throws Exception {
+    try (Transceiver blocking = new NettyTransceiver(new InetSocketAddress(
+        server.getPort()), TestNettyServer.CONNECT_TIMEOUT_MILLIS)) {
+      Simple simple = SpecificRequestor.getClient(Simple.class, blocking);
+      Assert.assertEquals("Hello, there", simple.hello("there"));
+    }
+  }
+
+  @Test
+  public void testError() throws Exception {
+    try {
+      client.error().get(10, TimeUnit.SECONDS);
+      Assert.fail("Expected " + TestError.class.getCanonicalName());
+    } catch (ExecutionException e) {
+      Assert.assertTrue(e.getCause().toString(),
+                        e.getCause() instanceof TestError);
+      Assert.assertEquals("an error",
+                          ((TestError)e.getCause()).getMessage$());
+    }
+  }
+}
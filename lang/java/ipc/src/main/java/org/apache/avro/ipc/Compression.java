@@ -0,0 +1,244 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.avro.ipc;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import org.apache.avro.file.Codec;
+import org.apache.avro.file.CodecFactory;
+import org.apache.avro.file.DataFileConstants;
+import org.apache.avro.io.BinaryData;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
+import org.apache.commons.compress.compressors.xz.XZCompressorInputStream;
+import org.apache.commons.compress.compressors.zstandard.ZstdCompressorInputStream;
+
+/**
+ * Compression of RPC calls with a {@link Codec} negotiated through handshake
+ * metadata.
+ *
+ * <p>A client offers the codecs it supports, in order of preference, as a
+ * comma-separated list under {@link #META} in its handshake request.  A
+ * server picks the first it also supports and names it under the same key
+ * in its handshake response.  From then on, the part of each request and
+ * response that follows any handshake starts with a marker: zero for data
+ * sent as is, or one for data compressed with the codec and written as Avro
+ * <code>bytes</code>.  Data smaller than a threshold, or which does not
+ * shrink, is sent as is.
+ *
+ * <p>A request carrying a handshake is never compressed, since the client
+ * does not yet know the server's choice, but the response to it is.  So
+ * stateless transports such as HTTP compress responses only.
+ *
+ * <p>Since a small compressed call may inflate to a huge one, a call whose
+ * data would exceed a maximum size once decompressed fails instead.  The
+ * built-in codecs are decompressed incrementally, so such a call is
+ * rejected before its data is held in memory; other codecs are checked
+ * once decompressed.
+ */
+class Compression {
+  /** Handshake metadata key for the offered and chosen codecs. */
+  static final String META = "avro.codec";
+
+  /** Size in bytes below which calls are sent uncompressed by default. */
+  static final int DEFAULT_THRESHOLD = 1024;
+
+  /** Size in bytes above which decompressed calls fail by default. */
+  static final int DEFAULT_MAX_SIZE = 64 * 1024 * 1024;
+
+  private static final ThreadLocal<Map<String, Codec>> CODECS =
+    ThreadLocal.withInitial(HashMap::new);
+
+  private final int threshold;
+  private final int maxSize;
+  private final List<String> codecs;
+  private final ByteBuffer offer;
+
+  Compression(int threshold, String... codecs) {
+    this(threshold, DEFAULT_MAX_SIZE, codecs);
+  }
+
+  Compression(int threshold, int maxSize, String... codecs) {
+    if (codecs.length == 0)
+      throw new IllegalArgumentException("No codecs given");
+    if (maxSize <= 0)
+      throw new IllegalArgumentException("Invalid maximum size: "+maxSize);
+    for (String codec : codecs)
+      CodecFactory.fromString(codec);             // fail early if unknown
+    this.threshold = threshold;
+    this.maxSize = maxSize;
+    this.codecs = Arrays.asList(codecs.clone());
+    this.offer = ByteBuffer.wrap(String.join(",", codecs)
+                                 .getBytes(StandardCharsets.UTF_8));
+  }
+
+  int getThreshold() { return threshold; }
+
+  int getMaxSize() { return maxSize; }
+
+  /** Adds this side's codecs to a handshake request's metadata. */
+  void offer(Map<String, ByteBuffer> meta) {
+    meta.put(META, offer.duplicate());
+  }
+
+  /** Returns the first offered codec that this side supports, or null. */
+  String choose(Map<String, ByteBuffer> meta) {
+    String offered = get(meta);
+    if (offered != null)
+      for (String codec : offered.split(","))
+        if (codecs.contains(codec))
+          return codec;
+    return null;
+  }
+
+  /** Returns the codec named in handshake metadata, or null. */
+  static String get(Map<String, ByteBuffer> meta) {
+    ByteBuffer value = meta == null ? null : meta.get(META);
+    if (value == null)
+      return null;
+    return StandardCharsets.UTF_8.decode(value.duplicate()).toString();
+  }
+
+  /** Prefixes a call with its marker, compressing it if large enough. */
+  static List<ByteBuffer> compress(List<ByteBuffer> call, String codec,
+                                   int threshold) throws IOException {
+    int length = 0;
+    for (ByteBuffer buffer : call)
+      length += buffer.remaining();
+    List<ByteBuffer> result = new ArrayList<>(call.size() + 1);
+    if (length >= threshold) {
+      ByteBuffer data = ByteBuffer.allocate(length);
+      for (ByteBuffer buffer : call)
+        data.put(buffer.duplicate());
+      data.flip();
+      ByteBuffer compressed = codec(codec).compress(data);
+      if (compressed.remaining() < length) {
+        byte[] header = new byte[1 + 5];
+        header[0] = 2;                            // zig-zag encoded 1
+        int size = 1 + BinaryData.encodeInt(compressed.remaining(), header, 1);
+        result.add(ByteBuffer.wrap(header, 0, size));
+        result.add(compressed.slice());
+        return result;
+      }
+    }
+    result.add(ByteBuffer.wrap(new byte[] { 0 }));
+    result.addAll(call);
+    return result;
+  }
+
+  /** Reads a call's marker, returning a decoder for the call's data.
+   * @throws IOException if the data exceeds <code>maxSize</code> bytes once
+   * decompressed */
+  static BinaryDecoder decompress(BinaryDecoder in, String codec, int maxSize)
+    throws IOException {
+    if (in.readInt() == 0)
+      return in;
+    ByteBuffer data = decompress(in.readBytes(null), codec, maxSize);
+    return DecoderFactory.get().binaryDecoder(data.array(),
+        data.arrayOffset() + data.position(), data.remaining(), null);
+  }
+
+  private static ByteBuffer decompress(ByteBuffer data, String codec,
+                                       int maxSize) throws IOException {
+    InputStream in = new ByteArrayInputStream(data.array(),
+        data.arrayOffset() + data.position(), data.remaining());
+    switch (codec) {
+    case DataFileConstants.NULL_CODEC:
+      return data;
+    case DataFileConstants.DEFLATE_CODEC:
+      Inflater inflater = new Inflater(true);     // as DeflateCodec
+      try {
+        return read(new InflaterInputStream(in, inflater), maxSize);
+      } finally {
+        inflater.end();
+      }
+    case DataFileConstants.BZIP2_CODEC:
+      return read(new BZip2CompressorInputStream(in), maxSize);
+    case DataFileConstants.XZ_CODEC:
+      return read(new XZCompressorInputStream(in), maxSize);
+    case DataFileConstants.ZSTANDARD_CODEC:
+      return read(new ZstdCompressorInputStream(in), maxSize);
+    case DataFileConstants.SNAPPY_CODEC:
+      // snappy data starts with its length, which it inflates to exactly
+      checkSize(snappyLength(data), maxSize);
+      return codec(codec).decompress(data);
+    default:
+      ByteBuffer result = codec(codec).decompress(data);
+      checkSize(result.remaining(), maxSize);
+      return result;
+    }
+  }
+
+  /* Reads a stream to its end, failing as soon as it exceeds maxSize. */
+  private static ByteBuffer read(InputStream in, int maxSize)
+    throws IOException {
+    try (InputStream stream = in) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      byte[] buffer = new byte[8192];
+      int n;
+      while ((n = stream.read(buffer)) != -1) {
+        checkSize((long)out.size() + n, maxSize);
+        out.write(buffer, 0, n);
+      }
+      return ByteBuffer.wrap(out.toByteArray());
+    }
+  }
+
+  private static void checkSize(long size, int maxSize) throws IOException {
+    if (size > maxSize)
+      throw new IOException("Decompressed call exceeds "+maxSize+" bytes");
+  }
+
+  /* Decodes the little-endian base 128 length that starts snappy data. */
+  private static long snappyLength(ByteBuffer data) throws IOException {
+    long length = 0;
+    for (int i = 0; i < 5 && i < data.remaining(); i++) {
+      int b = data.get(data.position() + i);
+      length |= (long)(b & 0x7f) << (7 * i);
+      if ((b & 0x80) == 0)
+        return length;
+    }
+    throw new IOException("Invalid snappy data");
+  }
+
+  /* Codecs are not thread-safe, but are costly to create, so each thread
+   * keeps its own. */
+  private static Codec codec(String name) {
+    Map<String, Codec> codecs = CODECS.get();
+    Codec codec = codecs.get(name);
+    if (codec == null) {
+      codec = CodecFactory.fromString(name).newCodec();
+      codecs.put(name, codec);
+    }
+    return codec;
+  }
+}
@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.avro.ipc;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import org.apache.avro.Schema;
+import org.apache.avro.io.DatumReader;
+import org.apache.avro.io.DatumWriter;
+
+/**
+ * Caches the {@link DatumReader}s and {@link DatumWriter}s used by a
+ * {@link Requestor} or {@link Responder}, so that each is created once per
+ * schema, or per pair of writer and reader schemas, rather than on every
+ * call.  Remote protocols are parsed once per handshake, so a pair of
+ * schemas identifies a message of a particular remote protocol.
+ *
+ * Readers and writers are shared by concurrent calls, so the factories must
+ * create instances that may be used by several threads at once.  The
+ * generic, specific and reflect implementations qualify: each thread decodes
+ * with its own resolver, and their per-schema caches are safe to share.
+ */
+public class DatumCache {
+  private final Map<Schema, DatumWriter<Object>> writers =
+    new ConcurrentHashMap<>();
+  private final Map<Schema, Map<Schema, DatumReader<Object>>> readers =
+    new ConcurrentHashMap<>();
+
+  /** Returns the writer for a schema, calling <code>factory</code> only the
+   * first time the schema is seen. */
+  public DatumWriter<Object> getWriter(Schema schema,
+      Function<Schema, DatumWriter<Object>> factory) {
+    DatumWriter<Object> writer = writers.get(schema);
+    if (writer == null)
+      writer = writers.computeIfAbsent(schema, factory);
+    return writer;
+  }
+
+  /** Returns the reader for a pair of schemas, calling <code>factory</code>
+   * only the first time the pair is seen. */
+  public DatumReader<Object> getReader(Schema writer, Schema reader,
+      BiFunction<Schema, Schema, DatumReader<Object>> factory) {
+    Map<Schema, DatumReader<Object>> byReader = readers.get(writer);
+    if (byReader == null)
+      byReader = readers.computeIfAbsent(writer,
+                                         w -> new ConcurrentHashMap<>());
+    DatumReader<Object> datumReader = byReader.get(reader);
+    if (datumReader == null)
+      datumReader = byReader.computeIfAbsent(reader,
+                                             r -> factory.apply(writer, r));
+    return datumReader;
+  }
+}
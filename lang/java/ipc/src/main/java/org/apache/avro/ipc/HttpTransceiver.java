@@ -29,7 +29,17 @@ import java.util.List;
 import java.net.URL;
 import java.net.HttpURLConnection;
 
-/** An HTTP-based {@link Transceiver} implementation. */
+/**
+ * An HTTP-based {@link Transceiver} implementation.
+ *
+ * <p>Each two-way call made through {@link #transceive(List)} uses its own
+ * {@link HttpURLConnection}, so calls from many threads may be in flight at
+ * once.  The request body is streamed with a fixed length rather than
+ * buffered, and the response is read to its end and closed, so that the
+ * JDK keeps the underlying socket alive and reuses it for later calls.  The
+ * number of idle sockets kept per server is set by the JDK's
+ * <code>http.maxConnections</code> system property.
+ */
 public class HttpTransceiver extends Transceiver {
   static final String CONTENT_TYPE = "avro/binary";
 
@@ -50,17 +60,28 @@ public class HttpTransceiver extends Transceiver {
 
   public String getRemoteName() { return this.url.toString(); }
 
+  /** Every HTTP request carries its own handshake. */
+  @Override
+  public boolean isStateless() { return true; }
+
+  @Override
+  public List<ByteBuffer> transceive(List<ByteBuffer> request)
+    throws IOException {
+    return readBuffers(post(request));
+  }
+
   public synchronized List<ByteBuffer> readBuffers() throws IOException {
-    InputStream in = connection.getInputStream();
-    try {
-      return readBuffers(in);
-    } finally {
-      in.close();
-    }
+    return readBuffers(connection);
   }
 
   public synchronized void writeBuffers(List<ByteBuffer> buffers)
     throws IOException {
+    connection = post(buffers);
+  }
+
+  /* Opens a connection, possibly a kept-alive one, and streams a request. */
+  private HttpURLConnection post(List<ByteBuffer> buffers) throws IOException {
+    HttpURLConnection connection;
     if (proxy == null)
       connection = (HttpURLConnection)url.openConnection();
     else
@@ -68,8 +89,7 @@ public class HttpTransceiver extends Transceiver {
 
     connection.setRequestMethod("POST");
     connection.setRequestProperty("Content-Type", CONTENT_TYPE);
-    connection.setRequestProperty("Content-Length",
-                                  Integer.toString(getLength(buffers)));
+    connection.setFixedLengthStreamingMode(getLength(buffers));
     connection.setDoOutput(true);
     connection.setReadTimeout(timeout);
     connection.setConnectTimeout(timeout);
@@ -80,6 +100,35 @@ public class HttpTransceiver extends Transceiver {
     } finally {
       out.close();
     }
+    return connection;
+  }
+
+  /* Reads a response to its end, so that the socket may be reused. */
+  private static List<ByteBuffer> readBuffers(HttpURLConnection connection)
+    throws IOException {
+    InputStream in;
+    try {
+      in = connection.getInputStream();
+    } catch (IOException e) {
+      drain(connection.getErrorStream());
+      throw e;
+    }
+    try {
+      return readBuffers(in);
+    } finally {
+      in.close();
+    }
+  }
+
+  private static void drain(InputStream in) throws IOException {
+    if (in == null)
+      return;
+    try {
+      byte[] buffer = new byte[4096];
+      while (in.read(buffer) >= 0) {}
+    } finally {
+      in.close();
+    }
   }
 
   static int getLength(List<ByteBuffer> buffers) {
@@ -95,40 +144,55 @@ public class HttpTransceiver extends Transceiver {
   static List<ByteBuffer> readBuffers(InputStream in)
     throws IOException {
     List<ByteBuffer> buffers = new ArrayList<>();
+    byte[] header = new byte[4];
     while (true) {
-      int length = (in.read()<<24)+(in.read()<<16)+(in.read()<<8)+in.read();
+      readFully(in, header, 0, 4);
+      int length = ((header[0] & 0xff) << 24) | ((header[1] & 0xff) << 16)
+        | ((header[2] & 0xff) << 8) | (header[3] & 0xff);
       if (length == 0) {                       // end of buffers
         return buffers;
       }
       ByteBuffer buffer = ByteBuffer.allocate(length);
-      while (buffer.hasRemaining()) {
-        int p = buffer.position();
-        int i = in.read(buffer.array(), p, buffer.remaining());
-        if (i < 0)
-          throw new EOFException("Unexpected EOF");
-        buffer.position(p+i);
-      }
-      buffer.flip();
+      readFully(in, buffer.array(), 0, length);
       buffers.add(buffer);
     }
   }
 
+  private static void readFully(InputStream in, byte[] b, int off, int len)
+    throws IOException {
+    while (len > 0) {
+      int i = in.read(b, off, len);
+      if (i < 0)
+        throw new EOFException("Unexpected EOF");
+      off += i;
+      len -= i;
+    }
+  }
+
   static void writeBuffers(List<ByteBuffer> buffers, OutputStream out)
     throws IOException {
+    byte[] header = new byte[4];
     for (ByteBuffer buffer : buffers) {
-      writeLength(buffer.limit(), out);           // length-prefix
-      out.write(buffer.array(), buffer.position(), buffer.remaining());
-      buffer.position(buffer.limit());
+      writeLength(buffer.remaining(), header, out);  // length-prefix
+      if (buffer.hasArray()) {
+        out.write(buffer.array(), buffer.arrayOffset() + buffer.position(),
+                  buffer.remaining());
+        buffer.position(buffer.limit());
+      } else {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        out.write(bytes);
+      }
     }
-    writeLength(0, out);                          // null-terminate
+    writeLength(0, header, out);                   // null-terminate
   }
 
-  private static void writeLength(int length, OutputStream out)
+  private static void writeLength(int length, byte[] header, OutputStream out)
     throws IOException {
-    out.write(0xff & (length >>> 24));
-    out.write(0xff & (length >>> 16));
-    out.write(0xff & (length >>> 8));
-    out.write(0xff & length);
+    header[0] = (byte)(length >>> 24);
+    header[1] = (byte)(length >>> 16);
+    header[2] = (byte)(length >>> 8);
+    header[3] = (byte)length;
+    out.write(header, 0, 4);
   }
 }
-
@@ -0,0 +1,475 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.ipc;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.avro.Protocol;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** A {@link Transceiver} that spreads calls over a pool of connections to
+ * one or more endpoints.  It may be passed to any {@link Requestor} in place
+ * of a single transceiver.
+ *
+ * <p>Each call is sent over one pooled connection, chosen either round-robin
+ * or as the connection with the fewest outstanding calls.  Connections are
+ * opened lazily and complete their own handshakes.  A connection that fails
+ * with an {@link IOException} is closed and ejected from the pool; it is
+ * reopened after a backoff delay that doubles with each consecutive failure,
+ * up to a maximum.
+ *
+ * <p>A connection is chosen when a {@link Requestor} first asks whether the
+ * transceiver is connected while preparing a call, and is kept by the calling
+ * thread until the call is sent, or until a blocking call's response is read,
+ * so that the handshake state of the chosen connection is used throughout.  If that connection is ejected before the
+ * call is sent, sending fails with an {@link IOException} rather than going
+ * over another connection, whose handshake state may differ.
+ *
+ * <p>Endpoints may serve different versions of a protocol: each connection
+ * keeps the remote protocol of its own handshake, and the {@link Requestor}
+ * reads each response with the protocol of the connection it came over.
+ */
+public class PooledTransceiver extends Transceiver {
+  private static final Logger LOG =
+    LoggerFactory.getLogger(PooledTransceiver.class);
+
+  /** Creates the transceivers for pooled connections. */
+  public interface TransceiverFactory {
+    Transceiver create(SocketAddress address) throws IOException;
+  }
+
+  /** How a connection is chosen for each call. */
+  public enum Selection { ROUND_ROBIN, LEAST_OUTSTANDING }
+
+  public static final long DEFAULT_MIN_BACKOFF_MILLIS = 100;
+  public static final long DEFAULT_MAX_BACKOFF_MILLIS = 30 * 1000;
+
+  private final List<SocketAddress> endpoints;
+  private final List<Member> members;
+  private final TransceiverFactory factory;
+  private final Selection selection;
+  private final long minBackoffNanos;
+  private final long maxBackoffNanos;
+  private final AtomicInteger next = new AtomicInteger();
+  private final ThreadLocal<Connection> current = new ThreadLocal<>();
+  private volatile boolean closed;
+
+  /** Create a pool that chooses the connection with the fewest outstanding
+   * calls.
+   * @param endpoints the addresses to connect to.
+   * @param connectionsPerEndpoint the number of connections to each address.
+   * @param factory creates the transceiver for each connection. */
+  public PooledTransceiver(List<? extends SocketAddress> endpoints,
+                           int connectionsPerEndpoint,
+                           TransceiverFactory factory) {
+    this(endpoints, connectionsPerEndpoint, factory,
+         Selection.LEAST_OUTSTANDING, DEFAULT_MIN_BACKOFF_MILLIS,
+         DEFAULT_MAX_BACKOFF_MILLIS);
+  }
+
+  /** Create a pool.
+   * @param endpoints the addresses to connect to.
+   * @param connectionsPerEndpoint the number of connections to each address.
+   * @param factory creates the transceiver for each connection.
+   * @param selection how a connection is chosen for each call.
+   * @param minBackoffMillis delay before reopening a failed connection.
+   * @param maxBackoffMillis the longest such delay. */
+  public PooledTransceiver(List<? extends SocketAddress> endpoints,
+                           int connectionsPerEndpoint,
+                           TransceiverFactory factory, Selection selection,
+                           long minBackoffMillis, long maxBackoffMillis) {
+    if (endpoints.isEmpty())
+      throw new IllegalArgumentException("No endpoints");
+    if (connectionsPerEndpoint < 1)
+      throw new IllegalArgumentException("Invalid connections per endpoint: "
+                                         + connectionsPerEndpoint);
+    this.endpoints = Collections.unmodifiableList(new ArrayList<>(endpoints));
+    this.factory = factory;
+    this.selection = selection;
+    this.minBackoffNanos = TimeUnit.MILLISECONDS.toNanos(minBackoffMillis);
+    this.maxBackoffNanos = TimeUnit.MILLISECONDS.toNanos(maxBackoffMillis);
+    List<Member> members = new ArrayList<>();
+    for (int i = 0; i < connectionsPerEndpoint; i++)
+      for (SocketAddress endpoint : endpoints)    // interleave endpoints
+        members.add(new Member(endpoint));
+    this.members = Collections.unmodifiableList(members);
+  }
+
+  /** The addresses this pool connects to. */
+  public List<SocketAddress> getEndpoints() { return endpoints; }
+
+  /** The number of pooled connections that are currently open. */
+  public int getOpenConnections() {
+    int count = 0;
+    for (Member m : members)
+      if (m.transceiver != null)
+        count++;
+    return count;
+  }
+
+  /** The number of calls sent but not yet answered. */
+  public int getOutstandingCalls() {
+    int count = 0;
+    for (Member m : members)
+      count += m.outstanding.get();
+    return count;
+  }
+
+  @Override
+  public String getRemoteName() throws IOException {
+    return chosen().transceiver.getRemoteName();
+  }
+
+  @Override
+  public boolean isConnected() {
+    try {
+      return connection().transceiver.isConnected();
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  @Override
+  public void setRemote(Protocol protocol) {
+    try {
+      connection().transceiver.setRemote(protocol);
+    } catch (IOException e) {
+      LOG.debug("no connection for remote protocol", e);
+    }
+  }
+
+  @Override
+  public Protocol getRemote() {
+    try {
+      return chosen().transceiver.getRemote();
+    } catch (IOException e) {
+      throw new IllegalStateException("Not connected.", e);
+    }
+  }
+
+  @Override
+  public void setCompression(String codec) {
+    try {
+      connection().transceiver.setCompression(codec);
+    } catch (IOException e) {
+      LOG.debug("no connection for compression", e);
+    }
+  }
+
+  @Override
+  public String getCompression() {
+    try {
+      return connection().transceiver.getCompression();
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  @Override
+  public void clientStartConnect(RPCContext context) {
+    try {
+      connection().transceiver.clientStartConnect(context);
+    } catch (IOException e) {
+      LOG.debug("no connection for handshake", e);
+    }
+  }
+
+  @Override
+  public void clientFinishConnect(RPCContext context) {
+    try {
+      connection().transceiver.clientFinishConnect(context);
+    } catch (IOException e) {
+      LOG.debug("no connection for handshake", e);
+    }
+  }
+
+  @Override
+  public void lockChannel() {
+    try {
+      connection().transceiver.lockChannel();
+    } catch (IOException e) {
+      super.lockChannel();
+    }
+  }
+
+  @Override
+  public void unlockChannel() {
+    Connection c = current.get();
+    current.remove();
+    if (c != null)
+      c.transceiver.unlockChannel();
+    super.unlockChannel();
+  }
+
+  @Override
+  public List<ByteBuffer> transceive(List<ByteBuffer> request)
+    throws IOException {
+    Connection c = sending();
+    Member m = c.member;
+    Transceiver t = c.transceiver;
+    m.outstanding.incrementAndGet();
+    try {
+      List<ByteBuffer> response = t.transceive(request);
+      m.succeeded();
+      return response;
+    } catch (IOException e) {
+      m.failed(t, e);
+      throw e;
+    } finally {
+      current.remove();                           // call done: next may differ
+      m.outstanding.decrementAndGet();
+    }
+  }
+
+  @Override
+  public void transceive(List<ByteBuffer> request,
+                         final Callback<List<ByteBuffer>> callback)
+    throws IOException {
+    final Connection c = sending();
+    current.remove();                             // call sent: next may differ
+    final Member m = c.member;
+    final Transceiver t = c.transceiver;
+    m.outstanding.incrementAndGet();
+    Callback<List<ByteBuffer>> pinned = new Callback<List<ByteBuffer>>() {
+      @Override
+      public void handleResult(List<ByteBuffer> result) {
+        m.outstanding.decrementAndGet();
+        m.succeeded();
+        Connection previous = current.get();
+        current.set(c);                           // response handshake
+        try {
+          callback.handleResult(result);
+        } finally {
+          restore(previous);
+        }
+      }
+      @Override
+      public void handleError(Throwable error) {
+        m.outstanding.decrementAndGet();
+        if (error instanceof IOException)
+          m.failed(t, error);
+        Connection previous = current.get();
+        current.set(c);
+        try {
+          callback.handleError(error);
+        } finally {
+          restore(previous);
+        }
+      }
+    };
+    try {
+      t.transceive(request, pinned);
+    } catch (IOException e) {
+      m.outstanding.decrementAndGet();
+      m.failed(t, e);
+      throw e;
+    }
+  }
+
+  private void restore(Connection previous) {
+    if (previous == null)
+      current.remove();
+    else
+      current.set(previous);
+  }
+
+  @Override
+  public List<ByteBuffer> readBuffers() throws IOException {
+    return connection().transceiver.readBuffers();
+  }
+
+  @Override
+  public void writeBuffers(List<ByteBuffer> buffers) throws IOException {
+    Connection c = sending();
+    Member m = c.member;
+    Transceiver t = c.transceiver;
+    try {
+      t.writeBuffers(buffers);
+    } catch (IOException e) {
+      m.failed(t, e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    closed = true;
+    for (Member m : members)
+      m.close();
+  }
+
+  /** Returns the connection chosen for the current thread's call, choosing
+   * one if needed. */
+  private Connection connection() throws IOException {
+    Connection c = current.get();
+    if (c == null) {
+      c = select();
+      current.set(c);
+    }
+    return c;
+  }
+
+  /** Returns the connection chosen for the current thread's call, or, when
+   * no call is being prepared, any connection without choosing it. */
+  private Connection chosen() throws IOException {
+    Connection c = current.get();
+    return c != null ? c : select();
+  }
+
+  /** Returns the connection chosen for the current thread's call, failing if
+   * it has been ejected since the call was prepared for it. */
+  private Connection sending() throws IOException {
+    Connection c = connection();
+    if (c.member.transceiver != c.transceiver) {
+      current.remove();
+      throw new IOException("Connection to "+c.member.endpoint
+                            +" was closed before sending");
+    }
+    return c;
+  }
+
+  private Connection select() throws IOException {
+    if (closed)
+      throw new IOException("Transceiver closed");
+    IOException failure = null;
+    int n = members.size();
+    for (int attempt = 0; attempt < n; attempt++) {
+      long now = System.nanoTime();
+      int start = next.getAndIncrement();
+      Member best = null;
+      for (int i = 0; i < n; i++) {
+        Member m = members.get(Math.floorMod(start + i, n));
+        if (!m.isAvailable(now))
+          continue;
+        if (selection == Selection.ROUND_ROBIN) {
+          best = m;
+          break;
+        }
+        if (best == null || m.outstanding.get() < best.outstanding.get())
+          best = m;
+      }
+      if (best == null)
+        break;
+      try {
+        return new Connection(best, best.connect());
+      } catch (IOException e) {
+        failure = e;
+      }
+    }
+    throw new IOException("No available connection to "+endpoints, failure);
+  }
+
+  /** A pooled connection. */
+  private class Member {
+    final SocketAddress endpoint;
+    final AtomicInteger outstanding = new AtomicInteger();
+    volatile Transceiver transceiver;
+    private volatile long retryAt;
+    private volatile long backoff;                // written synchronized
+
+    Member(SocketAddress endpoint) {
+      this.endpoint = endpoint;
+    }
+
+    boolean isAvailable(long now) {
+      return transceiver != null || now - retryAt >= 0;
+    }
+
+    Transceiver transceiver() throws IOException {
+      Transceiver t = transceiver;
+      if (t == null)
+        throw new IOException("Connection to "+endpoint+" is closed");
+      return t;
+    }
+
+    synchronized Transceiver connect() throws IOException {
+      if (transceiver == null) {
+        try {
+          transceiver = factory.create(endpoint);
+        } catch (IOException e) {
+          backOff();
+          throw e;
+        }
+        if (closed)
+          close();
+      }
+      return transceiver();
+    }
+
+    void succeeded() {
+      if (backoff != 0) {
+        synchronized (this) {
+          backoff = 0;
+        }
+      }
+    }
+
+    synchronized void failed(Transceiver t, Throwable error) {
+      if (transceiver != t)                       // already replaced
+        return;
+      LOG.warn("ejecting connection to "+endpoint, error);
+      transceiver = null;
+      backOff();
+      try {
+        t.close();
+      } catch (IOException e) {
+        LOG.debug("error closing connection to "+endpoint, e);
+      }
+    }
+
+    private void backOff() {
+      backoff = backoff == 0 ? minBackoffNanos
+        : Math.min(maxBackoffNanos, backoff * 2);
+      retryAt = System.nanoTime() + backoff;
+    }
+
+    synchronized void close() {
+      Transceiver t = transceiver;
+      transceiver = null;
+      if (t != null) {
+        try {
+          t.close();
+        } catch (IOException e) {
+          LOG.debug("error closing connection to "+endpoint, e);
+        }
+      }
+    }
+  }
+
+  /** A pooled connection chosen for a call, with its transceiver at the
+   * time. */
+  private static class Connection {
+    final Member member;
+    final Transceiver transceiver;
+
+    Connection(Member member, Transceiver transceiver) {
+      this.member = member;
+      this.transceiver = transceiver;
+    }
+  }
+
+}
@@ -22,6 +22,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.avro.Protocol;
 import org.apache.avro.Protocol.Message;
 
 /**
@@ -43,6 +44,9 @@ public class RPCContext {
   protected Object response;
   protected Exception error;
   private Message message;
+  private String compression;
+  private Protocol remote;
+  private boolean sendLocalText;
   List<ByteBuffer> requestPayload;
   List<ByteBuffer> responsePayload;
 
@@ -173,6 +177,39 @@ public class RPCContext {
     return error != null;
   }
 
+  void setCompression(String codec) {
+    this.compression = codec;
+  }
+
+  /**
+   * The name of the codec that compresses the data following the
+   * handshake in this RPC's response, and in its request if it had no
+   * handshake, or null if none was negotiated.
+   */
+  public String getCompression() {
+    return compression;
+  }
+
+  void setRemote(Protocol remote) {
+    this.remote = remote;
+  }
+
+  /** The remote protocol this RPC's response is read with, or null if not
+   * yet known. */
+  Protocol getRemote() {
+    return remote;
+  }
+
+  void setSendLocalText(boolean sendLocalText) {
+    this.sendLocalText = sendLocalText;
+  }
+
+  /** Whether this RPC's handshake, when resent, includes the client's
+   * protocol. */
+  boolean getSendLocalText() {
+    return sendLocalText;
+  }
+
   /** Sets the {@link Message} corresponding to this RPC */
   public void setMessage(Message message) {
     this.message = message;
@@ -19,7 +19,9 @@
 package org.apache.avro.ipc;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
@@ -64,6 +66,7 @@ public abstract class Requestor {
   private volatile boolean sendLocalText;
   private final Transceiver transceiver;
   private final ReentrantLock handshakeLock = new ReentrantLock();
+  private volatile Compression compression;
 
   protected final List<RPCPlugin> rpcMetaPlugins;
 
@@ -87,6 +90,27 @@ public abstract class Requestor {
     rpcMetaPlugins.add(plugin);
   }
 
+  /**
+   * Offers to compress calls with the named codecs, in order of preference,
+   * when the next handshake is made.  If the server accepts one, requests
+   * and responses of at least <code>threshold</code> bytes are compressed
+   * with it.  Codec names are those of {@link
+   * org.apache.avro.file.CodecFactory#fromString(String)}, e.g.
+   * <code>deflate</code>, <code>snappy</code> or <code>zstandard</code>.
+   */
+  public void setCompression(int threshold, String... codecs) {
+    this.compression = new Compression(threshold, codecs);
+  }
+
+  /**
+   * Like {@link #setCompression(int, String...)}, but also fails any
+   * compressed response whose data exceeds <code>maxSize</code> bytes once
+   * decompressed, rather than 64MB.
+   */
+  public void setCompression(int threshold, int maxSize, String... codecs) {
+    this.compression = new Compression(threshold, maxSize, codecs);
+  }
+
   private static final EncoderFactory ENCODER_FACTORY = new EncoderFactory();
 
   /** Writes a request message and reads a response or error message. */
@@ -129,14 +153,44 @@ public abstract class Requestor {
     request(new Request(messageName, request, new RPCContext()), callback);
   }
 
+  /**
+   * Writes a request message and returns a future for its result.  The
+   * future completes when the response or an error arrives, so callers need
+   * not block on transceivers that are asynchronous, like Netty's.
+   * @param <T> the return type of the message.
+   * @param messageName the name of the message to invoke.
+   * @param request the request data to send.
+   */
+  public <T> CompletableFuture<T> requestAsync(String messageName,
+                                               Object request) {
+    CompletableFuture<T> future = new CompletableFuture<>();
+    try {
+      request(messageName, request, new Callback<T>() {
+          @Override
+          public void handleResult(T result) {
+            future.complete(result);
+          }
+          @Override
+          public void handleError(Throwable error) {
+            future.completeExceptionally(error);
+          }
+        });
+    } catch (Exception e) {
+      future.completeExceptionally(e);
+    }
+    return future;
+  }
+
   /** Writes a request message and returns the result through a Callback. */
   <T> void request(Request request, Callback<T> callback)
     throws Exception {
     Transceiver t = getTransceiver();
     if (!t.isConnected()) {
       // Acquire handshake lock so that only one thread is performing the
-      // handshake and other threads block until the handshake is completed
-      handshakeLock.lock();
+      // handshake and other threads block until the handshake is completed.
+      // Stateless transports handshake on every request, so need no lock.
+      if (!t.isStateless())
+        handshakeLock.lock();
       try {
         if (t.isConnected()) {
           // Another thread already completed the handshake; no need to hold
@@ -195,52 +249,67 @@ public abstract class Requestor {
   private static final SpecificDatumReader<HandshakeResponse> HANDSHAKE_READER =
     new SpecificDatumReader<>(HandshakeResponse.class);
 
-  private void writeHandshake(Encoder out) throws IOException {
-    if (getTransceiver().isConnected()) return;
+  /* The guessed remote protocol, and whether a resent handshake carries the
+   * local protocol, are kept in the call's context: stateless transports
+   * handshake concurrently, and each response must be read with the remote
+   * protocol of its own handshake. */
+  private void writeHandshake(Encoder out, RPCContext call)
+    throws IOException {
     MD5 localHash = new MD5();
     localHash.bytes(local.getMD5());
     String remoteName = transceiver.getRemoteName();
     MD5 remoteHash = REMOTE_HASHES.get(remoteName);
     if (remoteHash == null) {                     // guess remote is local
       remoteHash = localHash;
-      remote = local;
+      call.setRemote(local);
     } else {
-      remote = REMOTE_PROTOCOLS.get(remoteHash);
+      call.setRemote(REMOTE_PROTOCOLS.get(remoteHash));
     }
     HandshakeRequest handshake = new HandshakeRequest();
     handshake.clientHash = localHash;
     handshake.serverHash = remoteHash;
-    if (sendLocalText)
+    if (sendLocalText || call.getSendLocalText())
       handshake.clientProtocol = local.toString();
 
     RPCContext context = new RPCContext();
     context.setHandshakeRequest(handshake);
+    Compression compression = this.compression;
+    if (compression != null)
+      compression.offer(context.requestHandshakeMeta());
     for (RPCPlugin plugin : rpcMetaPlugins) {
       plugin.clientStartConnect(context);
     }
+    getTransceiver().clientStartConnect(context);
     handshake.meta = context.requestHandshakeMeta();
 
     HANDSHAKE_WRITER.write(handshake, out);
   }
 
-  private boolean readHandshake(Decoder in) throws IOException {
-    if (getTransceiver().isConnected()) return true;
+  private boolean readHandshake(Decoder in, RPCContext call)
+    throws IOException {
+    if (getTransceiver().isConnected()) {
+      // a pooled transceiver's connections may each have their own remote
+      call.setCompression(getTransceiver().getCompression());
+      call.setRemote(getTransceiver().getRemote());
+      return true;
+    }
     boolean established = false;
     HandshakeResponse handshake = HANDSHAKE_READER.read(null, in);
     switch (handshake.match) {
-    case BOTH:
+    case BOTH:                                    // the guess was right
       established = true;
       sendLocalText = false;
       break;
     case CLIENT:
       LOG.debug("Handshake match = CLIENT");
-      setRemote(handshake);
+      call.setRemote(setRemote(handshake));
       established = true;
       sendLocalText = false;
       break;
     case NONE:
       LOG.debug("Handshake match = NONE");
-      setRemote(handshake);
+      call.setRemote(setRemote(handshake));
+      call.setSendLocalText(true);                // when this call is resent
       sendLocalText = true;
       break;
     default:
@@ -252,16 +321,25 @@ public abstract class Requestor {
     for (RPCPlugin plugin : rpcMetaPlugins) {
       plugin.clientFinishConnect(context);
     }
-    if (established)
-      getTransceiver().setRemote(remote);
+    String codec = Compression.get(handshake.meta);
+    call.setCompression(codec);
+    if (established) {
+      remote = call.getRemote();
+      // setRemote() makes the transceiver connected, so other threads may
+      // send through it as soon as it's called: finish negotiating first
+      getTransceiver().clientFinishConnect(context);
+      getTransceiver().setCompression(codec);
+      getTransceiver().setRemote(call.getRemote());
+    }
     return established;
   }
 
-  private void setRemote(HandshakeResponse handshake) throws IOException {
-    remote = Protocol.parse(handshake.serverProtocol.toString());
+  private Protocol setRemote(HandshakeResponse handshake) throws IOException {
+    Protocol protocol = Protocol.parse(handshake.serverProtocol.toString());
     MD5 remoteHash = (MD5)handshake.serverHash;
+    REMOTE_PROTOCOLS.putIfAbsent(remoteHash, protocol); // before its hash
     REMOTE_HASHES.put(transceiver.getRemoteName(), remoteHash);
-    REMOTE_PROTOCOLS.putIfAbsent(remoteHash, remote);
+    return protocol;
   }
 
   /** Return the remote protocol.  Force a handshake if required. */
@@ -278,16 +356,47 @@ public abstract class Requestor {
       ByteBufferOutputStream bbo = new ByteBufferOutputStream();
       // direct because the payload is tiny.
       Encoder out = ENCODER_FACTORY.directBinaryEncoder(bbo, null);
-      writeHandshake(out);
+      RPCContext call = new RPCContext();
+      if (!getTransceiver().isConnected())
+        writeHandshake(out, call);
+      else if (getTransceiver().getCompression() != null)
+        out.writeInt(0);                            // uncompressed
       out.writeInt(0);                              // empty metadata
       out.writeString("");                          // bogus message name
-      List<ByteBuffer> response =
-        getTransceiver().transceive(bbo.getBufferList());
-      ByteBufferInputStream bbi = new ByteBufferInputStream(response);
-      BinaryDecoder in =
-        DecoderFactory.get().binaryDecoder(bbi, null);
-      readHandshake(in);
-      return this.remote;
+      // read the response handshake in the callback, where a pooled
+      // transceiver still knows which connection the ping went out on
+      CallFuture<Protocol> future = new CallFuture<>();
+      getTransceiver().transceive(bbo.getBufferList(),
+                                  new Callback<List<ByteBuffer>>() {
+          @Override
+          public void handleResult(List<ByteBuffer> response) {
+            try {
+              ByteBufferInputStream bbi = new ByteBufferInputStream(response);
+              BinaryDecoder in =
+                DecoderFactory.get().binaryDecoder(bbi, null);
+              readHandshake(in, call);
+              future.handleResult(call.getRemote());
+            } catch (Exception e) {
+              future.handleError(e);
+            }
+          }
+          @Override
+          public void handleError(Throwable error) {
+            future.handleError(error);
+          }
+        });
+      try {
+        future.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted awaiting handshake");
+      }
+      Throwable error = future.getError();
+      if (error instanceof IOException)
+        throw (IOException) error;
+      else if (error != null)
+        throw new AvroRuntimeException(error);
+      return future.getResult();
     } finally {
       handshakeLock.unlock();
     }
@@ -339,7 +448,7 @@ public abstract class Requestor {
       ByteBufferInputStream bbi = new ByteBufferInputStream(responseBytes);
       BinaryDecoder in = DecoderFactory.get().binaryDecoder(bbi, null);
       try {
-        if (!readHandshake(in)) {
+        if (!readHandshake(in, request.getContext())) {
           // Resend the handshake and return
           Request handshake = new Request(request);
           getTransceiver().transceive
@@ -475,7 +584,13 @@ public abstract class Requestor {
         out.flush();
         List<ByteBuffer> payload = bbo.getBufferList();
 
-        writeHandshake(out);                     // prepend handshake if needed
+        // decide on handshake and codec together: once connected, the
+        // codec is known
+        Transceiver t = getTransceiver();
+        boolean connected = t.isConnected();
+        String codec = connected ? t.getCompression() : null;
+        if (!connected)
+          writeHandshake(out, context);          // prepend handshake
 
         context.setRequestPayload(payload);
         for (RPCPlugin plugin : rpcMetaPlugins) {
@@ -489,6 +604,13 @@ public abstract class Requestor {
         bbo.append(payload);
 
         requestBytes = bbo.getBufferList();
+        if (codec != null) {                      // connected, so no handshake
+          Compression compression = Requestor.this.compression;
+          requestBytes = Compression.compress(requestBytes, codec,
+                                              compression != null
+                                              ? compression.getThreshold()
+                                              : Compression.DEFAULT_THRESHOLD);
+        }
       }
       return requestBytes;
     }
@@ -526,6 +648,9 @@ public abstract class Requestor {
      */
     public Object getResponse()
       throws Exception {
+      RPCContext context = request.getContext();
+      Protocol remote = context.getRemote() != null
+        ? context.getRemote() : Requestor.this.remote;
       Message lm = request.getMessage();
       Message rm = remote.getMessages().get(request.getMessageName());
       if (rm == null)
@@ -539,7 +664,14 @@ public abstract class Requestor {
 
       if (lm.isOneWay() && t.isConnected()) return null; // one-way w/ handshake
 
-      RPCContext context = request.getContext();
+      BinaryDecoder in = this.in;
+      if (context.getCompression() != null) {
+        Compression compression = Requestor.this.compression;
+        in = Compression.decompress(in, context.getCompression(),
+                                    compression != null
+                                    ? compression.getMaxSize()
+                                    : Compression.DEFAULT_MAX_SIZE);
+      }
       context.setResponseCallMeta(META_READER.read(null, in));
 
       if (!in.readBoolean()) {                      // no error
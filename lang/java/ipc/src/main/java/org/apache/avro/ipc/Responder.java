@@ -19,10 +19,17 @@
 package org.apache.avro.ipc;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
 import java.util.List;
 import java.util.Map;
 
@@ -40,6 +47,7 @@ import org.apache.avro.util.Utf8;
 import org.apache.avro.generic.GenericDatumReader;
 import org.apache.avro.generic.GenericDatumWriter;
 import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.BinaryDecoder;
 import org.apache.avro.io.BinaryEncoder;
 import org.apache.avro.io.Decoder;
 import org.apache.avro.io.Encoder;
@@ -67,6 +75,7 @@ public abstract class Responder {
   private final Protocol local;
   private final MD5 localHash;
   protected final List<RPCPlugin> rpcMetaPlugins;
+  private volatile Compression compression;
 
   protected Responder(Protocol local) {
     this.local = local;
@@ -84,6 +93,26 @@ public abstract class Responder {
   /** Return the local protocol. */
   public Protocol getLocal() { return local; }
 
+  /**
+   * Accepts compression of calls with the named codecs, when a client offers
+   * one of them in its handshake.  The client's preference decides between
+   * several.  Responses of at least <code>threshold</code> bytes are then
+   * compressed.  Codec names are those of {@link
+   * org.apache.avro.file.CodecFactory#fromString(String)}.
+   */
+  public void setCompression(int threshold, String... codecs) {
+    this.compression = new Compression(threshold, codecs);
+  }
+
+  /**
+   * Like {@link #setCompression(int, String...)}, but also fails any
+   * compressed request whose data exceeds <code>maxSize</code> bytes once
+   * decompressed, rather than 64MB.
+   */
+  public void setCompression(int threshold, int maxSize, String... codecs) {
+    this.compression = new Compression(threshold, maxSize, codecs);
+  }
+
   /**
    * Adds a new plugin to manipulate per-call metadata.  Plugins
    * are executed in the order that they are added.
@@ -101,66 +130,134 @@ public abstract class Responder {
 
   /** Called by a server to deserialize a request, compute and serialize a
    * response or error.  Transceiver is used by connection-based servers to
-   * track handshake status of connection. */
+   * track handshake status of connection.  Blocks until the response is
+   * computed, even when {@link #respondAsync(Protocol.Message,Object)}
+   * completes it later. */
   public List<ByteBuffer> respond(List<ByteBuffer> buffers,
                                   Transceiver connection) throws IOException {
-    Decoder in = DecoderFactory.get().binaryDecoder(
+    try {
+      return respondAsync(buffers, connection).toCompletableFuture().get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException(e.toString());
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException)
+        throw (IOException)cause;
+      if (cause instanceof RuntimeException)
+        throw (RuntimeException)cause;
+      throw new AvroRuntimeException(cause);
+    }
+  }
+
+  /** Called by a non-blocking server to deserialize a request and start
+   * computing its response.  The returned stage completes with the
+   * serialized response or error, or with null for one-way messages, once
+   * {@link #respondAsync(Protocol.Message,Object)} completes, so no thread
+   * need wait for the response meanwhile.  Transceiver is used by
+   * connection-based servers to track handshake status of connection. */
+  public CompletionStage<List<ByteBuffer>> respondAsync(List<ByteBuffer> buffers,
+                                                        Transceiver connection) {
+    BinaryDecoder in = DecoderFactory.get().binaryDecoder(
         new ByteBufferInputStream(buffers), null);
     ByteBufferOutputStream bbo = new ByteBufferOutputStream();
     BinaryEncoder out = EncoderFactory.get().binaryEncoder(bbo, null);
-    Exception error = null;
     RPCContext context = new RPCContext();
-    List<ByteBuffer> payload = null;
     List<ByteBuffer> handshake = null;
     boolean wasConnected = connection != null && connection.isConnected();
     try {
-      Protocol remote = handshake(in, out, connection);
-      out.flush();
-      if (remote == null)                        // handshake failed
-        return bbo.getBufferList();
-      handshake = bbo.getBufferList();
-
-      // read request using remote protocol specification
-      context.setRequestCallMeta(META_READER.read(null, in));
-      String messageName = in.readString(null).toString();
-      if (messageName.equals(""))                 // a handshake ping
-        return handshake;
-      Message rm = remote.getMessages().get(messageName);
-      if (rm == null)
-        throw new AvroRuntimeException("No such remote message: "+messageName);
-      Message m = getLocal().getMessages().get(messageName);
-      if (m == null)
-        throw new AvroRuntimeException("No message named "+messageName
-                                       +" in "+getLocal());
-
-      Object request = readRequest(rm.getRequest(), m.getRequest(), in);
-
-      context.setMessage(rm);
-      for (RPCPlugin plugin : rpcMetaPlugins) {
-        plugin.serverReceiveRequest(context);
-      }
+      try {
+        Protocol remote = handshake(in, out, connection, context);
+        out.flush();
+        if (remote == null)                      // handshake failed
+          return CompletableFuture.completedFuture(bbo.getBufferList());
+        handshake = bbo.getBufferList();
+        if (wasConnected && context.getCompression() != null) {
+          Compression compression = this.compression;
+          in = Compression.decompress(in, context.getCompression(),
+                                      compression != null
+                                      ? compression.getMaxSize()
+                                      : Compression.DEFAULT_MAX_SIZE);
+        }
 
-      // create response using local protocol specification
-      if ((m.isOneWay() != rm.isOneWay()) && wasConnected)
-        throw new AvroRuntimeException("Not both one-way: "+messageName);
+        // read request using remote protocol specification
+        context.setRequestCallMeta(META_READER.read(null, in));
+        String messageName = in.readString(null).toString();
+        if (messageName.equals(""))               // a handshake ping
+          return CompletableFuture.completedFuture(handshake);
+        Message rm = remote.getMessages().get(messageName);
+        if (rm == null)
+          throw new AvroRuntimeException("No such remote message: "
+                                         +messageName);
+        Message m = getLocal().getMessages().get(messageName);
+        if (m == null)
+          throw new AvroRuntimeException("No message named "+messageName
+                                         +" in "+getLocal());
+
+        Object request = readRequest(rm.getRequest(), m.getRequest(), in);
+
+        context.setMessage(rm);
+        for (RPCPlugin plugin : rpcMetaPlugins) {
+          plugin.serverReceiveRequest(context);
+        }
 
-      Object response = null;
+        // create response using local protocol specification
+        if ((m.isOneWay() != rm.isOneWay()) && wasConnected)
+          throw new AvroRuntimeException("Not both one-way: "+messageName);
 
-      try {
-        REMOTE.set(remote);
-        response = respond(m, request);
-        context.setResponse(response);
-      } catch (Exception e) {
-        error = e;
-        context.setError(error);
-        LOG.warn("user error", e);
-      } finally {
-        REMOTE.set(null);
+        CompletionStage<Object> response;
+        try {
+          REMOTE.set(remote);
+          response = respondAsync(m, request);
+        } catch (Exception e) {
+          CompletableFuture<Object> failed = new CompletableFuture<>();
+          failed.completeExceptionally(e);
+          response = failed;
+        } finally {
+          REMOTE.set(null);
+        }
+
+        List<ByteBuffer> shake = handshake;
+        return response.handle((result, error) -> {
+            try {
+              return complete(m, result, error, context, shake, wasConnected);
+            } catch (IOException e) {
+              throw new CompletionException(e);
+            }
+          });
+      } catch (Exception e) {                     // system error
+        return CompletableFuture.completedFuture
+          (systemError(e, context, handshake));
       }
+    } catch (IOException e) {
+      CompletableFuture<List<ByteBuffer>> failed = new CompletableFuture<>();
+      failed.completeExceptionally(e);
+      return failed;
+    }
+  }
+
+  /* Serializes the outcome of a call, once it's known. */
+  private List<ByteBuffer> complete(Message m, Object response, Throwable t,
+                                    RPCContext context,
+                                    List<ByteBuffer> handshake,
+                                    boolean wasConnected) throws IOException {
+    ByteBufferOutputStream bbo = new ByteBufferOutputStream();
+    BinaryEncoder out = EncoderFactory.get().binaryEncoder(bbo, null);
+    Exception error = null;
+    if (t instanceof CompletionException && t.getCause() != null)
+      t = t.getCause();
+    if (t != null) {
+      error = t instanceof Exception ? (Exception)t : new Exception(t);
+      context.setError(error);
+      LOG.warn("user error", error);
+    } else {
+      context.setResponse(response);
+    }
 
-      if (m.isOneWay() && wasConnected)           // no response data
-        return null;
+    if (m.isOneWay() && wasConnected)             // no response data
+      return null;
 
+    try {
       out.writeBoolean(error != null);
       if (error == null)
         writeResponse(m.getResponse(), response, out);
@@ -171,26 +268,57 @@ public abstract class Responder {
           throw error;
         }
     } catch (Exception e) {                       // system error
-      LOG.warn("system error", e);
-      context.setError(e);
-      bbo = new ByteBufferOutputStream();
-      out = EncoderFactory.get().binaryEncoder(bbo, null);
-      out.writeBoolean(true);
-      writeError(Protocol.SYSTEM_ERRORS, new Utf8(e.toString()), out);
-      if (null == handshake) {
-        handshake = new ByteBufferOutputStream().getBufferList();
-      }
+      return systemError(e, context, handshake);
     }
     out.flush();
-    payload = bbo.getBufferList();
+    return frame(bbo, context, handshake);
+  }
+
+  private List<ByteBuffer> systemError(Exception e, RPCContext context,
+                                       List<ByteBuffer> handshake)
+    throws IOException {
+    LOG.warn("system error", e);
+    context.setError(e);
+    ByteBufferOutputStream bbo = new ByteBufferOutputStream();
+    BinaryEncoder out = EncoderFactory.get().binaryEncoder(bbo, null);
+    out.writeBoolean(true);
+    writeError(Protocol.SYSTEM_ERRORS, new Utf8(e.toString()), out);
+    out.flush();
+    if (null == handshake) {
+      handshake = new ByteBufferOutputStream().getBufferList();
+    }
+    return frame(bbo, context, handshake);
+  }
+
+  /* Frames a serialized response or error with its metadata. */
+  private List<ByteBuffer> frame(ByteBufferOutputStream bbo,
+                                 RPCContext context,
+                                 List<ByteBuffer> handshake)
+    throws IOException {
+    List<ByteBuffer> payload = bbo.getBufferList();
 
     // Grab meta-data from plugins
     context.setResponsePayload(payload);
     for (RPCPlugin plugin : rpcMetaPlugins) {
       plugin.serverSendResponse(context);
     }
+    BinaryEncoder out = EncoderFactory.get().binaryEncoder(bbo, null);
     META_WRITER.write(context.responseCallMeta(), out);
     out.flush();
+    String codec = context.getCompression();
+    if (codec != null) {
+      bbo.append(payload);
+      Compression compression = this.compression;
+      List<ByteBuffer> response = new ArrayList<>();
+      for (ByteBuffer buffer : handshake)
+        if (buffer.hasRemaining())                // no empty frames
+          response.add(buffer);
+      response.addAll(Compression.compress(bbo.getBufferList(), codec,
+                                           compression != null
+                                           ? compression.getThreshold()
+                                           : Compression.DEFAULT_THRESHOLD));
+      return response;
+    }
     // Prepend handshake and append payload
     bbo.prepend(handshake);
     bbo.append(payload);
@@ -203,10 +331,13 @@ public abstract class Responder {
   private SpecificDatumReader<HandshakeRequest> handshakeReader =
     new SpecificDatumReader<>(HandshakeRequest.class);
 
-  private Protocol handshake(Decoder in, Encoder out, Transceiver connection)
+  private Protocol handshake(Decoder in, Encoder out, Transceiver connection,
+                             RPCContext call)
     throws IOException {
-    if (connection != null && connection.isConnected())
+    if (connection != null && connection.isConnected()) {
+      call.setCompression(connection.getCompression());
       return connection.getRemote();
+    }
     HandshakeRequest request = (HandshakeRequest)handshakeReader.read(null, in);
     Protocol remote = protocols.get(request.clientHash);
     if (remote == null && request.clientProtocol != null) {
@@ -229,21 +360,50 @@ public abstract class Responder {
     RPCContext context = new RPCContext();
     context.setHandshakeRequest(request);
     context.setHandshakeResponse(response);
+    Compression compression = this.compression;
+    String codec = null;
+    if (compression != null && response.match != HandshakeMatch.NONE) {
+      codec = compression.choose(request.meta);
+      if (codec != null)
+        context.responseHandshakeMeta().put(Compression.META,
+            ByteBuffer.wrap(codec.getBytes(StandardCharsets.UTF_8)));
+    }
+    call.setCompression(codec);
     for (RPCPlugin plugin : rpcMetaPlugins) {
       plugin.serverConnecting(context);
     }
+    if (connection != null && response.match != HandshakeMatch.NONE)
+      connection.serverConnecting(context);
     handshakeWriter.write(response, out);
 
-    if (connection != null && response.match != HandshakeMatch.NONE)
+    if (connection != null && response.match != HandshakeMatch.NONE) {
       connection.setRemote(remote);
+      connection.setCompression(codec);
+    }
 
     return remote;
   }
 
-  /** Computes the response for a message. */
+  /** Computes the response for a message.  May return a {@link
+   * CompletionStage} instead, whose result is then the response. */
   public abstract Object respond(Message message, Object request)
     throws Exception;
 
+  /** Computes the response for a message without blocking.  The default
+   * calls {@link #respond(Protocol.Message,Object)}, passing on any {@link
+   * CompletionStage} it returns.  Servers that use {@link
+   * #respondAsync(List,Transceiver)} write the response when the returned
+   * stage completes, so a slow implementation need not tie up their
+   * threads. */
+  @SuppressWarnings("unchecked")
+  public CompletionStage<Object> respondAsync(Message message, Object request)
+    throws Exception {
+    Object response = respond(message, request);
+    if (response instanceof CompletionStage)
+      return (CompletionStage<Object>)response;
+    return CompletableFuture.completedFuture(response);
+  }
+
   /** Reads a request message. */
   public abstract Object readRequest(Schema actual, Schema expected, Decoder in)
     throws IOException;
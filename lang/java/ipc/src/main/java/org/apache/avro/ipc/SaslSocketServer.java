@@ -45,7 +45,19 @@ public class SaslSocketServer extends SocketServer {
    * href="http://www.ietf.org/rfc/rfc2245.txt">RFC 2245) mechanism. */
   public SaslSocketServer(Responder responder, SocketAddress addr)
     throws IOException {
-    this(responder, addr,
+    this(responder, addr, 0,
+         new SaslServerFactory() {
+           public SaslServer getServer() { return new AnonymousServer(); }
+         });
+  }
+
+  /** Create using SASL's anonymous (<a
+   * href="http://www.ietf.org/rfc/rfc2245.txt">RFC 2245) mechanism, parking
+   * idle connections as described in {@link
+   * SocketServer#SocketServer(Responder, SocketAddress, int)}. */
+  public SaslSocketServer(Responder responder, SocketAddress addr,
+                          int handlerThreads) throws IOException {
+    this(responder, addr, handlerThreads,
          new SaslServerFactory() {
            public SaslServer getServer() { return new AnonymousServer(); }
          });
@@ -56,7 +68,18 @@ public class SaslSocketServer extends SocketServer {
                           final String mechanism, final String protocol,
                           final String serverName, final Map<String,?> props,
                           final CallbackHandler cbh) throws IOException {
-    this(responder, addr,
+    this(responder, addr, mechanism, protocol, serverName, props, cbh, 0);
+  }
+
+  /** Create using the specified {@link SaslServer} parameters, parking idle
+   * connections as described in {@link
+   * SocketServer#SocketServer(Responder, SocketAddress, int)}. */
+  public SaslSocketServer(Responder responder, SocketAddress addr,
+                          final String mechanism, final String protocol,
+                          final String serverName, final Map<String,?> props,
+                          final CallbackHandler cbh, int handlerThreads)
+    throws IOException {
+    this(responder, addr, handlerThreads,
          new SaslServerFactory() {
            public SaslServer getServer() throws SaslException {
              return Sasl.createSaslServer(mechanism, protocol, serverName,
@@ -66,8 +89,9 @@ public class SaslSocketServer extends SocketServer {
   }
 
   private SaslSocketServer(Responder responder, SocketAddress addr,
-                           SaslServerFactory factory) throws IOException {
-    super(responder, addr);
+                           int handlerThreads, SaslServerFactory factory)
+    throws IOException {
+    super(responder, addr, handlerThreads);
     this.factory = factory;
   }
 
@@ -22,9 +22,28 @@ import java.io.IOException;
 import java.io.EOFException;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
+import java.nio.ByteBuffer;
 import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -44,8 +63,36 @@ public class SocketServer extends Thread implements Server {
   private ServerSocketChannel channel;
   private ThreadGroup group;
 
+  /** Default for {@link #setReadTimeout(long)}. */
+  public static final long DEFAULT_READ_TIMEOUT_MILLIS = 30000;
+
+  /** Default for {@link #setMultiplexThreads(int)}. */
+  public static final int DEFAULT_MULTIPLEX_THREADS = 16;
+
+  private final ThreadFactory threads;
+  private ExecutorService handlers;               // null: thread per connection
+  private int multiplexThreads = DEFAULT_MULTIPLEX_THREADS;
+  private ExecutorService multiplexHandlers;      // created on first use
+  private Selector selector;
+  private ScheduledThreadPoolExecutor timer;      // read timeouts
+  private long readTimeoutMillis = DEFAULT_READ_TIMEOUT_MILLIS;
+  private final Queue<Connection> parked = new ConcurrentLinkedQueue<>();
+
   public SocketServer(Responder responder, SocketAddress addr)
     throws IOException {
+    this(responder, addr, 0);
+  }
+
+  /** Create a server whose idle connections are parked in a {@link Selector}
+   * instead of each holding a thread.  Requests are read without blocking
+   * as their bytes arrive, and a connection is handed to one of at most
+   * <tt>handlerThreads</tt> threads only once it has a whole request, so
+   * many mostly-idle or slow clients can be served by a few threads.  The
+   * wire protocol is unchanged.
+   * @param handlerThreads the maximum number of requests handled at once, or
+   * zero to run each connection in its own thread. */
+  public SocketServer(Responder responder, SocketAddress addr,
+                      int handlerThreads) throws IOException {
     String name = "SocketServer on "+addr;
 
     this.responder = responder;
@@ -54,18 +101,79 @@ public class SocketServer extends Thread implements Server {
 
     channel.socket().bind(addr);
 
+    final AtomicInteger threadId = new AtomicInteger();
+    this.threads = r -> {
+      Thread thread = new Thread(group, r);
+      thread.setName(group.getName()+" handler "+threadId.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+    if (handlerThreads > 0) {
+      this.handlers = Executors.newFixedThreadPool(handlerThreads, threads);
+      this.selector = Selector.open();
+      this.timer = new ScheduledThreadPoolExecutor(1, threads);
+      timer.setRemoveOnCancelPolicy(true);
+    }
+
     setName(name);
     setDaemon(true);
   }
 
   public int getPort() { return channel.socket().getLocalPort(); }
 
+  /** Sets how long a handler thread may wait for a request from a
+   * connection, when the server has handler threads and the connection's
+   * {@link Transceiver} frames requests itself (e.g. a {@link
+   * SaslSocketTransceiver}, including its SASL negotiation), so that its
+   * requests are read by a handler rather than by the selector.  A
+   * connection that takes longer is closed. */
+  public void setReadTimeout(long readTimeoutMillis) {
+    this.readTimeoutMillis = readTimeoutMillis;
+  }
+
+  /** Sets the maximum number of multiplexed calls answered at once, across
+   * all connections, when each connection runs in its own thread.  When all
+   * are busy, a connection answers its next call itself, and so reads no
+   * further calls until that is done.  Must be called before the first
+   * client connects. */
+  public void setMultiplexThreads(int multiplexThreads) {
+    if (multiplexThreads < 1)
+      throw new IllegalArgumentException("multiplexThreads: "
+                                         +multiplexThreads);
+    this.multiplexThreads = multiplexThreads;
+  }
+
+  /** Threads answering multiplexed calls, created when a connection first
+   * negotiates multiplexing. */
+  private synchronized ExecutorService getMultiplexHandlers() {
+    if (multiplexHandlers == null) {
+      ThreadPoolExecutor pool =
+        new ThreadPoolExecutor(multiplexThreads, multiplexThreads,
+                               60, TimeUnit.SECONDS,
+                               new ArrayBlockingQueue<>(multiplexThreads),
+                               threads,
+                               new ThreadPoolExecutor.CallerRunsPolicy());
+      pool.allowCoreThreadTimeOut(true);
+      multiplexHandlers = pool;
+    }
+    return multiplexHandlers;
+  }
+
+  private synchronized void shutdownMultiplexHandlers() {
+    if (multiplexHandlers != null)
+      multiplexHandlers.shutdownNow();
+  }
+
   public void run() {
     LOG.info("starting "+channel.socket().getInetAddress());
     try {
+      if (handlers != null) {
+        select();
+        return;
+      }
       while (true) {
         try {
-          new Connection(channel.accept());
+          new Connection(channel.accept()).start();
         } catch (ClosedChannelException e) {
           return;
         } catch (IOException e) {
@@ -79,12 +187,86 @@ public class SocketServer extends Thread implements Server {
         channel.close();
       } catch (IOException e) {
       }
+      shutdownMultiplexHandlers();
+      if (handlers != null) {
+        handlers.shutdownNow();
+        timer.shutdownNow();
+        for (SelectionKey key : selector.keys())
+          if (key.attachment() instanceof Connection)
+            ((Connection)key.attachment()).close();
+        for (Connection c = parked.poll(); c != null; c = parked.poll())
+          c.close();
+        try {
+          selector.close();
+        } catch (IOException e) {
+        }
+      }
+    }
+  }
+
+  /** Accept connections and wait for requests on parked connections. */
+  private void select() {
+    try {
+      channel.configureBlocking(false);
+      channel.register(selector, SelectionKey.OP_ACCEPT);
+      while (!isInterrupted()) {
+        for (Connection c = parked.poll(); c != null; c = parked.poll()) {
+          try {
+            c.channel.register(selector, SelectionKey.OP_READ, c);
+          } catch (ClosedChannelException e) {
+            c.close();
+          }
+        }
+        if (selector.selectedKeys().isEmpty())
+          selector.select();
+        List<Connection> ready = new ArrayList<>();
+        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+          SelectionKey key = keys.next();
+          keys.remove();
+          if (!key.isValid()) continue;
+          if (key.isAcceptable()) {
+            SocketChannel accepted = channel.accept();
+            if (accepted != null) {
+              Connection c = new Connection(accepted);
+              handlers.execute(c::open);
+            }
+          } else if (key.isReadable()) {
+            Connection c = (Connection)key.attachment();
+            try {
+              if (c.readable()) {
+                key.cancel();                     // must deregister before
+                ready.add(c);                     // blocking on the channel
+              }
+            } catch (EOFException | ClosedChannelException e) {
+              c.close();
+            } catch (IOException e) {
+              LOG.warn("unexpected error", e);
+              c.close();
+            }
+          }
+        }
+        if (!ready.isEmpty()) {
+          selector.selectNow();                   // flush cancelled keys
+          for (Connection c : ready)
+            handlers.execute(c::respond);
+        }
+      }
+    } catch (ClosedChannelException | ClosedSelectorException e) {
+      return;
+    } catch (RejectedExecutionException e) {
+      return;                                     // closed
+    } catch (IOException e) {
+      LOG.warn("unexpected error", e);
+      throw new RuntimeException(e);
     }
   }
 
   public void close() {
     this.interrupt();
     group.interrupt();
+    if (selector != null)
+      selector.wakeup();
   }
 
   /** Creates an appropriate {@link Transceiver} for this server.
@@ -98,10 +280,13 @@ public class SocketServer extends Thread implements Server {
 
     SocketChannel channel;
     Transceiver xc;
+    FrameReader frame;                            // null: xc reads requests
 
     public Connection(SocketChannel channel) throws IOException {
       this.channel = channel;
+    }
 
+    void start() {
       Thread thread = new Thread(group, this);
       thread.setName("Connection to "+channel.socket().getRemoteSocketAddress());
       thread.setDaemon(true);
@@ -113,7 +298,10 @@ public class SocketServer extends Thread implements Server {
         try {
           this.xc = getTransceiver(channel);
           while (true) {
-            xc.writeBuffers(responder.respond(xc.readBuffers(), xc));
+            if (isMultiplexed())
+              dispatch();
+            else
+              xc.writeBuffers(responder.respond(xc.readBuffers(), xc));
           }
         } catch (EOFException e) {
           return;
@@ -127,6 +315,166 @@ public class SocketServer extends Thread implements Server {
       }
     }
 
+    private boolean isMultiplexed() {
+      return xc instanceof SocketTransceiver
+        && ((SocketTransceiver)xc).isMultiplexed();
+    }
+
+    /** Read a multiplexed call and answer it on another thread, so that
+     * later calls need not wait for it. */
+    private void dispatch() throws IOException {
+      final SocketTransceiver sx = (SocketTransceiver)xc;
+      final int serial = sx.readSerial();
+      final List<ByteBuffer> request = sx.readBuffers();
+      getMultiplexHandlers().execute(() -> {
+          try {
+            sx.writeBuffers(serial, responder.respond(request, sx));
+          } catch (IOException e) {
+            LOG.warn("unexpected error", e);
+          }
+        });
+    }
+
+    /** Create the transceiver, then park until the first request. */
+    void open() {
+      try {
+        ScheduledFuture<?> timeout = startReadTimeout();
+        try {
+          this.xc = getTransceiver(channel);      // may negotiate, e.g. SASL
+        } finally {
+          timeout.cancel(false);
+        }
+        if (xc.getClass() == SocketTransceiver.class)
+          frame = new FrameReader();              // known framing
+        park();
+      } catch (IOException e) {
+        LOG.warn("unexpected error", e);
+        close();
+      }
+    }
+
+    /** Called by the selector when the channel is readable.  Returns true
+     * once a handler should take over. */
+    boolean readable() throws IOException {
+      return frame == null || frame.read(channel);
+    }
+
+    /** Handle one waiting request, then park until the next. */
+    void respond() {
+      try {
+        channel.configureBlocking(true);
+        if (frame != null) {                      // read by the selector
+          if (frame.multiplexed)                  // answer calls in order
+            ((SocketTransceiver)xc).writeBuffers
+              (frame.serial, responder.respond(frame.buffers, xc));
+          else
+            xc.writeBuffers(responder.respond(frame.buffers, xc));
+        } else if (isMultiplexed()) {
+          SocketTransceiver sx = (SocketTransceiver)xc;
+          int serial;
+          List<ByteBuffer> request;
+          ScheduledFuture<?> timeout = startReadTimeout();
+          try {
+            serial = sx.readSerial();
+            request = sx.readBuffers();
+          } finally {
+            timeout.cancel(false);
+          }
+          sx.writeBuffers(serial, responder.respond(request, sx));
+        } else {
+          List<ByteBuffer> request;
+          ScheduledFuture<?> timeout = startReadTimeout();
+          try {
+            request = xc.readBuffers();
+          } finally {
+            timeout.cancel(false);
+          }
+          xc.writeBuffers(responder.respond(request, xc));
+        }
+        park();
+      } catch (EOFException | ClosedChannelException e) {
+        close();
+      } catch (IOException e) {
+        LOG.warn("unexpected error", e);
+        close();
+      }
+    }
+
+    /** Closes this connection unless cancelled in time, which unblocks a
+     * handler waiting on a client that stopped sending. */
+    private ScheduledFuture<?> startReadTimeout() {
+      return timer.schedule(this::close, readTimeoutMillis,
+                            TimeUnit.MILLISECONDS);
+    }
+
+    private void park() throws IOException {
+      if (frame != null)
+        frame.start(isMultiplexed());
+      channel.configureBlocking(false);
+      parked.add(this);
+      selector.wakeup();
+    }
+
+    void close() {
+      try {
+        if (xc != null)
+          xc.close();
+        else
+          channel.close();
+      } catch (IOException e) {
+        LOG.warn("unexpected error", e);
+      }
+    }
+
+  }
+
+  /** Assembles a request of {@link SocketTransceiver}'s framing from the
+   * bytes the selector finds available, without blocking. */
+  private static class FrameReader {
+    private final ByteBuffer header = ByteBuffer.allocate(4);
+    boolean multiplexed;
+    private boolean serialPending;
+    int serial;
+    List<ByteBuffer> buffers;
+    private ByteBuffer buffer;
+
+    void start(boolean multiplexed) {
+      this.multiplexed = multiplexed;
+      this.serialPending = multiplexed;
+      this.buffers = new ArrayList<>();
+      this.buffer = null;
+      header.clear();
+    }
+
+    /** Reads what is available, returning true once the request is whole. */
+    boolean read(SocketChannel channel) throws IOException {
+      while (true) {
+        ByteBuffer target = buffer != null ? buffer : header;
+        if (channel.read(target) < 0)
+          throw new EOFException();
+        if (target.hasRemaining())
+          return false;                           // wait for more
+        if (buffer != null) {
+          buffer.flip();
+          buffers.add(buffer);
+          buffer = null;
+          continue;
+        }
+        header.flip();
+        int value = header.getInt();
+        header.clear();
+        if (serialPending) {
+          serial = value;
+          serialPending = false;
+        } else if (value == 0) {                  // end of buffers
+          return true;
+        } else if (value < 0) {
+          throw new IOException("Invalid buffer length: "+value);
+        } else {
+          buffer = ByteBuffer.allocate(value);
+        }
+      }
+    }
   }
 
   public static void main(String[] arg) throws Exception {
@@ -25,6 +25,10 @@ import java.nio.channels.ClosedChannelException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -33,24 +37,60 @@ import org.apache.avro.Protocol;
 
 /** A socket-based {@link Transceiver} implementation.  This uses a simple,
  * non-standard wire protocol and is not intended for production services.
+ *
+ * <p>A client created with multiplexing enabled asks the server, through
+ * the metadata of its first handshake, to switch the connection to
+ * multiplexed framing.  If the server agrees, every later message is
+ * prefixed by a serial number, so that many calls may be in flight at once
+ * and their responses may arrive in any order.  Servers that do not know of
+ * this option ignore it and the connection keeps the plain framing.
  * @deprecated use {@link SaslSocketTransceiver} instead.
  */
 public class SocketTransceiver extends Transceiver {
   private static final Logger LOG
     = LoggerFactory.getLogger(SocketTransceiver.class);
 
+  /** Handshake metadata key used to negotiate multiplexed framing. */
+  public static final String MULTIPLEX_META = "avro.socket.multiplex";
+  private static final ByteBuffer MULTIPLEX_VERSION =
+    ByteBuffer.wrap(new byte[] {1});
+
   private SocketChannel channel;
-  private ByteBuffer header = ByteBuffer.allocate(4);
+  private ByteBuffer readHeader = ByteBuffer.allocate(4);
+  private ByteBuffer writeHeader = ByteBuffer.allocate(4);
+  private final Object writeLock = new Object();
 
-  private Protocol remote;
+  private volatile Protocol remote;
+
+  private final boolean requestMultiplex;
+  private boolean multiplexPending;               // switch after next write
+  private volatile boolean multiplexed;
+  private final AtomicInteger serialGenerator = new AtomicInteger();
+  private final Map<Integer, Callback<List<ByteBuffer>>> calls =
+    new ConcurrentHashMap<>();
+  private volatile IOException readerFailure;     // set when reader exits
 
   public SocketTransceiver(SocketAddress address) throws IOException {
-    this(SocketChannel.open(address));
+    this(address, false);
+  }
+
+  /** Connect to a server.
+   * @param multiplex if true, ask the server to multiplex calls over this
+   * connection. */
+  public SocketTransceiver(SocketAddress address, boolean multiplex)
+    throws IOException {
+    this(SocketChannel.open(address), multiplex);
   }
 
   public SocketTransceiver(SocketChannel channel) throws IOException {
+    this(channel, false);
+  }
+
+  private SocketTransceiver(SocketChannel channel, boolean multiplex)
+    throws IOException {
     this.channel = channel;
     this.channel.socket().setTcpNoDelay(true);
+    this.requestMultiplex = multiplex;
     LOG.info("open to "+getRemoteName());
   }
 
@@ -58,16 +98,61 @@ public class SocketTransceiver extends Transceiver {
     return channel.socket().getRemoteSocketAddress().toString();
   }
 
+  /** True if calls over this connection are multiplexed. */
+  public boolean isMultiplexed() { return multiplexed; }
+
+  @Override
+  public List<ByteBuffer> transceive(List<ByteBuffer> request)
+    throws IOException {
+    if (!multiplexed)
+      return super.transceive(request);
+    CallFuture<List<ByteBuffer>> future = new CallFuture<>();
+    transceive(request, future);
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted waiting for response", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException)
+        throw (IOException)e.getCause();
+      throw new IOException(e.getCause());
+    }
+  }
+
+  @Override
+  public void transceive(List<ByteBuffer> request,
+                         Callback<List<ByteBuffer>> callback)
+    throws IOException {
+    if (!multiplexed) {
+      super.transceive(request, callback);
+      return;
+    }
+    int serial = serialGenerator.incrementAndGet();
+    calls.put(serial, callback);
+    IOException failure = readerFailure;
+    if (failure != null) {                        // no one to answer
+      if (calls.remove(serial) != null)
+        throw new IOException("Connection to "+getRemoteName()+" failed",
+                              failure);
+      return;                                     // reader already failed it
+    }
+    try {
+      writeBuffers(serial, request);
+    } catch (IOException e) {
+      calls.remove(serial);
+      throw e;
+    }
+  }
+
   public synchronized List<ByteBuffer> readBuffers() throws IOException {
+    return read();
+  }
+
+  private List<ByteBuffer> read() throws IOException {
     List<ByteBuffer> buffers = new ArrayList<>();
     while (true) {
-      header.clear();
-      while (header.hasRemaining()) {
-        if (channel.read(header) < 0)
-          throw new ClosedChannelException();
-      }
-      header.flip();
-      int length = header.getInt();
+      int length = readInt();
       if (length == 0) {                       // end of buffers
         return buffers;
       }
@@ -81,22 +166,60 @@ public class SocketTransceiver extends Transceiver {
     }
   }
 
+  private int readInt() throws IOException {
+    readHeader.clear();
+    while (readHeader.hasRemaining()) {
+      if (channel.read(readHeader) < 0)
+        throw new ClosedChannelException();
+    }
+    readHeader.flip();
+    return readHeader.getInt();
+  }
+
+  /** Read the serial number that prefixes a multiplexed message. */
+  int readSerial() throws IOException {
+    return readInt();
+  }
+
   public synchronized void writeBuffers(List<ByteBuffer> buffers)
     throws IOException {
+    if (multiplexed) {                            // e.g. one-way messages
+      writeBuffers(serialGenerator.incrementAndGet(), buffers);
+      return;
+    }
+    synchronized (writeLock) {
+      write(buffers);
+    }
+    if (multiplexPending) {                       // handshake answered
+      multiplexPending = false;
+      multiplexed = true;
+    }
+  }
+
+  /** Write a multiplexed message with the given serial number. */
+  void writeBuffers(int serial, List<ByteBuffer> buffers) throws IOException {
+    if (buffers == null) return;                  // no data to write
+    synchronized (writeLock) {
+      writeInt(serial);
+      write(buffers);
+    }
+  }
+
+  private void write(List<ByteBuffer> buffers) throws IOException {
     if (buffers == null) return;                  // no data to write
     for (ByteBuffer buffer : buffers) {
       if (buffer.limit() == 0) continue;
-      writeLength(buffer.limit());                // length-prefix
+      writeInt(buffer.limit());                   // length-prefix
       channel.write(buffer);
     }
-    writeLength(0);                               // null-terminate
+    writeInt(0);                                  // null-terminate
   }
 
-  private void writeLength(int length) throws IOException {
-    header.clear();
-    header.putInt(length);
-    header.flip();
-    channel.write(header);
+  private void writeInt(int value) throws IOException {
+    writeHeader.clear();
+    writeHeader.putInt(value);
+    writeHeader.flip();
+    channel.write(writeHeader);
   }
 
   @Override public boolean isConnected() { return remote != null; }
@@ -109,6 +232,71 @@ public class SocketTransceiver extends Transceiver {
     return remote;
   }
 
+  @Override public void clientStartConnect(RPCContext context) {
+    if (requestMultiplex)
+      context.requestHandshakeMeta()
+        .put(MULTIPLEX_META, MULTIPLEX_VERSION.duplicate());
+  }
+
+  @Override public void clientFinishConnect(RPCContext context) {
+    if (!requestMultiplex || multiplexed
+        || !MULTIPLEX_VERSION.equals(context.responseHandshakeMeta()
+                                     .get(MULTIPLEX_META)))
+      return;
+    multiplexed = true;
+    Thread reader = new Thread(this::readResponses,
+                               "SocketTransceiver reader for "+getRemoteName());
+    reader.setDaemon(true);
+    reader.start();
+  }
+
+  @Override public synchronized void serverConnecting(RPCContext context) {
+    if (!multiplexed
+        && MULTIPLEX_VERSION.equals(context.requestHandshakeMeta()
+                                    .get(MULTIPLEX_META))) {
+      context.responseHandshakeMeta()
+        .put(MULTIPLEX_META, MULTIPLEX_VERSION.duplicate());
+      multiplexPending = true;
+    }
+  }
+
+  /** Dispatch multiplexed responses to their callers until the connection
+   * is closed. */
+  private void readResponses() {
+    IOException error = null;
+    try {
+      while (true) {
+        int serial = readSerial();
+        List<ByteBuffer> response = read();
+        Callback<List<ByteBuffer>> callback = calls.remove(serial);
+        if (callback != null) {
+          try {
+            callback.handleResult(response);
+          } catch (RuntimeException e) {          // don't stop other calls
+            LOG.error("Error in callback handler: "+e, e);
+          }
+        }
+      }
+    } catch (IOException e) {
+      error = e;
+    } catch (Throwable t) {
+      error = new IOException(t);
+    }
+    if (channel.isOpen())
+      LOG.warn("error reading from "+getRemoteName(), error);
+    readerFailure = error;                        // before failing calls
+    for (Integer serial : calls.keySet()) {
+      Callback<List<ByteBuffer>> callback = calls.remove(serial);
+      if (callback != null) {
+        try {
+          callback.handleError(error);
+        } catch (RuntimeException e) {
+          LOG.error("Error in callback handler: "+e, e);
+        }
+      }
+    }
+  }
+
   @Override public void close() throws IOException {
     if (channel.isOpen()) {
       LOG.info("closing to "+getRemoteName());
@@ -117,4 +305,3 @@ public class SocketTransceiver extends Transceiver {
   }
 
 }
-
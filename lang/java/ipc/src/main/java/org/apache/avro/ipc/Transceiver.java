@@ -29,6 +29,7 @@ import org.apache.avro.Protocol;
 /** Base transport class used by {@link Requestor}. */
 public abstract class Transceiver implements Closeable {
   private final ReentrantLock channelLock = new ReentrantLock();
+  private volatile String compression;
 
   public abstract String getRemoteName() throws IOException;
 
@@ -92,6 +93,12 @@ public abstract class Transceiver implements Closeable {
    * default. */
   public boolean isConnected() { return false; }
 
+  /** True if every request is sent with its own handshake and is answered
+   * independently, as with HTTP, so that {@link #isConnected()} never becomes
+   * true and concurrent requests need not wait for one another's handshakes.
+   * Returns false by default. */
+  public boolean isStateless() { return false; }
+
   /** Called with the remote protocol when a handshake has been completed.
    * After this has been called and while a connection is maintained, {@link
    * #isConnected()} should return true and #getRemote() should return this
@@ -104,6 +111,29 @@ public abstract class Transceiver implements Closeable {
     throw new IllegalStateException("Not connected.");
   }
 
+  /** Called by {@link Requestor} and {@link Responder} with the name of the
+   * codec negotiated in a handshake to compress later calls over this
+   * connection, or null for none. */
+  public void setCompression(String codec) { this.compression = codec; }
+
+  /** Returns the codec passed to {@link #setCompression(String)}. */
+  public String getCompression() { return compression; }
+
+  /** Called by {@link Requestor} before it sends a handshake, so that the
+   * transport may request connection options through the handshake's
+   * metadata.  Does nothing by default. */
+  public void clientStartConnect(RPCContext context) {}
+
+  /** Called by {@link Requestor} when a handshake has been completed, with
+   * the server's handshake response.  Does nothing by default. */
+  public void clientFinishConnect(RPCContext context) {}
+
+  /** Called by {@link Responder} for connection-based servers while a
+   * handshake is being completed, so that the transport may accept connection
+   * options requested in the handshake's metadata.  Does nothing by
+   * default. */
+  public void serverConnecting(RPCContext context) {}
+
   public void close() throws IOException {}
 }
 
@@ -27,15 +27,18 @@ import org.apache.avro.AvroRuntimeException;
 import org.apache.avro.generic.GenericData;
 import org.apache.avro.generic.GenericDatumReader;
 import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.io.DatumReader;
 import org.apache.avro.io.Decoder;
 import org.apache.avro.io.Encoder;
 import org.apache.avro.ipc.Callback;
+import org.apache.avro.ipc.DatumCache;
 import org.apache.avro.ipc.Requestor;
 import org.apache.avro.ipc.Transceiver;
 
 /** {@link Requestor} implementation for generic Java data. */
 public class GenericRequestor extends Requestor {
   GenericData data;
+  private final DatumCache datums = new DatumCache();
 
   public GenericRequestor(Protocol protocol, Transceiver transceiver)
     throws IOException {
@@ -79,23 +82,28 @@ public class GenericRequestor extends Requestor {
     }
   }
 
+  private DatumReader<Object> getDatumReader(Schema writer, Schema reader) {
+    return datums.getReader(writer, reader,
+                            (w, r) -> new GenericDatumReader<>(w, r, data));
+  }
+
   @Override
   public void writeRequest(Schema schema, Object request, Encoder out)
     throws IOException {
-    new GenericDatumWriter<>(schema, data).write(request, out);
+    datums.getWriter(schema, s -> new GenericDatumWriter<>(s, data))
+      .write(request, out);
   }
 
   @Override
   public Object readResponse(Schema writer, Schema reader, Decoder in)
     throws IOException {
-    return new GenericDatumReader<>(writer, reader, data).read(null, in);
+    return getDatumReader(writer, reader).read(null, in);
   }
 
   @Override
   public Exception readError(Schema writer, Schema reader, Decoder in)
     throws IOException {
-    Object error = new GenericDatumReader<>(writer, reader, data)
-      .read(null,in);
+    Object error = getDatumReader(writer, reader).read(null,in);
     if (error instanceof CharSequence)
       return new AvroRuntimeException(error.toString()); // system error
     return new AvroRemoteException(error);
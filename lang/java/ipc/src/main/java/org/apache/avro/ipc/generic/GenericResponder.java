@@ -30,11 +30,13 @@ import org.apache.avro.io.Decoder;
 import org.apache.avro.io.Encoder;
 import org.apache.avro.io.DatumReader;
 import org.apache.avro.io.DatumWriter;
+import org.apache.avro.ipc.DatumCache;
 import org.apache.avro.ipc.Responder;
 
 /** {@link Responder} implementation for generic Java data. */
 public abstract class GenericResponder extends Responder {
   private GenericData data;
+  private final DatumCache datums = new DatumCache();
 
   public GenericResponder(Protocol local) {
     this(local, GenericData.get());
@@ -56,16 +58,23 @@ public abstract class GenericResponder extends Responder {
     return new GenericDatumReader<>(actual, expected, data);
   }
 
+  /** Returns the writer for a schema, created by {@link
+   * #getDatumWriter(Schema)} the first time the schema is written. */
+  protected DatumWriter<Object> getCachedDatumWriter(Schema schema) {
+    return datums.getWriter(schema, this::getDatumWriter);
+  }
+
   @Override
   public Object readRequest(Schema actual, Schema expected, Decoder in)
     throws IOException {
-    return getDatumReader(actual, expected).read(null, in);
+    return datums.getReader(actual, expected, this::getDatumReader)
+      .read(null, in);
   }
 
   @Override
   public void writeResponse(Schema schema, Object response, Encoder out)
     throws IOException {
-    getDatumWriter(schema).write(response, out);
+    getCachedDatumWriter(schema).write(response, out);
   }
 
   @Override
@@ -73,7 +82,7 @@ public abstract class GenericResponder extends Responder {
                          Encoder out) throws IOException {
     if (error instanceof AvroRemoteException)
       error = ((AvroRemoteException)error).getValue();
-    getDatumWriter(schema).write(error, out);
+    getCachedDatumWriter(schema).write(error, out);
   }
 
 }
@@ -24,6 +24,8 @@ import java.lang.reflect.Proxy;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Type;
 import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
 import org.apache.avro.AvroRemoteException;
 import org.apache.avro.Protocol;
@@ -36,13 +38,18 @@ import org.apache.avro.io.Encoder;
 import org.apache.avro.ipc.Transceiver;
 import org.apache.avro.ipc.Requestor;
 import org.apache.avro.ipc.Callback;
+import org.apache.avro.ipc.DatumCache;
 import org.apache.avro.specific.SpecificData;
 import org.apache.avro.specific.SpecificDatumReader;
 import org.apache.avro.specific.SpecificDatumWriter;
 
-/** {@link org.apache.avro.ipc.Requestor Requestor} for generated interfaces. */
+/** {@link org.apache.avro.ipc.Requestor Requestor} for generated interfaces.
+ * Methods of the interface may also return a {@link CompletableFuture} or
+ * {@link CompletionStage} of the message's response, which then completes
+ * without blocking the caller. */
 public class SpecificRequestor extends Requestor implements InvocationHandler {
   SpecificData data;
+  private final DatumCache datums = new DatumCache();
 
   public SpecificRequestor(Class<?> iface, Transceiver transceiver)
     throws IOException {
@@ -102,6 +109,11 @@ public class SpecificRequestor extends Requestor implements InvocationHandler {
       return "Proxy[" + protocol + "," + remote + "]";
     }
     else {
+      // Check if this is a future-based RPC:
+      Class<?> returnType = method.getReturnType();
+      if (returnType == CompletableFuture.class
+          || returnType == CompletionStage.class)
+        return requestAsync(method.getName(), args);
       try {
         // Check if this is a callback-based RPC:
         Type[] parameterTypes = method.getParameterTypes();
@@ -155,19 +167,22 @@ public class SpecificRequestor extends Requestor implements InvocationHandler {
     Object[] args = (Object[])request;
     int i = 0;
     for (Schema.Field param : schema.getFields())
-      getDatumWriter(param.schema()).write(args[i++], out);
+      datums.getWriter(param.schema(), this::getDatumWriter)
+        .write(args[i++], out);
   }
 
   @Override
   public Object readResponse(Schema writer, Schema reader, Decoder in)
     throws IOException {
-    return getDatumReader(writer, reader).read(null, in);
+    return datums.getReader(writer, reader, this::getDatumReader)
+      .read(null, in);
   }
 
   @Override
   public Exception readError(Schema writer, Schema reader, Decoder in)
     throws IOException {
-    Object value = getDatumReader(writer, reader).read(null, in);
+    Object value = datums.getReader(writer, reader, this::getDatumReader)
+      .read(null, in);
     if (value instanceof Exception)
       return (Exception)value;
     return new AvroRuntimeException(value.toString());
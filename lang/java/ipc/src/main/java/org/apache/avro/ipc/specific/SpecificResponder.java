@@ -21,6 +21,9 @@ package org.apache.avro.ipc.specific;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.avro.Schema;
 import org.apache.avro.Protocol;
@@ -38,6 +41,7 @@ import org.apache.avro.ipc.generic.GenericResponder;
 /** {@link org.apache.avro.ipc.Responder Responder} for generated interfaces.*/
 public class SpecificResponder extends GenericResponder {
   private Object impl;
+  private final Map<Message, Method> methods = new ConcurrentHashMap<>();
 
   public SpecificResponder(Class iface, Object impl) {
     this(iface, impl, new SpecificData(impl.getClass().getClassLoader()));
@@ -71,24 +75,34 @@ public class SpecificResponder extends GenericResponder {
   @Override
   public void writeError(Schema schema, Object error,
                          Encoder out) throws IOException {
-    getDatumWriter(schema).write(error, out);
+    getCachedDatumWriter(schema).write(error, out);
+  }
+
+  /* Looks up the implementation of a message once, rather than per call. */
+  private Method getMethod(Message message) throws NoSuchMethodException {
+    Method method = methods.get(message);
+    if (method == null) {
+      List<Schema.Field> fields = message.getRequest().getFields();
+      Class[] paramTypes = new Class[fields.size()];
+      int i = 0;
+      for (Schema.Field param : fields)
+        paramTypes[i++] = getSpecificData().getClass(param.schema());
+      method = impl.getClass().getMethod(message.getName(), paramTypes);
+      method.setAccessible(true);
+      methods.put(message, method);
+    }
+    return method;
   }
 
   @Override
   public Object respond(Message message, Object request) throws Exception {
     int numParams = message.getRequest().getFields().size();
     Object[] params = new Object[numParams];
-    Class[] paramTypes = new Class[numParams];
     int i = 0;
     try {
-      for (Schema.Field param: message.getRequest().getFields()) {
-        params[i] = ((GenericRecord)request).get(param.name());
-        paramTypes[i] = getSpecificData().getClass(param.schema());
-        i++;
-      }
-      Method method = impl.getClass().getMethod(message.getName(), paramTypes);
-      method.setAccessible(true);
-      return method.invoke(impl, params);
+      for (Schema.Field param: message.getRequest().getFields())
+        params[i++] = ((GenericRecord)request).get(param.name());
+      return getMethod(message).invoke(impl, params);
     } catch (InvocationTargetException e) {
       if (e.getTargetException() instanceof Exception) {
         throw (Exception) e.getTargetException();
@@ -0,0 +1,272 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.ipc.stats;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of non-negative long values with log-linear buckets,
+ * in the style of HdrHistogram.  Values below <code>2^subBucketBits</code>
+ * get a bucket each; above that every power of two is split into
+ * <code>2^(subBucketBits-1)</code> equal buckets, so the relative error of a
+ * percentile is bounded by <code>2^-(subBucketBits-1)</code> (about 3% with
+ * the default of 5 bits) regardless of magnitude.  Values above the
+ * configured maximum are recorded in the last bucket.
+ *
+ * Counts and recent values are striped across threads so that concurrent
+ * {@link #record(long)} calls rarely touch the same cache line.  Recent
+ * values recorded by threads on different stripes are interleaved, so their
+ * order is only approximate.  {@link #snapshot()} never blocks
+ * writers; a snapshot taken while values are being recorded may miss some of
+ * those values, but is otherwise consistent.
+ */
+public class LogLinearHistogram {
+  /** Default number of bits used to split each power of two. */
+  public static final int DEFAULT_SUB_BUCKET_BITS = 5;
+
+  private static final int MAX_STRIPES = 4;
+
+  private final long maxValue;
+  private final int subBucketBits;
+  private final int subBucketCount;
+  private final int subBucketHalfCount;
+  private final int bucketCount;
+
+  private final Stripe[] stripes;
+  private final int stripeMask;
+
+  private final LongAdder sum = new LongAdder();
+  private final DoubleAdder sumOfSquares = new DoubleAdder();
+  private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+  /** Creates a histogram tracking values up to <code>maxValue</code>. */
+  public LogLinearHistogram(long maxValue) {
+    this(maxValue, DEFAULT_SUB_BUCKET_BITS);
+  }
+
+  /** Creates a histogram tracking values up to <code>maxValue</code>, with
+   * <code>2^subBucketBits</code> linear buckets at the bottom of the range. */
+  public LogLinearHistogram(long maxValue, int subBucketBits) {
+    if (maxValue < 1)
+      throw new IllegalArgumentException("maxValue must be positive: "
+                                         + maxValue);
+    if (subBucketBits < 1 || subBucketBits > 16)
+      throw new IllegalArgumentException("subBucketBits must be in [1,16]: "
+                                         + subBucketBits);
+    this.maxValue = maxValue;
+    this.subBucketBits = subBucketBits;
+    this.subBucketCount = 1 << subBucketBits;
+    this.subBucketHalfCount = subBucketCount >> 1;
+    this.bucketCount = indexOf(maxValue) + 1;
+
+    int n = 1;
+    int cpus = Runtime.getRuntime().availableProcessors();
+    while (n < cpus && n < MAX_STRIPES)
+      n <<= 1;
+    this.stripes = new Stripe[n];
+    for (int i = 0; i < n; i++)
+      stripes[i] = new Stripe(bucketCount);
+    this.stripeMask = n - 1;
+  }
+
+  /** The largest value tracked exactly; larger values are clamped. */
+  public long getMaxTrackableValue() { return maxValue; }
+
+  /** Records a value.  Negative values are recorded as zero. */
+  public void record(long value) {
+    if (value < 0)
+      value = 0;
+    long clamped = Math.min(value, maxValue);
+    Stripe stripe = stripes[(int)Thread.currentThread().getId() & stripeMask];
+    stripe.counts.incrementAndGet(indexOf(clamped));
+    sum.add(value);
+    sumOfSquares.add((double)value * value);
+    max.accumulate(value);
+    long n = stripe.recentCount.getAndIncrement();
+    stripe.recent.set((int)(n % Histogram.MAX_HISTORY_SIZE), value);
+  }
+
+  /** Returns a point-in-time copy of this histogram. */
+  public Snapshot snapshot() {
+    long[] counts = new long[bucketCount];
+    List<List<Long>> recent = new ArrayList<>(stripes.length);
+    for (Stripe stripe : stripes) {
+      for (int i = 0; i < bucketCount; i++)
+        counts[i] += stripe.counts.get(i);
+      recent.add(stripe.recentValues());
+    }
+    return new Snapshot(counts, sum.sum(), sumOfSquares.sum(), max.get(),
+                        interleave(recent));
+  }
+
+  /* Merges each stripe's recent values, oldest first, keeping the newest. */
+  private static List<Long> interleave(List<List<Long>> recent) {
+    List<Long> values = new ArrayList<>(Histogram.MAX_HISTORY_SIZE);
+    for (int age = 1; values.size() < Histogram.MAX_HISTORY_SIZE; age++) {
+      int added = 0;
+      for (List<Long> stripe : recent)
+        if (stripe.size() >= age
+            && values.size() < Histogram.MAX_HISTORY_SIZE) {
+          values.add(stripe.get(stripe.size() - age));
+          added++;
+        }
+      if (added == 0)
+        break;
+    }
+    Collections.reverse(values);
+    return values;
+  }
+
+  int getBucketCount() { return bucketCount; }
+
+  int indexOf(long value) {
+    if (value < subBucketCount)
+      return (int)value;
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    int shift = exponent - subBucketBits + 1;
+    return subBucketCount
+      + (exponent - subBucketBits) * subBucketHalfCount
+      + (int)(value >>> shift) - subBucketHalfCount;
+  }
+
+  long lowestValueAt(int index) {
+    if (index < subBucketCount)
+      return index;
+    int offset = index - subBucketCount;
+    int shift = offset / subBucketHalfCount + 1;
+    long sub = subBucketHalfCount + offset % subBucketHalfCount;
+    return sub << shift;
+  }
+
+  long highestValueAt(int index) {
+    if (index + 1 == bucketCount)
+      return maxValue;
+    return lowestValueAt(index + 1) - 1;
+  }
+
+  /** The counts and recent values recorded by some of the threads. */
+  private static class Stripe {
+    final AtomicLongArray counts;
+    final AtomicLongArray recent =
+      new AtomicLongArray(Histogram.MAX_HISTORY_SIZE);
+    final AtomicLong recentCount = new AtomicLong();
+
+    Stripe(int bucketCount) {
+      this.counts = new AtomicLongArray(bucketCount);
+    }
+
+    /** Up to {@link Histogram#MAX_HISTORY_SIZE} values, oldest first. */
+    List<Long> recentValues() {
+      long n = recentCount.get();
+      int size = (int)Math.min(n, Histogram.MAX_HISTORY_SIZE);
+      List<Long> values = new ArrayList<>(size);
+      for (long i = n - size; i < n; i++)
+        values.add(recent.get((int)(i % Histogram.MAX_HISTORY_SIZE)));
+      return values;
+    }
+  }
+
+  /** An immutable view of a {@link LogLinearHistogram} at one instant. */
+  public final class Snapshot {
+    private final long[] counts;
+    private final long count;
+    private final long sum;
+    private final double sumOfSquares;
+    private final long max;
+    private final List<Long> recentValues;
+
+    private Snapshot(long[] counts, long sum, double sumOfSquares, long max,
+                     List<Long> recentValues) {
+      long total = 0;
+      for (long c : counts)
+        total += c;
+      this.counts = counts;
+      this.count = total;
+      this.sum = sum;
+      this.sumOfSquares = sumOfSquares;
+      this.max = max;
+      this.recentValues = Collections.unmodifiableList(recentValues);
+    }
+
+    /** Number of values recorded. */
+    public long getCount() { return count; }
+
+    /** Sum of all values recorded. */
+    public long getSum() { return sum; }
+
+    /** Largest value recorded, or zero when empty. */
+    public long getMax() { return max; }
+
+    /** Exact arithmetic mean of recorded values, or zero when empty. */
+    public double getMean() {
+      return count == 0 ? 0 : (double)sum / count;
+    }
+
+    /** Unbiased standard deviation, or zero with fewer than two values. */
+    public double getUnbiasedStdDev() {
+      if (count <= 1)
+        return 0;
+      double mean = getMean();
+      double variance = (sumOfSquares - count * mean * mean) / (count - 1);
+      return Math.sqrt(Math.max(variance, 0));
+    }
+
+    /**
+     * Returns the value at the given percentile (0 to 100).  The result is
+     * the upper bound of the bucket holding that rank, capped at the largest
+     * value recorded, so it never under-reports a tail latency.  Ranks in the
+     * last bucket, which also holds clamped values, report the largest value.
+     */
+    public long getValueAtPercentile(double percentile) {
+      if (count == 0)
+        return 0;
+      double p = Math.min(Math.max(percentile, 0), 100);
+      long rank = Math.max(1, (long)Math.ceil(p / 100 * count));
+      long seen = 0;
+      for (int i = 0; i < counts.length; i++) {
+        seen += counts[i];
+        if (seen >= rank && i + 1 < counts.length)
+          return Math.min(highestValueAt(i), max);
+      }
+      return max;
+    }
+
+    /** Number of buckets, including empty ones. */
+    public int getBucketCount() { return counts.length; }
+
+    /** Number of values recorded in the given bucket. */
+    public long getCountAt(int index) { return counts[index]; }
+
+    /** Smallest value that falls into the given bucket. */
+    public long getLowestValueAt(int index) { return lowestValueAt(index); }
+
+    /** Largest value that falls into the given bucket. */
+    public long getHighestValueAt(int index) { return highestValueAt(index); }
+
+    /** Up to {@link Histogram#MAX_HISTORY_SIZE} most recent values, oldest
+     * first. */
+    public List<Long> getRecentValues() { return recentValues; }
+  }
+}
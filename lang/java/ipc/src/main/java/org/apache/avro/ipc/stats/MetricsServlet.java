@@ -0,0 +1,247 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.ipc.stats;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import org.apache.avro.Protocol.Message;
+import org.apache.avro.ipc.RPCContext;
+
+/**
+ * Exports the statistics collected by a {@link StatsPlugin} in a form that
+ * monitoring systems can scrape: the Prometheus text exposition format by
+ * default, or a JSON document when the request path ends with
+ * <code>.json</code> or has the parameter <code>format=json</code>.
+ *
+ * For each message this reports completed calls, calls that completed with
+ * an error, calls in flight, latency percentiles and payload size
+ * percentiles.  Histograms are read through snapshots, so scraping never
+ * blocks the RPCs being measured, and its cost depends only on the number
+ * of messages and RPCs in flight, not on the call rate.
+ */
+public class MetricsServlet extends HttpServlet {
+  /** Percentiles reported for each distribution, with their Prometheus
+   * quantile labels and JSON field names. */
+  private static final double[] PERCENTILES = { 50, 90, 99, 99.9 };
+  private static final String[] QUANTILE_LABELS =
+    { "0.5", "0.9", "0.99", "0.999" };
+  private static final String[] PERCENTILE_FIELDS =
+    { "p50", "p90", "p99", "p999" };
+
+  private static final JsonFactory FACTORY = new JsonFactory();
+  private static final double NANOS_PER_SECOND = 1e9;
+  private static final double NANOS_PER_MS = 1e6;
+
+  private final StatsPlugin statsPlugin;
+
+  public MetricsServlet(StatsPlugin statsPlugin) {
+    this.statsPlugin = statsPlugin;
+  }
+
+  @Override
+  protected void doGet(HttpServletRequest req, HttpServletResponse resp)
+      throws ServletException, IOException {
+    if (req.getRequestURI().endsWith(".json")
+        || "json".equals(req.getParameter("format"))) {
+      resp.setContentType("application/json");
+      writeJson(resp.getWriter());
+    } else {
+      resp.setContentType("text/plain; version=0.0.4; charset=utf-8");
+      writePrometheus(resp.getWriter());
+    }
+  }
+
+  /* Statistics of a single message, captured once per scrape. */
+  private static class MessageMetrics {
+    LogLinearHistogram.Snapshot latency;
+    LogLinearHistogram.Snapshot sent;
+    LogLinearHistogram.Snapshot received;
+    long errors;
+    int active;
+  }
+
+  /* Captures every message seen so far, by name. */
+  private SortedMap<String, MessageMetrics> collect() {
+    SortedMap<String, MessageMetrics> metrics = new TreeMap<>();
+    for (RPCContext rpc : statsPlugin.activeRpcs.keySet())
+      if (rpc.getMessage() != null)
+        metrics(metrics, rpc.getMessage()).active++;
+    for (Message m : statsPlugin.methodTimings.keySet())
+      metrics(metrics, m);
+    for (Message m : statsPlugin.sendPayloads.keySet())
+      metrics(metrics, m);
+    for (Message m : statsPlugin.receivePayloads.keySet())
+      metrics(metrics, m);
+    return metrics;
+  }
+
+  private MessageMetrics metrics(Map<String, MessageMetrics> metrics,
+                                 Message message) {
+    MessageMetrics m = metrics.get(message.getName());
+    if (m == null) {
+      m = new MessageMetrics();
+      m.latency = StatsPlugin.snapshot(statsPlugin.methodTimings, message);
+      m.sent = StatsPlugin.snapshot(statsPlugin.sendPayloads, message);
+      m.received = StatsPlugin.snapshot(statsPlugin.receivePayloads, message);
+      m.errors = statsPlugin.getErrorCount(message);
+      metrics.put(message.getName(), m);
+    }
+    return m;
+  }
+
+  /** Writes the statistics in the Prometheus text exposition format. */
+  public void writePrometheus(Writer w) throws IOException {
+    SortedMap<String, MessageMetrics> metrics = collect();
+    StringBuilder b = new StringBuilder();
+
+    family(b, "avro_ipc_start_time_seconds", "gauge",
+           "Time the stats plugin was created, in seconds since the epoch.");
+    b.append("avro_ipc_start_time_seconds ")
+      .append(statsPlugin.startupTime.getTime() / 1000.0).append('\n');
+
+    family(b, "avro_ipc_calls_total", "counter", "Completed calls.");
+    for (Map.Entry<String, MessageMetrics> e : metrics.entrySet())
+      sample(b, "avro_ipc_calls_total", e.getKey(), null,
+             e.getValue().latency.getCount());
+
+    family(b, "avro_ipc_errors_total", "counter",
+           "Completed calls that returned an error.");
+    for (Map.Entry<String, MessageMetrics> e : metrics.entrySet())
+      sample(b, "avro_ipc_errors_total", e.getKey(), null,
+             e.getValue().errors);
+
+    family(b, "avro_ipc_active_rpcs", "gauge", "Calls in flight.");
+    for (Map.Entry<String, MessageMetrics> e : metrics.entrySet())
+      sample(b, "avro_ipc_active_rpcs", e.getKey(), null,
+             e.getValue().active);
+
+    family(b, "avro_ipc_latency_seconds", "summary", "Call latency.");
+    for (Map.Entry<String, MessageMetrics> e : metrics.entrySet())
+      summary(b, "avro_ipc_latency_seconds", e.getKey(),
+              e.getValue().latency, NANOS_PER_SECOND);
+
+    family(b, "avro_ipc_send_payload_bytes", "summary",
+           "Size of payloads sent.");
+    for (Map.Entry<String, MessageMetrics> e : metrics.entrySet())
+      summary(b, "avro_ipc_send_payload_bytes", e.getKey(),
+              e.getValue().sent, 1);
+
+    family(b, "avro_ipc_receive_payload_bytes", "summary",
+           "Size of payloads received.");
+    for (Map.Entry<String, MessageMetrics> e : metrics.entrySet())
+      summary(b, "avro_ipc_receive_payload_bytes", e.getKey(),
+              e.getValue().received, 1);
+
+    w.write(b.toString());
+    w.flush();
+  }
+
+  private static void family(StringBuilder b, String name, String type,
+                             String help) {
+    b.append("# HELP ").append(name).append(' ').append(help).append('\n');
+    b.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+  }
+
+  private static void summary(StringBuilder b, String name, String message,
+                              LogLinearHistogram.Snapshot s, double divisor) {
+    for (int i = 0; i < PERCENTILES.length; i++)
+      sample(b, name, message, QUANTILE_LABELS[i],
+             s.getValueAtPercentile(PERCENTILES[i]) / divisor);
+    sample(b, name + "_sum", message, null, s.getSum() / divisor);
+    sample(b, name + "_count", message, null, s.getCount());
+  }
+
+  private static void sample(StringBuilder b, String name, String message,
+                             String quantile, double value) {
+    b.append(name).append("{message=\"");
+    escapeLabel(b, message);
+    b.append('"');
+    if (quantile != null)
+      b.append(",quantile=\"").append(quantile).append('"');
+    b.append("} ");
+    if (value == Math.rint(value) && Math.abs(value) < 1e15)
+      b.append((long)value);
+    else
+      b.append(value);
+    b.append('\n');
+  }
+
+  private static void escapeLabel(StringBuilder b, String value) {
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      switch (c) {
+      case '\\': b.append("\\\\"); break;
+      case '"':  b.append("\\\""); break;
+      case '\n': b.append("\\n"); break;
+      default:   b.append(c);
+      }
+    }
+  }
+
+  /** Writes the statistics as a JSON document.  Latencies are in
+   * milliseconds and payload sizes in bytes. */
+  public void writeJson(Writer w) throws IOException {
+    SortedMap<String, MessageMetrics> metrics = collect();
+    JsonGenerator gen = FACTORY.createGenerator(w);
+    gen.writeStartObject();
+    gen.writeNumberField("startTime", statsPlugin.startupTime.getTime());
+    gen.writeNumberField("time", System.currentTimeMillis());
+    gen.writeNumberField("activeRpcs", statsPlugin.activeRpcs.size());
+    gen.writeObjectFieldStart("messages");
+    for (Map.Entry<String, MessageMetrics> e : metrics.entrySet()) {
+      MessageMetrics m = e.getValue();
+      gen.writeObjectFieldStart(e.getKey());
+      gen.writeNumberField("calls", m.latency.getCount());
+      gen.writeNumberField("errors", m.errors);
+      gen.writeNumberField("active", m.active);
+      distribution(gen, "latencyMillis", m.latency, NANOS_PER_MS);
+      distribution(gen, "sendPayloadBytes", m.sent, 1);
+      distribution(gen, "receivePayloadBytes", m.received, 1);
+      gen.writeEndObject();
+    }
+    gen.writeEndObject();
+    gen.writeEndObject();
+    gen.flush();
+  }
+
+  private static void distribution(JsonGenerator gen, String name,
+                                   LogLinearHistogram.Snapshot s,
+                                   double divisor) throws IOException {
+    gen.writeObjectFieldStart(name);
+    gen.writeNumberField("count", s.getCount());
+    gen.writeNumberField("mean", s.getMean() / divisor);
+    gen.writeNumberField("stdDev", s.getUnbiasedStdDev() / divisor);
+    gen.writeNumberField("max", s.getMax() / divisor);
+    for (int i = 0; i < PERCENTILES.length; i++)
+      gen.writeNumberField(PERCENTILE_FIELDS[i],
+                           s.getValueAtPercentile(PERCENTILES[i]) / divisor);
+    gen.writeEndObject();
+  }
+}
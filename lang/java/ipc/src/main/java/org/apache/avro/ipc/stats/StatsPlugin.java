@@ -20,12 +20,13 @@ package org.apache.avro.ipc.stats;
 import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.apache.avro.Protocol.Message;
 import org.apache.avro.ipc.RPCContext;
@@ -38,8 +39,10 @@ import org.apache.avro.ipc.stats.Stopwatch.Ticks;
  * data for every method. Can be added to a Requestor (client)
  * or Responder (server).
  *
- * This uses milliseconds as the standard unit of measure
- * throughout the class, stored in floats.
+ * Latencies are recorded in nanoseconds and payload sizes in bytes, in
+ * lock-free {@link LogLinearHistogram}s, so recording never blocks and
+ * percentiles remain accurate.  The segmenters only determine how the
+ * histograms are charted by {@link StatsServlet}.
  */
 public class StatsPlugin extends RPCPlugin {
   /** Static declaration of histogram buckets. */
@@ -79,16 +82,28 @@ public class StatsPlugin extends RPCPlugin {
         50000,
        100000)));
 
-  /** Per-method histograms.
-   * Must be accessed while holding a lock. */
-  Map<Message, FloatHistogram<?>> methodTimings =
-    new HashMap<>();
+  /** Largest latency tracked exactly, in nanoseconds. */
+  static final long MAX_LATENCY_NANOS = TimeUnit.HOURS.toNanos(1);
 
-  Map<Message, IntegerHistogram<?>> sendPayloads =
-    new HashMap<>();
+  /** Largest payload tracked exactly, in bytes. */
+  static final long MAX_PAYLOAD_BYTES = 1L << 30;
 
-  Map<Message, IntegerHistogram<?>> receivePayloads =
-    new HashMap<>();
+  private static final LogLinearHistogram EMPTY = new LogLinearHistogram(1);
+
+  /** Per-method latency histograms, in nanoseconds.  These may be read
+   * concurrently with updates; use {@link LogLinearHistogram#snapshot()}. */
+  final ConcurrentMap<Message, LogLinearHistogram> methodTimings =
+    new ConcurrentHashMap<>();
+
+  /** Per-method payload size histograms, in bytes. */
+  final ConcurrentMap<Message, LogLinearHistogram> sendPayloads =
+    new ConcurrentHashMap<>();
+
+  final ConcurrentMap<Message, LogLinearHistogram> receivePayloads =
+    new ConcurrentHashMap<>();
+
+  /** Per-method count of calls that completed with an error. */
+  final ConcurrentMap<Message, LongAdder> errors = new ConcurrentHashMap<>();
 
   /** RPCs in flight. */
   ConcurrentMap<RPCContext, Stopwatch> activeRpcs =
@@ -136,15 +151,7 @@ public class StatsPlugin extends RPCPlugin {
     Stopwatch t = new Stopwatch(ticks);
     t.start();
     this.activeRpcs.put(context, t);
-
-    synchronized(receivePayloads) {
-      IntegerHistogram<?> h = receivePayloads.get(context.getMessage());
-      if (h == null) {
-        h = createNewIntegerHistogram();
-        receivePayloads.put(context.getMessage(), h);
-      }
-      h.add(getPayloadSize(context.getRequestPayload()));
-    }
+    recordPayload(receivePayloads, context, context.getRequestPayload());
   }
 
   @Override
@@ -152,15 +159,7 @@ public class StatsPlugin extends RPCPlugin {
     Stopwatch t = this.activeRpcs.remove(context);
     t.stop();
     publish(context, t);
-
-    synchronized(sendPayloads) {
-      IntegerHistogram<?> h = sendPayloads.get(context.getMessage());
-      if (h == null) {
-        h = createNewIntegerHistogram();
-        sendPayloads.put(context.getMessage(), h);
-      }
-      h.add(getPayloadSize(context.getResponsePayload()));
-    }
+    recordPayload(sendPayloads, context, context.getResponsePayload());
   }
 
   @Override
@@ -168,15 +167,7 @@ public class StatsPlugin extends RPCPlugin {
     Stopwatch t = new Stopwatch(ticks);
     t.start();
     this.activeRpcs.put(context, t);
-
-    synchronized(sendPayloads) {
-      IntegerHistogram<?> h = sendPayloads.get(context.getMessage());
-      if (h == null) {
-        h = createNewIntegerHistogram();
-       sendPayloads.put(context.getMessage(), h);
-      }
-      h.add(getPayloadSize(context.getRequestPayload()));
-    }
+    recordPayload(sendPayloads, context, context.getRequestPayload());
   }
 
   @Override
@@ -184,37 +175,62 @@ public class StatsPlugin extends RPCPlugin {
     Stopwatch t = this.activeRpcs.remove(context);
     t.stop();
     publish(context, t);
-
-    synchronized(receivePayloads) {
-      IntegerHistogram<?> h = receivePayloads.get(context.getMessage());
-      if (h == null) {
-        h = createNewIntegerHistogram();
-        receivePayloads.put(context.getMessage(), h);
-      }
-      h.add(getPayloadSize(context.getRequestPayload()));
-    }
+    recordPayload(receivePayloads, context, context.getResponsePayload());
   }
 
   /** Adds timing to the histograms. */
   private void publish(RPCContext context, Stopwatch t) {
     Message message = context.getMessage();
     if (message == null) throw new IllegalArgumentException();
-    synchronized(methodTimings) {
-      FloatHistogram<?> h = methodTimings.get(context.getMessage());
-      if (h == null) {
-        h = createNewFloatHistogram();
-        methodTimings.put(context.getMessage(), h);
-      }
-      h.add(nanosToMillis(t.elapsedNanos()));
+    histogram(methodTimings, message, MAX_LATENCY_NANOS)
+      .record(t.elapsedNanos());
+    if (context.isError()) {
+      LongAdder count = errors.get(message);
+      if (count == null)
+        count = errors.computeIfAbsent(message, m -> new LongAdder());
+      count.increment();
     }
   }
 
-  private FloatHistogram<?> createNewFloatHistogram() {
-    return new FloatHistogram<>(floatSegmenter);
+  private void recordPayload(ConcurrentMap<Message, LogLinearHistogram> map,
+                             RPCContext context, List<ByteBuffer> payload) {
+    histogram(map, context.getMessage(), MAX_PAYLOAD_BYTES)
+      .record(getPayloadSize(payload));
+  }
+
+  /* computeIfAbsent() locks even when the key is present on Java 8, so look
+   * first: a message's histogram is only created once. */
+  private static LogLinearHistogram histogram(
+      ConcurrentMap<Message, LogLinearHistogram> map, Message message,
+      long maxValue) {
+    LogLinearHistogram h = map.get(message);
+    if (h == null)
+      h = map.computeIfAbsent(message, m -> new LogLinearHistogram(maxValue));
+    return h;
+  }
+
+  /** Snapshot of the histogram for a message, empty if it has none yet, as
+   * when a call is still in progress. */
+  static LogLinearHistogram.Snapshot snapshot(
+      Map<Message, LogLinearHistogram> histograms, Message message) {
+    LogLinearHistogram h = histograms.get(message);
+    return (h != null ? h : EMPTY).snapshot();
+  }
+
+  /** Number of calls to a message that completed with an error. */
+  long getErrorCount(Message message) {
+    LongAdder count = errors.get(message);
+    return count == null ? 0 : count.sum();
+  }
+
+  /** Segmenter used to chart latencies, in milliseconds. */
+  Segmenter<?, Float> getLatencySegmenter() {
+    return floatSegmenter;
   }
 
-  private IntegerHistogram<?> createNewIntegerHistogram() {
-    return new IntegerHistogram<>(integerSegmenter);
+  /** Segmenter used to chart payload sizes, in bytes. */
+  Segmenter<?, Integer> getPayloadSegmenter() {
+    return integerSegmenter;
   }
 
   /** Converts nanoseconds to milliseconds. */
@@ -25,8 +25,8 @@ import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Set;
 import java.util.Map.Entry;
+import java.util.function.LongFunction;
 
 import javax.servlet.ServletException;
 import javax.servlet.UnavailableException;
@@ -41,16 +41,18 @@ import org.apache.velocity.exception.ResourceNotFoundException;
 
 import org.apache.avro.Protocol.Message;
 import org.apache.avro.ipc.RPCContext;
+import org.apache.avro.ipc.stats.Histogram.Segmenter;
 
 /**
  * Exposes information provided by a StatsPlugin as
  * a web page.
  *
- * This class follows the same synchronization conventions
- * as StatsPlugin, to avoid requiring StatsPlugin to serve
- * a copy of the data.
+ * Each request renders from snapshots of StatsPlugin's
+ * histograms, so rendering never blocks RPCs in progress.
  */
 public class StatsServlet extends HttpServlet {
+  private static final double NANOS_PER_MS = 1000000.0;
+
   private final StatsPlugin statsPlugin;
   private VelocityEngine velocityEngine;
   private static final SimpleDateFormat FORMATTER =
@@ -139,14 +141,10 @@ public class StatsServlet extends HttpServlet {
       rpcs.add(renderActiveRpc(rpc.getKey(), rpc.getValue()));
     }
 
-    // Get set of all seen messages
-    Set<Message> keys = null;
-    synchronized(this.statsPlugin.methodTimings) {
-       keys = this.statsPlugin.methodTimings.keySet();
-
-      for (Message m: keys) {
-        messages.add(renderMethod(m));
-      }
+    // Snapshots never block the RPCs being measured
+    for (Entry<Message, LogLinearHistogram> e :
+         this.statsPlugin.methodTimings.entrySet()) {
+      messages.add(renderMethod(e.getKey(), e.getValue().snapshot()));
     }
 
     context.put("inFlightRpcs", rpcs);
@@ -178,90 +176,82 @@ public class StatsServlet extends HttpServlet {
   }
 
 
-  private RenderableMessage renderMethod(Message message) {
+  private RenderableMessage renderMethod(Message message,
+      LogLinearHistogram.Snapshot timings) {
     RenderableMessage out = new RenderableMessage(message.getName());
+    out.numCalls = (int)timings.getCount();
+
+    out.charts.add(renderBar("All-Time Latency", "ms", timings, NANOS_PER_MS,
+        this.statsPlugin.getLatencySegmenter(),
+        v -> StatsPlugin.nanosToMillis(v)));
+    List<Float> recentMillis = new ArrayList<>();
+    for (long v : timings.getRecentValues())
+      recentMillis.add(StatsPlugin.nanosToMillis(v));
+    out.charts.add(renderDot("Latency", recentMillis));
+
+    LogLinearHistogram.Snapshot sent =
+      StatsPlugin.snapshot(this.statsPlugin.sendPayloads, message);
+    out.charts.add(renderBar("All-Time Send Payload", "ms", sent, 1,
+        this.statsPlugin.getPayloadSegmenter(), v -> (int)v));
+    out.charts.add(renderDot("Send Payload", sent.getRecentValues()));
+
+    LogLinearHistogram.Snapshot received =
+      StatsPlugin.snapshot(this.statsPlugin.receivePayloads, message);
+    out.charts.add(renderBar("All-Time Receive Payload", "ms", received, 1,
+        this.statsPlugin.getPayloadSegmenter(), v -> (int)v));
+    out.charts.add(renderDot("Recv Payload", received.getRecentValues()));
 
-    synchronized(this.statsPlugin.methodTimings) {
-      FloatHistogram<?> hist = this.statsPlugin.methodTimings.get(message);
-      out.numCalls = hist.getCount();
-
-      HashMap<String, String> latencyBar = new HashMap<>();
-      // Fill in chart attributes for velocity
-      latencyBar.put("type", "bar");
-      latencyBar.put("title", "All-Time Latency");
-      latencyBar.put("units", "ms");
-      latencyBar.put("numCalls", Integer.toString(hist.getCount()));
-      latencyBar.put("avg", Float.toString(hist.getMean()));
-      latencyBar.put("stdDev", Float.toString(hist.getUnbiasedStdDev()));
-      latencyBar.put("labelStr",
-          Arrays.toString(hist.getSegmenter().getBoundaryLabels().toArray()));
-      latencyBar.put("boundaryStr",
-          Arrays.toString(escapeStringArray(hist.getSegmenter().
-              getBucketLabels()).toArray()));
-      latencyBar.put("dataStr", Arrays.toString(hist.getHistogram()));
-      out.charts.add(latencyBar);
-
-      HashMap<String, String> latencyDot = new HashMap<>();
-      latencyDot.put("title", "Latency");
-      latencyDot.put("type", "dot");
-      latencyDot.put("dataStr",
-          Arrays.toString(hist.getRecentAdditions().toArray()));
-      out.charts.add(latencyDot);
-    }
+    return out;
+  }
 
-    synchronized(this.statsPlugin.sendPayloads) {
-      IntegerHistogram<?> hist = this.statsPlugin.sendPayloads.get(message);
-      HashMap<String, String> latencyBar = new HashMap<>();
-      // Fill in chart attributes for velocity
-      latencyBar.put("type", "bar");
-      latencyBar.put("title", "All-Time Send Payload");
-      latencyBar.put("units", "ms");
-      latencyBar.put("numCalls", Integer.toString(hist.getCount()));
-      latencyBar.put("avg", Float.toString(hist.getMean()));
-      latencyBar.put("stdDev", Float.toString(hist.getUnbiasedStdDev()));
-      latencyBar.put("labelStr",
-          Arrays.toString(hist.getSegmenter().getBoundaryLabels().toArray()));
-      latencyBar.put("boundaryStr",
-          Arrays.toString(escapeStringArray(hist.getSegmenter().
-              getBucketLabels()).toArray()));
-      latencyBar.put("dataStr", Arrays.toString(hist.getHistogram()));
-      out.charts.add(latencyBar);
-
-      HashMap<String, String> latencyDot = new HashMap<>();
-      latencyDot.put("title", "Send Payload");
-      latencyDot.put("type", "dot");
-      latencyDot.put("dataStr",
-          Arrays.toString(hist.getRecentAdditions().toArray()));
-      out.charts.add(latencyDot);
+  /* Fills in bar chart attributes for velocity, folding the log-linear
+   * buckets of a snapshot into the coarser buckets of a segmenter. */
+  private static <T> HashMap<String, String> renderBar(String title,
+      String units, LogLinearHistogram.Snapshot snapshot, double divisor,
+      Segmenter<?, T> segmenter, LongFunction<T> toSegmentValue) {
+    int[] data = new int[segmenter.size()];
+    for (int i = 0; i < snapshot.getBucketCount(); i++) {
+      long count = snapshot.getCountAt(i);
+      if (count != 0) {
+        T value = toSegmentValue.apply(snapshot.getLowestValueAt(i));
+        data[segmenter.segment(value)] += count;
+      }
     }
 
-    synchronized(this.statsPlugin.receivePayloads) {
-      IntegerHistogram<?> hist = this.statsPlugin.receivePayloads.get(message);
-      HashMap<String, String> latencyBar = new HashMap<>();
-      // Fill in chart attributes for velocity
-      latencyBar.put("type", "bar");
-      latencyBar.put("title", "All-Time Receive Payload");
-      latencyBar.put("units", "ms");
-      latencyBar.put("numCalls", Integer.toString(hist.getCount()));
-      latencyBar.put("avg", Float.toString(hist.getMean()));
-      latencyBar.put("stdDev", Float.toString(hist.getUnbiasedStdDev()));
-      latencyBar.put("labelStr",
-          Arrays.toString(hist.getSegmenter().getBoundaryLabels().toArray()));
-      latencyBar.put("boundaryStr",
-          Arrays.toString(escapeStringArray(hist.getSegmenter().
-              getBucketLabels()).toArray()));
-      latencyBar.put("dataStr", Arrays.toString(hist.getHistogram()));
-      out.charts.add(latencyBar);
-
-      HashMap<String, String> latencyDot = new HashMap<>();
-      latencyDot.put("title", "Recv Payload");
-      latencyDot.put("type", "dot");
-      latencyDot.put("dataStr",
-          Arrays.toString(hist.getRecentAdditions().toArray()));
-      out.charts.add(latencyDot);
-    }
+    HashMap<String, String> bar = new HashMap<>();
+    bar.put("type", "bar");
+    bar.put("title", title);
+    bar.put("units", units);
+    bar.put("numCalls", Long.toString(snapshot.getCount()));
+    bar.put("avg", Float.toString((float)(snapshot.getMean() / divisor)));
+    bar.put("stdDev",
+        Float.toString((float)(snapshot.getUnbiasedStdDev() / divisor)));
+    bar.put("percentiles", percentile(snapshot, 50, divisor) + "/"
+        + percentile(snapshot, 90, divisor) + "/"
+        + percentile(snapshot, 99, divisor) + "/"
+        + percentile(snapshot, 99.9, divisor));
+    bar.put("labelStr",
+        Arrays.toString(segmenter.getBoundaryLabels().toArray()));
+    bar.put("boundaryStr",
+        Arrays.toString(escapeStringArray(segmenter.getBucketLabels())
+            .toArray()));
+    bar.put("dataStr", Arrays.toString(data));
+    return bar;
+  }
 
-    return out;
+  private static String percentile(LogLinearHistogram.Snapshot snapshot,
+      double percentile, double divisor) {
+    return Float.toString(
+        (float)(snapshot.getValueAtPercentile(percentile) / divisor));
+  }
+
+  private static HashMap<String, String> renderDot(String title,
+      List<?> recent) {
+    HashMap<String, String> dot = new HashMap<>();
+    dot.put("title", title);
+    dot.put("type", "dot");
+    dot.put("dataStr", Arrays.toString(recent.toArray()));
+    return dot;
   }
 
   private CharSequence formatMillis(float millis) {
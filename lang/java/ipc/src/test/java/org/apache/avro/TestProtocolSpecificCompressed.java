@@ -0,0 +1,61 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+
+import org.apache.avro.ipc.RPCContext;
+import org.apache.avro.ipc.RPCPlugin;
+import org.apache.avro.ipc.Requestor;
+import org.apache.avro.ipc.Responder;
+import org.apache.avro.ipc.Server;
+import org.junit.Test;
+
+public class TestProtocolSpecificCompressed extends TestProtocolSpecific {
+  private static volatile String lastCompression;
+
+  @Override
+  public Server createServer(Responder testResponder) throws Exception {
+    testResponder.setCompression(0, "deflate");
+    return super.createServer(testResponder);
+  }
+
+  @Override
+  public void addRpcPlugins(Requestor requestor) {
+    requestor.setCompression(0, "bzip2", "deflate");
+    requestor.addRPCPlugin(new RPCPlugin() {
+        @Override
+        public void clientReceiveResponse(RPCContext context) {
+          lastCompression = context.getCompression();
+        }
+      });
+  }
+
+  @Test
+  public void testCompressedBulkData() throws Exception {
+    ByteBuffer data = ByteBuffer.allocate(256 * 1024);  // compresses well
+    for (int i = 0; i < 3; i++) {
+      assertEquals(data, proxy.echoBytes(data));
+      assertEquals("deflate", lastCompression);
+    }
+    assertEquals("deflate", client.getCompression());
+  }
+
+}
@@ -0,0 +1,58 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro;
+
+import static org.junit.Assert.assertEquals;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.avro.ipc.Responder;
+import org.apache.avro.ipc.Server;
+import org.apache.avro.ipc.SocketServer;
+import org.junit.Test;
+
+public class TestProtocolSpecificSelector extends TestProtocolSpecific {
+
+  @Override
+  public Server createServer(Responder testResponder) throws Exception {
+    return server = new SocketServer(testResponder,
+                                     new InetSocketAddress(0), 2);
+  }
+
+  @Test(timeout = 10000)
+  public void testPartialRequestsDoNotHoldHandlers() throws Exception {
+    List<SocketChannel> stalled = new ArrayList<>();
+    try {
+      for (int i = 0; i < 4; i++) {               // more than handler threads
+        SocketChannel channel =
+          SocketChannel.open(new InetSocketAddress(server.getPort()));
+        channel.write(ByteBuffer.wrap(new byte[] {0, 0})); // half a length
+        stalled.add(channel);
+      }
+      assertEquals("goodbye", proxy.hello("bob"));
+    } finally {
+      for (SocketChannel channel : stalled)
+        channel.close();
+    }
+  }
+
+}
@@ -38,6 +38,7 @@ import org.apache.avro.generic.GenericData;
 import org.apache.avro.generic.GenericDatumReader;
 import org.apache.avro.generic.GenericDatumWriter;
 import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.reflect.PerfFieldAccess;
 import org.apache.avro.reflect.ReflectData;
 import org.apache.avro.reflect.ReflectDatumReader;
 import org.apache.avro.reflect.ReflectDatumWriter;
@@ -95,6 +96,7 @@ public class Perf {
     new TestDescriptor(IntTest.class, "-i").add(BASIC);
     new TestDescriptor(SmallLongTest.class, "-ls").add(BASIC);
     new TestDescriptor(LongTest.class, "-l").add(BASIC);
+    new TestDescriptor(TinyLongTest.class, "-lt").add(BASIC);
     new TestDescriptor(FloatTest.class, "-f").add(BASIC);
     new TestDescriptor(DoubleTest.class, "-d").add(BASIC);
     new TestDescriptor(BoolTest.class, "-b").add(BASIC);
@@ -137,6 +139,9 @@ public class Perf {
     new TestDescriptor(ReflectNestedObjectArrayTest.class, "-REFno").add(REFLECT);
     new TestDescriptor(ReflectNestedLargeFloatArrayTest.class, "-REFnlf").add(REFLECT);
     new TestDescriptor(ReflectNestedLargeFloatArrayBlockedTest.class, "-REFnlfb").add(REFLECT);
+    new TestDescriptor(ReflectUnsafeFieldAccessTest.class, "-REFfu").add(REFLECT);
+    new TestDescriptor(ReflectHandleFieldAccessTest.class, "-REFfm").add(REFLECT);
+    new TestDescriptor(ReflectReflectFieldAccessTest.class, "-REFfr").add(REFLECT);
   }
   private static final int NAME_FIELD = 0;
   private static final int TIME_FIELD = 1;
@@ -540,7 +545,11 @@ public class Perf {
   // This is the same data as ReadInt, but using readLong.
   static class SmallLongTest extends IntTest {
     public SmallLongTest() throws IOException {
-      super("SmallLong", "{ \"type\": \"long\"} ");
+      this("SmallLong");
+    }
+
+    SmallLongTest(String name) throws IOException {
+      super(name, "{ \"type\": \"long\"} ");
     }
 
     @Override
@@ -564,6 +573,23 @@ public class Perf {
     }
   }
 
+  // this tests reading Longs that all fit in 1 byte, as is typical for counts
+  // and small deltas in long arrays
+  static class TinyLongTest extends SmallLongTest {
+    public TinyLongTest() throws IOException {
+      super("TinyLong");
+    }
+
+    @Override
+    void genSourceData() {
+      Random r = newRandom();
+      sourceData = new int[count];
+      for (int i = 0; i < sourceData.length; i++) {
+        sourceData[i] = r.nextInt(128) - 64; // fits in 1 byte
+      }
+    }
+  }
+
   // this tests reading Longs that are sometimes very large
   static class LongTest extends BasicTest {
     private long[] sourceData = null;
@@ -1582,6 +1608,55 @@ public class Perf {
     }
   }
 
+  /**
+   * Reads and writes the fields of records through one field access
+   * implementation.  Run each alone, so that the JIT sees only one.
+   */
+  static abstract class ReflectFieldAccessTest extends RecordTest {
+    private final PerfFieldAccess access;
+
+    ReflectFieldAccessTest(String implementation) throws IOException {
+      super("ReflectFieldAccess" + implementation);
+      try {
+        access = new PerfFieldAccess(implementation, Rec.class);
+      } catch (Exception e) {
+        throw new IOException(e);
+      }
+    }
+
+    @Override
+    void readInternal(Decoder d) throws IOException {
+      for (int i = 0; i < count; i++) {
+        access.read(new Rec(), d);
+      }
+    }
+
+    @Override
+    void writeInternal(Encoder e) throws IOException {
+      for (int i = 0; i < sourceData.length; i++) {
+        access.write(sourceData[i], e);
+      }
+    }
+  }
+
+  static class ReflectUnsafeFieldAccessTest extends ReflectFieldAccessTest {
+    ReflectUnsafeFieldAccessTest() throws IOException {
+      super("Unsafe");
+    }
+  }
+
+  static class ReflectHandleFieldAccessTest extends ReflectFieldAccessTest {
+    ReflectHandleFieldAccessTest() throws IOException {
+      super("MethodHandle");
+    }
+  }
+
+  static class ReflectReflectFieldAccessTest extends ReflectFieldAccessTest {
+    ReflectReflectFieldAccessTest() throws IOException {
+      super("Reflect");
+    }
+  }
+
   static class ReflectFloatTest extends ReflectTest<float[]> {
     ReflectFloatTest() throws IOException {
       super("ReflectFloat", new float[0], COUNT);
@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.ipc;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.util.ByteBufferInputStream;
+import org.junit.Test;
+
+public class TestCompression {
+
+  @Test
+  public void testNegotiation() {
+    Map<String, ByteBuffer> meta = new HashMap<>();
+    new Compression(0, "bzip2", "deflate").offer(meta);
+    assertEquals("bzip2,deflate", Compression.get(meta));
+    assertEquals("deflate", new Compression(0, "deflate").choose(meta));
+    assertEquals("bzip2",
+                 new Compression(0, "deflate", "bzip2").choose(meta));
+    assertNull(new Compression(0, "xz").choose(meta));
+    assertNull(new Compression(0, "xz").choose(new HashMap<>()));
+    assertNull(Compression.get(null));
+  }
+
+  @Test(expected = AvroRuntimeException.class)
+  public void testUnknownCodec() {
+    new Compression(0, "no-such-codec");
+  }
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    byte[] zeros = new byte[10000];
+    byte[] random = new byte[10000];
+    new Random(0).nextBytes(random);
+
+    // compressible and above the threshold
+    List<ByteBuffer> sent = Compression.compress(call(zeros), "deflate", 100);
+    assertTrue(length(sent) < 1000);
+    assertArrayEquals(zeros, received(sent));
+
+    // below the threshold
+    sent = Compression.compress(call(zeros), "deflate", 100000);
+    assertEquals(zeros.length + 1, length(sent));
+    assertArrayEquals(zeros, received(sent));
+
+    // incompressible
+    sent = Compression.compress(call(random), "deflate", 0);
+    assertEquals(random.length + 1, length(sent));
+    assertArrayEquals(random, received(sent));
+  }
+
+  @Test
+  public void testMaxSize() throws Exception {
+    byte[] zeros = new byte[100000];
+    for (String codec : new String[] { "deflate", "bzip2" }) {
+      List<ByteBuffer> sent = Compression.compress(call(zeros), codec, 0);
+      assertTrue(length(sent) < 1000);
+      assertArrayEquals(zeros, received(sent, codec, zeros.length));
+      sent = Compression.compress(call(zeros), codec, 0);
+      try {
+        received(sent, codec, zeros.length - 1);
+        fail("Decompressed beyond the maximum size with "+codec);
+      } catch (IOException e) {
+        assertTrue(e.getMessage().contains("exceeds"));
+      }
+    }
+  }
+
+  /* Splits data into two buffers, as a call usually has several. */
+  private static List<ByteBuffer> call(byte[] data) {
+    int half = data.length / 2;
+    return Arrays.asList(ByteBuffer.wrap(data, 0, half).slice(),
+                         ByteBuffer.wrap(data, half, data.length - half)
+                         .slice());
+  }
+
+  private static int length(List<ByteBuffer> buffers) {
+    int length = 0;
+    for (ByteBuffer buffer : buffers)
+      length += buffer.remaining();
+    return length;
+  }
+
+  private static byte[] received(List<ByteBuffer> sent) throws Exception {
+    return received(sent, "deflate", 10000);
+  }
+
+  /* Reads data of the given length, which is also the maximum size. */
+  private static byte[] received(List<ByteBuffer> sent, String codec,
+                                 int length) throws Exception {
+    BinaryDecoder in = DecoderFactory.get().binaryDecoder(
+        new ByteBufferInputStream(sent), null);
+    in = Compression.decompress(in, codec, length);
+    byte[] data = new byte[length];
+    in.readFixed(data);
+    assertTrue(in.isEnd());
+    return data;
+  }
+}
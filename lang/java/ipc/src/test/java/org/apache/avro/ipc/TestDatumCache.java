@@ -0,0 +1,181 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.ipc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.avro.AvroRemoteException;
+import org.apache.avro.Protocol;
+import org.apache.avro.Protocol.Message;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.DatumReader;
+import org.apache.avro.io.DatumWriter;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.Encoder;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.ipc.generic.GenericRequestor;
+import org.apache.avro.ipc.generic.GenericResponder;
+import org.apache.avro.util.Utf8;
+import org.junit.Test;
+
+public class TestDatumCache {
+
+  Protocol protocol = Protocol.parse("" + "{\"protocol\": \"Minimal\", "
+      + "\"messages\": { \"m\": {"
+      + "   \"request\": [{\"name\": \"x\", \"type\": \"string\"}], "
+      + "   \"response\": \"string\"} } }");
+
+  @Test
+  public void testCreatedOnce() {
+    DatumCache cache = new DatumCache();
+    Schema a = Schema.create(Schema.Type.STRING);
+    Schema b = Schema.create(Schema.Type.BYTES);
+    AtomicInteger created = new AtomicInteger();
+
+    DatumWriter<Object> w = cache.getWriter(a, s -> {
+        created.incrementAndGet();
+        return new GenericDatumWriter<>(s);
+      });
+    assertSame(w, cache.getWriter(a, s -> null));
+
+    DatumReader<Object> r = cache.getReader(a, a, (x, y) -> {
+        created.incrementAndGet();
+        return new GenericDatumReader<>(x, y);
+      });
+    assertSame(r, cache.getReader(a, a, (x, y) -> null));
+    cache.getReader(b, a, (x, y) -> {
+        created.incrementAndGet();
+        return new GenericDatumReader<>(x, y);
+      });
+    assertEquals(3, created.get());
+  }
+
+  /** Counts the readers and writers it creates. */
+  static class CountingResponder extends GenericResponder {
+    int readers, writers;
+
+    public CountingResponder(Protocol local) {
+      super(local);
+    }
+
+    @Override
+    protected DatumReader<Object> getDatumReader(Schema actual,
+                                                 Schema expected) {
+      readers++;
+      return super.getDatumReader(actual, expected);
+    }
+
+    @Override
+    protected DatumWriter<Object> getDatumWriter(Schema schema) {
+      writers++;
+      return super.getDatumWriter(schema);
+    }
+
+    @Override
+    public Object respond(Message message, Object request)
+        throws AvroRemoteException {
+      return ((GenericRecord) request).get("x");
+    }
+  }
+
+  @Test
+  public void testResponderReusesDatums() throws IOException {
+    CountingResponder responder = new CountingResponder(protocol);
+    Transceiver t = new LocalTransceiver(responder);
+    GenericRecord params = new GenericData.Record(protocol.getMessages().get(
+        "m").getRequest());
+    params.put("x", new Utf8("hello"));
+    GenericRequestor r = new GenericRequestor(protocol, t);
+
+    for (int x = 0; x < 5; x++)
+      assertEquals(new Utf8("hello"), r.request("m", params));
+    assertEquals(1, responder.readers);
+    assertEquals(1, responder.writers);
+  }
+
+  @Test
+  public void testSharedReaderWarmedConcurrently() throws Exception {
+    // many string schemas, so that the reader's per-schema caches fill up
+    // while all threads are reading
+    StringBuilder json = new StringBuilder
+      ("{\"type\": \"record\", \"name\": \"Wide\", \"fields\": [");
+    String[] types = {
+      "\"string\"",
+      "{\"type\": \"string\", \"avro.java.string\": \"String\"}",
+      "{\"type\": \"string\", \"avro.java.string.dedup\": 16}"
+    };
+    int fields = 64;
+    for (int i = 0; i < fields; i++) {
+      json.append(i == 0 ? "" : ", ")
+        .append("{\"name\": \"f").append(i).append("\", \"type\": ")
+        .append(types[i % types.length]).append("}");
+    }
+    Schema schema = new Schema.Parser().parse(json.append("]}").toString());
+    GenericRecord record = new GenericData.Record(schema);
+    for (int i = 0; i < fields; i++)
+      record.put(i, "value" + i);
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    Encoder out = EncoderFactory.get().binaryEncoder(bytes, null);
+    new GenericDatumWriter<Object>(schema).write(record, out);
+    out.flush();
+    byte[] data = bytes.toByteArray();
+
+    DatumCache cache = new DatumCache();
+    DatumReader<Object> reader =
+      cache.getReader(schema, schema, GenericDatumReader::new);
+    int threads = 8;
+    CyclicBarrier start = new CyclicBarrier(threads);
+    AtomicReference<Throwable> failure = new AtomicReference<>();
+    List<Thread> running = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      Thread thread = new Thread(() -> {
+          try {
+            start.await();
+            for (int n = 0; n < 100; n++) {
+              GenericRecord read = (GenericRecord)reader.read
+                (null, DecoderFactory.get().binaryDecoder(data, null));
+              for (int i = 0; i < fields; i++)
+                assertEquals("value" + i, read.get(i).toString());
+            }
+          } catch (Throwable e) {
+            failure.compareAndSet(null, e);
+          }
+        });
+      thread.start();
+      running.add(thread);
+    }
+    for (Thread thread : running)
+      thread.join();
+    if (failure.get() != null)
+      throw new AssertionError("concurrent read failed", failure.get());
+  }
+
+}
@@ -0,0 +1,256 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.ipc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.avro.Protocol;
+import org.apache.avro.Protocol.Message;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.ipc.PooledTransceiver.Selection;
+import org.apache.avro.ipc.generic.GenericRequestor;
+import org.apache.avro.ipc.generic.GenericResponder;
+import org.apache.avro.ipc.reflect.ReflectRequestor;
+import org.apache.avro.ipc.reflect.ReflectResponder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestPooledTransceiver {
+
+  public interface Counter {
+    int count();
+  }
+
+  private static class CounterImpl implements Counter {
+    final AtomicInteger calls = new AtomicInteger();
+    public int count() { return calls.incrementAndGet(); }
+  }
+
+  private CounterImpl impl1, impl2;
+  private SocketServer server1, server2;
+
+  @Before
+  public void startServers() throws IOException {
+    impl1 = new CounterImpl();
+    impl2 = new CounterImpl();
+    server1 = new SocketServer(new ReflectResponder(Counter.class, impl1),
+                               new InetSocketAddress(0));
+    server2 = new SocketServer(new ReflectResponder(Counter.class, impl2),
+                               new InetSocketAddress(0));
+    server1.start();
+    server2.start();
+  }
+
+  @After
+  public void stopServers() {
+    server1.close();
+    server2.close();
+  }
+
+  private PooledTransceiver pool(Selection selection) {
+    return new PooledTransceiver
+      (Arrays.asList(new InetSocketAddress(server1.getPort()),
+                     new InetSocketAddress(server2.getPort())),
+       2, SocketTransceiver::new, selection, 10, 100);
+  }
+
+  @Test
+  public void testRoundRobin() throws Exception {
+    PooledTransceiver pool = pool(Selection.ROUND_ROBIN);
+    try {
+      Counter proxy = ReflectRequestor.getClient(Counter.class, pool);
+      for (int i = 0; i < 20; i++)
+        proxy.count();
+      assertEquals(10, impl1.calls.get());
+      assertEquals(10, impl2.calls.get());
+      assertEquals(4, pool.getOpenConnections());
+      assertEquals(0, pool.getOutstandingCalls());
+    } finally {
+      pool.close();
+    }
+  }
+
+  @Test
+  public void testEjectAndReconnect() throws Exception {
+    PooledTransceiver pool = pool(Selection.LEAST_OUTSTANDING);
+    try {
+      Counter proxy = ReflectRequestor.getClient(Counter.class, pool);
+      for (int i = 0; i < 20; i++)
+        proxy.count();
+      assertTrue(impl1.calls.get() > 0);
+      assertTrue(impl2.calls.get() > 0);
+
+      int port = server2.getPort();
+      server2.close();
+      server2.join(10000);
+      int failures = 0;
+      for (int i = 0; i < 20; i++) {
+        try {
+          proxy.count();
+        } catch (Exception e) {
+          failures++;                             // in-flight on the closed one
+        }
+      }
+      assertTrue("failures: "+failures, failures <= 2);
+      assertEquals(2, pool.getOpenConnections());
+
+      // restart the second server on the same port: ejected connections
+      // are reopened once their backoff has passed
+      impl2 = new CounterImpl();
+      server2 = new SocketServer(new ReflectResponder(Counter.class, impl2),
+                                 new InetSocketAddress(port));
+      server2.start();
+      Thread.sleep(200);
+      for (int i = 0; i < 20; i++)
+        proxy.count();
+      assertTrue(impl2.calls.get() > 0);
+      assertEquals(4, pool.getOpenConnections());
+    } finally {
+      pool.close();
+    }
+  }
+
+  /** A single-connection pool whose writes fail while {@code failing}. */
+  private PooledTransceiver failingPool(AtomicBoolean failing) {
+    return new PooledTransceiver
+      (Collections.singletonList(new InetSocketAddress(server1.getPort())),
+       1, address -> new SocketTransceiver(address) {
+           @Override
+           public synchronized void writeBuffers(List<ByteBuffer> buffers)
+             throws IOException {
+             if (failing.get())
+               throw new IOException("injected failure");
+             super.writeBuffers(buffers);
+           }
+         }, Selection.ROUND_ROBIN, 0, 0);
+  }
+
+  /** Fails a call from another thread, ejecting the pool's connection. */
+  private static void ejectFromAnotherThread(PooledTransceiver pool,
+                                             AtomicBoolean failing)
+    throws InterruptedException {
+    failing.set(true);
+    Thread other = new Thread(() -> {
+        try {
+          pool.writeBuffers(Collections.emptyList());
+        } catch (IOException e) {
+          // expected: checked below
+        }
+      });
+    other.start();
+    other.join();
+    failing.set(false);
+    assertEquals(0, pool.getOpenConnections());
+  }
+
+  @Test
+  public void testEjectedBeforeSend() throws Exception {
+    AtomicBoolean failing = new AtomicBoolean();
+    PooledTransceiver pool = failingPool(failing);
+    try {
+      assertFalse(pool.isConnected());            // chooses the connection
+      ejectFromAnotherThread(pool, failing);
+
+      // this thread's call was prepared for the ejected connection
+      try {
+        pool.transceive(Collections.emptyList(), new CallFuture<>());
+        fail("Sent over another connection");
+      } catch (IOException e) {
+        assertTrue(e.getMessage().contains("closed before sending"));
+      }
+
+      // the next call chooses afresh
+      Counter proxy = ReflectRequestor.getClient(Counter.class, pool);
+      assertEquals(1, proxy.count());
+    } finally {
+      pool.close();
+    }
+  }
+
+  @Test
+  public void testEjectedAfterGetRemote() throws Exception {
+    AtomicBoolean failing = new AtomicBoolean();
+    PooledTransceiver pool = failingPool(failing);
+    try {
+      ReflectRequestor requestor = new ReflectRequestor(Counter.class, pool);
+      assertTrue(requestor.getRemote().getMessages().containsKey("count"));
+      ejectFromAnotherThread(pool, failing);
+
+      // the handshake's connection is not kept once it has been read
+      Counter proxy = ReflectRequestor.getClient(Counter.class, requestor);
+      assertEquals(1, proxy.count());
+    } finally {
+      pool.close();
+    }
+  }
+
+  private static final String VERSION =
+    "{\"protocol\": \"Version\", \"messages\": {"
+    +"\"get\": {\"request\": [], \"response\": \"%s\"}}}";
+
+  private static SocketServer versionServer(String type, Object value)
+    throws IOException {
+    Protocol protocol = Protocol.parse(String.format(VERSION, type));
+    SocketServer server = new SocketServer(new GenericResponder(protocol) {
+        @Override
+        public Object respond(Message message, Object request) {
+          return value;
+        }
+      }, new InetSocketAddress(0));
+    server.start();
+    return server;
+  }
+
+  @Test
+  public void testEndpointsWithDifferentProtocols() throws Exception {
+    SocketServer floats = versionServer("float", 1.5f);
+    SocketServer doubles = versionServer("double", 2.5d);
+    PooledTransceiver pool = new PooledTransceiver
+      (Arrays.asList(new InetSocketAddress(floats.getPort()),
+                     new InetSocketAddress(doubles.getPort())),
+       1, SocketTransceiver::new, Selection.ROUND_ROBIN, 10, 100);
+    try {
+      Protocol local = Protocol.parse(String.format(VERSION, "double"));
+      GenericRequestor requestor = new GenericRequestor(local, pool);
+      GenericData.Record request = new GenericData.Record
+        (local.getMessages().get("get").getRequest());
+      double sum = 0;
+      for (int i = 0; i < 10; i++)
+        sum += (Double)requestor.request("get", request);
+      assertEquals(5 * 1.5 + 5 * 2.5, sum, 0);
+    } finally {
+      pool.close();
+      floats.close();
+      doubles.close();
+    }
+  }
+
+}
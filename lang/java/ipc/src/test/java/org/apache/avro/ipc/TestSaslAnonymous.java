@@ -21,6 +21,9 @@ package org.apache.avro.ipc;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.apache.avro.ipc.generic.GenericRequestor;
 import org.apache.avro.TestProtocolGeneric;
@@ -30,6 +33,8 @@ import org.apache.avro.ipc.reflect.ReflectResponder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import static org.junit.Assert.assertArrayEquals;
+
 import org.junit.Before;
 import org.junit.Test;
 
@@ -73,4 +78,59 @@ public class TestSaslAnonymous extends TestProtocolGeneric {
     s.close();
   }
 
+  @Test(timeout = 10000)
+  public void testStalledNegotiationTimesOut() throws Exception {
+    SaslSocketServer s = new SaslSocketServer
+      (new ReflectResponder(ProtoInterface.class, new ProtoInterface() {
+        public byte[] test(byte[] b) { return b; }
+      }), new InetSocketAddress(0), 1);
+    s.setReadTimeout(200);
+    s.start();
+    // connects, but never starts SASL negotiation
+    SocketChannel stalled =
+      SocketChannel.open(new InetSocketAddress(s.getPort()));
+    SaslSocketTransceiver client = null;
+    try {
+      client = new SaslSocketTransceiver(new InetSocketAddress(s.getPort()));
+      ProtoInterface proxy =
+        (ProtoInterface)ReflectRequestor.getClient(ProtoInterface.class, client);
+      assertArrayEquals(new byte[] {1}, proxy.test(new byte[] {1}));
+    } finally {
+      if (client != null)
+        client.close();
+      stalled.close();
+      s.close();
+    }
+  }
+
+  @Test
+  public void testIdleConnectionsShareHandlerThreads() throws Exception {
+    SaslSocketServer s = new SaslSocketServer
+      (new ReflectResponder(ProtoInterface.class, new ProtoInterface() {
+        public byte[] test(byte[] b) { return b; }
+      }), new InetSocketAddress(0), 2);
+    s.start();
+    List<SaslSocketTransceiver> clients = new ArrayList<>();
+    List<ProtoInterface> proxies = new ArrayList<>();
+    try {
+      for (int i = 0; i < 20; i++) {
+        SaslSocketTransceiver c =
+          new SaslSocketTransceiver(new InetSocketAddress(s.getPort()));
+        clients.add(c);
+        proxies.add((ProtoInterface)
+                    ReflectRequestor.getClient(ProtoInterface.class, c));
+      }
+      for (int round = 0; round < 2; round++) {
+        for (ProtoInterface proxy : proxies) {
+          assertArrayEquals(new byte[] {(byte)round},
+                            proxy.test(new byte[] {(byte)round}));
+        }
+      }
+    } finally {
+      for (SaslSocketTransceiver c : clients)
+        c.close();
+      s.close();
+    }
+  }
+
 }
@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.ipc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.avro.ipc.reflect.ReflectRequestor;
+import org.apache.avro.ipc.reflect.ReflectResponder;
+import org.junit.Test;
+
+public class TestSocketTransceiverMultiplex {
+
+  public interface Gate {
+    int echo(int value);
+    /** Waits until {@link #open()} is called, then returns its argument. */
+    int await(int value);
+    void open();
+  }
+
+  private static class GateImpl implements Gate {
+    private final CountDownLatch latch = new CountDownLatch(1);
+    public int await(int value) {
+      try {
+        latch.await(10, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return value;
+    }
+    public int echo(int value) { return value; }
+    public void open() { latch.countDown(); }
+  }
+
+  @Test
+  public void testOutOfOrderCompletion() throws Exception {
+    SocketServer server = new SocketServer
+      (new ReflectResponder(Gate.class, new GateImpl()),
+       new InetSocketAddress(0));
+    server.start();
+    SocketTransceiver client =
+      new SocketTransceiver(new InetSocketAddress(server.getPort()), true);
+    try {
+      ReflectRequestor requestor = new ReflectRequestor(Gate.class, client);
+      Gate proxy = ReflectRequestor.getClient(Gate.class, requestor);
+      assertEquals(1, proxy.echo(1));            // completes the handshake
+      assertTrue(client.isMultiplexed());
+
+      CallFuture<Integer> blocked = new CallFuture<>();
+      requestor.request("await", new Object[] {7}, blocked);
+      // a second call on the same connection overtakes the blocked one
+      proxy.open();
+      assertEquals(Integer.valueOf(7), blocked.get(10, TimeUnit.SECONDS));
+    } finally {
+      client.close();
+      server.close();
+    }
+  }
+
+  @Test
+  public void testFailingCallbackKeepsReading() throws Exception {
+    SocketServer server = new SocketServer
+      (new ReflectResponder(Gate.class, new GateImpl()),
+       new InetSocketAddress(0));
+    server.start();
+    SocketTransceiver client =
+      new SocketTransceiver(new InetSocketAddress(server.getPort()), true);
+    try {
+      Gate proxy = ReflectRequestor.getClient(Gate.class, client);
+      assertEquals(1, proxy.echo(1));            // completes the handshake
+      assertTrue(client.isMultiplexed());
+
+      // a ping: empty metadata and message name
+      CountDownLatch called = new CountDownLatch(1);
+      client.transceive(Collections.singletonList(ByteBuffer.wrap(new byte[2])),
+                        new Callback<List<ByteBuffer>>() {
+          @Override
+          public void handleResult(List<ByteBuffer> result) {
+            called.countDown();
+            throw new IllegalStateException("callback failure");
+          }
+          @Override
+          public void handleError(Throwable error) {}
+        });
+      assertTrue(called.await(10, TimeUnit.SECONDS));
+      assertEquals(2, proxy.echo(2));            // reader still running
+    } finally {
+      client.close();
+      server.close();
+    }
+  }
+
+  @Test
+  public void testPlainFramingByDefault() throws Exception {
+    SocketServer server = new SocketServer
+      (new ReflectResponder(Gate.class, new GateImpl()),
+       new InetSocketAddress(0), 2);
+    server.start();
+    SocketTransceiver client =
+      new SocketTransceiver(new InetSocketAddress(server.getPort()));
+    try {
+      Gate proxy = ReflectRequestor.getClient(Gate.class, client);
+      proxy.open();
+      assertEquals(3, proxy.await(3));
+      assertFalse(client.isMultiplexed());
+    } finally {
+      client.close();
+      server.close();
+    }
+  }
+
+}
@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.ipc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.avro.Protocol;
+import org.apache.avro.Protocol.Message;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.ipc.generic.GenericRequestor;
+import org.apache.avro.ipc.generic.GenericResponder;
+import org.junit.Test;
+
+public class TestStatelessHandshake {
+
+  private static final String VERSION =
+    "{\"protocol\": \"Version\", \"messages\": {"
+    +"\"get\": {\"request\": [], \"response\": \"%s\"}}}";
+
+  private static Responder responder(String type, Object value) {
+    return new GenericResponder(Protocol.parse(String.format(VERSION, type))) {
+      @Override
+      public Object respond(Message message, Object request) {
+        return value;
+      }
+    };
+  }
+
+  private final Responder floats = responder("float", 1.5f);
+  private final Responder doubles = responder("double", 2.5d);
+  private final ThreadLocal<Responder> target = new ThreadLocal<>();
+
+  /** Sends each call to the responder chosen by the calling thread, and
+   * answers from another thread, as a load balancer in front of servers
+   * running different versions of a protocol might. */
+  private class Balancer extends Transceiver {
+    @Override
+    public String getRemoteName() { return "TestStatelessHandshake"; }
+
+    @Override
+    public boolean isStateless() { return true; }
+
+    @Override
+    public List<ByteBuffer> readBuffers() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void writeBuffers(List<ByteBuffer> buffers) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void transceive(List<ByteBuffer> request,
+                           Callback<List<ByteBuffer>> callback)
+      throws IOException {
+      Responder responder = target.get();
+      List<ByteBuffer> response = responder.respond(request);
+      new Thread(() -> {
+          target.set(responder);
+          callback.handleResult(response);
+        }).start();
+    }
+  }
+
+  @Test
+  public void testConcurrentHandshakesKeepTheirRemote() throws Exception {
+    Protocol local = Protocol.parse(String.format(VERSION, "double"));
+    GenericRequestor requestor = new GenericRequestor(local, new Balancer());
+    GenericData.Record request =
+      new GenericData.Record(local.getMessages().get("get").getRequest());
+
+    // hold a call to one server between its handshake and its response,
+    // while a call to the other completes its own handshake
+    CountDownLatch floatsShaken = new CountDownLatch(1);
+    CountDownLatch doublesDone = new CountDownLatch(1);
+    requestor.addRPCPlugin(new RPCPlugin() {
+        @Override
+        public void clientFinishConnect(RPCContext context) {
+          if (target.get() == floats
+              && context.getHandshakeResponse().match != HandshakeMatch.NONE) {
+            floatsShaken.countDown();
+            try {
+              doublesDone.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+            }
+          }
+        }
+      });
+
+    AtomicReference<Object> floatResult = new AtomicReference<>();
+    Thread floatCall = new Thread(() -> {
+        target.set(floats);
+        try {
+          floatResult.set(requestor.request("get", request));
+        } catch (Exception e) {
+          floatResult.set(e);
+        }
+      });
+    floatCall.start();
+    assertTrue(floatsShaken.await(10, TimeUnit.SECONDS));
+
+    target.set(doubles);
+    assertEquals(2.5d, requestor.request("get", request));
+    doublesDone.countDown();
+    floatCall.join(10000);
+    assertEquals(1.5d, floatResult.get());
+  }
+
+}
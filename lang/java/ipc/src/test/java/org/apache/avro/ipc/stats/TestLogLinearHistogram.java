@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.ipc.stats;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class TestLogLinearHistogram {
+
+  @Test
+  public void testBucketBoundaries() {
+    LogLinearHistogram h = new LogLinearHistogram(1L << 40);
+    for (int i = 0; i < h.getBucketCount(); i++) {
+      long low = h.lowestValueAt(i);
+      assertEquals(i, h.indexOf(low));
+      assertEquals(i, h.indexOf(h.highestValueAt(i)));
+      if (i > 0)
+        assertEquals(h.highestValueAt(i - 1) + 1, low);
+    }
+    assertEquals(h.getBucketCount() - 1, h.indexOf(1L << 40));
+  }
+
+  @Test
+  public void testPercentiles() {
+    LogLinearHistogram h = new LogLinearHistogram(1000000);
+    for (int i = 1; i <= 10000; i++)
+      h.record(i);
+    LogLinearHistogram.Snapshot s = h.snapshot();
+    assertEquals(10000, s.getCount());
+    assertEquals(5000.5, s.getMean(), 0);
+    assertEquals(10000, s.getMax());
+    assertWithin(5000, s.getValueAtPercentile(50));
+    assertWithin(9900, s.getValueAtPercentile(99));
+    assertWithin(9990, s.getValueAtPercentile(99.9));
+    assertEquals(10000, s.getValueAtPercentile(100));
+    assertEquals(1, s.getValueAtPercentile(0));
+  }
+
+  /** Percentiles are never below the exact value, and at most ~3% above. */
+  private static void assertWithin(long expected, long actual) {
+    assertTrue(actual + " < " + expected, actual >= expected);
+    assertTrue(actual + " > " + expected, actual <= expected * 1.0625);
+  }
+
+  @Test
+  public void testClampAndNegative() {
+    LogLinearHistogram h = new LogLinearHistogram(100);
+    h.record(-5);
+    h.record(1000);
+    LogLinearHistogram.Snapshot s = h.snapshot();
+    assertEquals(2, s.getCount());
+    assertEquals(1000, s.getSum());
+    assertEquals(1000, s.getMax());
+    assertEquals(0, s.getValueAtPercentile(50));
+    assertEquals(1000, s.getValueAtPercentile(100));
+  }
+
+  @Test
+  public void testRecentValues() {
+    LogLinearHistogram h = new LogLinearHistogram(1000);
+    assertEquals(0, h.snapshot().getCount());
+    assertEquals(0, h.snapshot().getValueAtPercentile(99));
+    h.record(3);
+    h.record(1);
+    assertEquals(Arrays.asList(3L, 1L), h.snapshot().getRecentValues());
+    List<Long> expected = new ArrayList<>();
+    for (long i = 0; i < 50; i++) {
+      h.record(i);
+      if (i >= 50 - Histogram.MAX_HISTORY_SIZE)
+        expected.add(i);
+    }
+    assertEquals(expected, h.snapshot().getRecentValues());
+  }
+
+  @Test
+  public void testConcurrentRecording() throws Exception {
+    final LogLinearHistogram h = new LogLinearHistogram(1 << 20);
+    Thread[] threads = new Thread[8];
+    for (int t = 0; t < threads.length; t++) {
+      threads[t] = new Thread(() -> {
+          for (int i = 0; i < 10000; i++)
+            h.record(i);
+        });
+      threads[t].start();
+    }
+    for (Thread t : threads)
+      t.join();
+    LogLinearHistogram.Snapshot s = h.snapshot();
+    assertEquals(80000, s.getCount());
+    assertEquals(8L * 9999 * 10000 / 2, s.getSum());
+    assertEquals(9999, s.getMax());
+  }
+
+  @Test
+  public void testRecentValuesFromThreads() throws Exception {
+    final LogLinearHistogram h = new LogLinearHistogram(1 << 20);
+    Thread[] threads = new Thread[8];
+    for (int t = 0; t < threads.length; t++) {
+      final int base = t * 1000;
+      threads[t] = new Thread(() -> {
+          for (int i = 0; i < 100; i++)
+            h.record(base + i);
+        });
+      threads[t].start();
+    }
+    for (Thread t : threads)
+      t.join();
+    List<Long> recent = h.snapshot().getRecentValues();
+    assertEquals(Histogram.MAX_HISTORY_SIZE, recent.size());
+    long[] last = new long[threads.length];
+    Arrays.fill(last, -1);
+    for (long v : recent) {
+      int thread = (int)(v / 1000);
+      assertTrue(v % 1000 >= 100 - Histogram.MAX_HISTORY_SIZE);
+      assertTrue(v > last[thread]);               // each thread's in order
+      last[thread] = v;
+    }
+  }
+}
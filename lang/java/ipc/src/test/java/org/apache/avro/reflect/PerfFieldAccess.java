@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.reflect;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.io.Decoder;
+import org.apache.avro.io.Encoder;
+
+/**
+ * Reads and writes the int and double fields of a class through a chosen
+ * {@link FieldAccess} implementation, so that
+ * {@link org.apache.avro.io.Perf} can compare them.  Accessors that do not
+ * support I/O are used through {@code get} and {@code set}, as
+ * {@link ReflectDatumReader} and {@link ReflectDatumWriter} do.
+ */
+public class PerfFieldAccess {
+  private final FieldAccessor[] accessors;
+
+  /**
+   * @param implementation the suffix of the implementation's class name:
+   * {@code Unsafe}, {@code MethodHandle} or {@code Reflect}.
+   * @param c the class whose fields are accessed.
+   */
+  public PerfFieldAccess(String implementation, Class<?> c) throws Exception {
+    FieldAccess access = (FieldAccess)
+      Class.forName(FieldAccess.class.getName() + implementation).newInstance();
+    List<FieldAccessor> result = new ArrayList<>();
+    for (Field f : c.getDeclaredFields())
+      if (!Modifier.isStatic(f.getModifiers()))
+        result.add(access.getAccessor(f));
+    this.accessors = result.toArray(new FieldAccessor[0]);
+  }
+
+  public void write(Object object, Encoder out) throws IOException {
+    for (FieldAccessor accessor : accessors) {
+      if (accessor.supportsIO()) {
+        accessor.write(object, out);
+        continue;
+      }
+      Object value;
+      try {
+        value = accessor.get(object);
+      } catch (IllegalAccessException e) {
+        throw new AvroRuntimeException(e);
+      }
+      if (value instanceof Integer)
+        out.writeInt((Integer) value);
+      else
+        out.writeDouble((Double) value);
+    }
+  }
+
+  public void read(Object object, Decoder in) throws IOException {
+    for (FieldAccessor accessor : accessors) {
+      if (accessor.supportsIO()) {
+        accessor.read(object, in);
+        continue;
+      }
+      Object value = accessor.getField().getType() == int.class
+        ? (Object) in.readInt() : (Object) in.readDouble();
+      try {
+        accessor.set(object, value);
+      } catch (IllegalAccessException e) {
+        throw new AvroRuntimeException(e);
+      }
+    }
+  }
+}
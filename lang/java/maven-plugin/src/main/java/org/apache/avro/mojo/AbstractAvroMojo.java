@@ -147,6 +147,15 @@ public abstract class AbstractAvroMojo extends AbstractMojo {
    */
   protected boolean createSetters;
 
+  /**
+   * Determines whether generated records build their schemas from the
+   * schemas of the other generated classes, so that named types are parsed
+   * once and shared.  The default is to define each schema inline.
+   *
+   * @parameter property="shareSchemas"
+   */
+  protected boolean shareSchemas = false;
+
   /**
    * A set of fully qualified class names of custom {@link org.apache.avro.Conversion} implementations to add to the compiler.
    * The classes must be on the classpath at compile time and whenever the Java objects are serialized.
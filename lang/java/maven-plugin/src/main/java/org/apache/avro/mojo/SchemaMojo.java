@@ -83,6 +83,7 @@ public class SchemaMojo extends AbstractAvroMojo {
     compiler.setCreateOptionalGetters(createOptionalGetters);
     compiler.setGettersReturnOptional(gettersReturnOptional);
     compiler.setCreateSetters(createSetters);
+    compiler.setShareSchemas(shareSchemas);
     compiler.setEnableDecimalLogicalType(enableDecimalLogicalType);
     try {
       final URLClassLoader classLoader = createClassLoader();